@@ -17,17 +17,25 @@
  
 package github.luckygc.jakartadata;
 
+import github.luckygc.jakartadata.annotation.ProxyMode;
 import github.luckygc.jakartadata.provider.hibernate.HibernateRepositoryProxy;
+import github.luckygc.jakartadata.provider.hibernate.HiddenClassRepositoryGenerator;
+import github.luckygc.jakartadata.provider.hibernate.LazyRepositoryProxy;
 
 import jakarta.data.repository.Repository;
 
+import org.hibernate.StatelessSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.config.AbstractFactoryBean;
+import org.springframework.core.NativeDetector;
 import org.springframework.util.Assert;
 import org.springframework.util.StringUtils;
 
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
+import java.util.function.Function;
 
 /**
  * Jakarta Data Repository 工厂Bean
@@ -42,12 +50,32 @@ import java.lang.reflect.Proxy;
 @Repository
 public class DataRepositoryFactoryBean<T> extends AbstractFactoryBean<T> {
 
+    private static final Logger log = LoggerFactory.getLogger(DataRepositoryFactoryBean.class);
+
     /** Repository接口类型 */
     protected final Class<T> repositoryInterface;
 
     /** Repository provider类型，默认为hibernate */
     private String provider;
 
+    /** Repository 代理实现方式，默认为JDK动态代理 */
+    private ProxyMode proxyMode = ProxyMode.JDK;
+
+    /** 是否在首次调用时才初始化代理 */
+    private boolean lazy;
+
+    /** SessionFactory的Bean名称，为空时按类型获取 */
+    private String sessionFactoryRef;
+
+    /** DataSource的Bean名称，为空时按类型获取 */
+    private String dataSourceRef;
+
+    /** 是否延迟获取事务性Session的JDBC连接 */
+    private boolean lazyConnection;
+
+    /** Hibernate生成的实现类的创建函数，AOT生成的Bean定义中为构造函数引用 */
+    private Function<StatelessSession, ? extends T> implementationFactory;
+
     /**
      * 构造函数
      *
@@ -68,6 +96,69 @@ public class DataRepositoryFactoryBean<T> extends AbstractFactoryBean<T> {
         this.provider = provider;
     }
 
+    /**
+     * 设置Repository代理实现方式
+     *
+     * @param proxyMode
+     *            代理实现方式，null时使用JDK动态代理
+     */
+    public void setProxyMode(ProxyMode proxyMode) {
+        this.proxyMode = (proxyMode != null ? proxyMode : ProxyMode.JDK);
+    }
+
+    /**
+     * 设置是否延迟初始化
+     *
+     * @param lazy
+     *            为true时使用 {@link LazyRepositoryProxy}，首次调用时才初始化
+     */
+    public void setLazy(boolean lazy) {
+        this.lazy = lazy;
+    }
+
+    /**
+     * 设置Repository使用的SessionFactory的Bean名称
+     *
+     * @param sessionFactoryRef
+     *            Bean名称，为空时按类型获取容器中唯一的SessionFactory
+     */
+    public void setSessionFactoryRef(String sessionFactoryRef) {
+        this.sessionFactoryRef = sessionFactoryRef;
+    }
+
+    /**
+     * 设置Repository使用的DataSource的Bean名称
+     *
+     * @param dataSourceRef
+     *            Bean名称，为空时按类型获取容器中唯一的DataSource
+     */
+    public void setDataSourceRef(String dataSourceRef) {
+        this.dataSourceRef = dataSourceRef;
+    }
+
+    /**
+     * 设置是否延迟获取事务性Session的JDBC连接
+     *
+     * @param lazyConnection
+     *            为true时事务性Session执行第一条语句时才获取连接
+     */
+    public void setLazyConnection(boolean lazyConnection) {
+        this.lazyConnection = lazyConnection;
+    }
+
+    /**
+     * 设置Hibernate生成的实现类的创建函数
+     *
+     * <p>
+     * AOT处理时生成的Bean定义会设置为实现类的构造函数引用，运行期不再通过LambdaMetafactory创建构造函数调用器。
+     *
+     * @param implementationFactory
+     *            实现类的创建函数，null时运行期创建构造函数调用器
+     */
+    public void setImplementationFactory(Function<StatelessSession, ? extends T> implementationFactory) {
+        this.implementationFactory = implementationFactory;
+    }
+
     @Override
     public Class<?> getObjectType() {
         return repositoryInterface;
@@ -81,7 +172,28 @@ public class DataRepositoryFactoryBean<T> extends AbstractFactoryBean<T> {
 
         InvocationHandler invocationHandler;
         if (!StringUtils.hasText(provider) || "hibernate".equals(provider)) {
-            invocationHandler = new HibernateRepositoryProxy<>(repositoryInterface, beanFactory);
+            if (lazy) {
+                if (proxyMode == ProxyMode.HIDDEN_CLASS) {
+                    log.debug("Repository接口 '{}' 延迟初始化，使用JDK动态代理", repositoryInterface.getName());
+                }
+                invocationHandler = new LazyRepositoryProxy<>(repositoryInterface,
+                        () -> new HibernateRepositoryProxy<>(repositoryInterface, beanFactory, implementationFactory,
+                                sessionFactoryRef, dataSourceRef, lazyConnection));
+                return (T) Proxy.newProxyInstance(repositoryInterface.getClassLoader(),
+                        new Class<?>[] {repositoryInterface}, invocationHandler);
+            }
+
+            HibernateRepositoryProxy<T, ?> hibernateProxy = new HibernateRepositoryProxy<>(repositoryInterface,
+                    beanFactory, implementationFactory, sessionFactoryRef, dataSourceRef, lazyConnection);
+            if (proxyMode == ProxyMode.HIDDEN_CLASS && NativeDetector.inNativeImage()) {
+                log.debug("Repository接口 '{}' 运行于原生镜像，不支持隐藏类，使用JDK动态代理", repositoryInterface.getName());
+            } else if (proxyMode == ProxyMode.HIDDEN_CLASS) {
+                if (HiddenClassRepositoryGenerator.isSupported(repositoryInterface, hibernateProxy)) {
+                    return HiddenClassRepositoryGenerator.newInstance(repositoryInterface, hibernateProxy);
+                }
+                log.info("Repository接口 '{}' 无法使用隐藏类代理，回退为JDK动态代理", repositoryInterface.getName());
+            }
+            invocationHandler = hibernateProxy;
         } else {
             throw new IllegalArgumentException(
                     String.format("不支持的repository provider: '%s'。当前仅支持 'hibernate' 或留空默认使用hibernate", provider));
@@ -18,15 +18,20 @@
 package github.luckygc.jakartadata;
 
 import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.annotation.ProxyMode;
+import github.luckygc.jakartadata.index.DataComponentsIndex;
+import github.luckygc.jakartadata.provider.hibernate.RepositorySessionAdvisor;
 
 import jakarta.data.repository.Repository;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.aop.config.AopConfigUtils;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
 import org.springframework.beans.factory.support.BeanDefinitionBuilder;
 import org.springframework.beans.factory.support.BeanDefinitionRegistry;
+import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.annotation.ImportBeanDefinitionRegistrar;
 import org.springframework.core.annotation.AnnotationAttributes;
 import org.springframework.core.io.Resource;
@@ -43,6 +48,7 @@ import org.springframework.util.StringUtils;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Jakarta Data Repository 配置扩展 负责解析 @EnableJakartaDataRepositories 注解并注册相关 Bean
@@ -51,6 +57,23 @@ import java.util.List;
  */
 public class DataRepositoryRegistrar implements ImportBeanDefinitionRegistrar {
 
+    /** {@link RepositorySessionAdvisor} 的Bean名称 */
+    public static final String REPOSITORY_SESSION_ADVISOR_BEAN_NAME =
+            "github.luckygc.jakartadata.repositorySessionAdvisor";
+
+    /**
+     * Repository Bean定义上记录扫描基础包路径的属性名
+     *
+     * <p>
+     * AOT处理时据此确定需要注册反射提示的实体类，该属性不会写入生成的Bean定义代码。
+     */
+    public static final String BASE_PACKAGES_ATTRIBUTE = "github.luckygc.jakartadata.basePackages";
+
+    /**
+     * Repository Bean定义上记录 {@link EnableDataRepositories#entityPackages()} 的属性名，未指定实体包路径时不设置
+     */
+    public static final String ENTITY_PACKAGES_ATTRIBUTE = "github.luckygc.jakartadata.entityPackages";
+
     private static final Logger log = LoggerFactory.getLogger(DataRepositoryRegistrar.class);
 
     private static final String RESOURCE_PATTERN = "/**/*.class";
@@ -59,6 +82,18 @@ public class DataRepositoryRegistrar implements ImportBeanDefinitionRegistrar {
 
     private List<String> basePackages;
 
+    private String[] entityPackages;
+
+    private ProxyMode proxyMode;
+
+    private boolean lazy;
+
+    private String sessionFactoryRef;
+
+    private String dataSourceRef;
+
+    private boolean lazyConnection;
+
     @Override
     public void registerBeanDefinitions(@NonNull AnnotationMetadata importingClassMetadata,
             @NonNull BeanDefinitionRegistry registry) {
@@ -73,6 +108,13 @@ public class DataRepositoryRegistrar implements ImportBeanDefinitionRegistrar {
 
         // 获取要扫描的包路径
         basePackages = getBasePackages(importingClassMetadata, attributes);
+        entityPackages = StringUtils.toStringArray(Arrays.stream(attributes.getStringArray("entityPackages"))
+                .filter(StringUtils::hasText).toList());
+        proxyMode = attributes.getEnum("proxyMode");
+        lazy = attributes.getBoolean("lazy");
+        sessionFactoryRef = attributes.getString("sessionFactoryRef");
+        dataSourceRef = attributes.getString("dataSourceRef");
+        lazyConnection = attributes.getBoolean("lazyConnection");
 
         if (basePackages.isEmpty()) {
             log.warn("未指定要扫描的基础包路径，跳过Jakarta Data Repository扫描");
@@ -85,9 +127,24 @@ public class DataRepositoryRegistrar implements ImportBeanDefinitionRegistrar {
             throw new IllegalStateException(String.format("扫描和注册Jakarta Data Repository失败，包路径: %s", basePackages), e);
         }
 
+        registerRepositorySessionAdvisor(registry);
+
         log.info("已完成Jakarta Data Repository扫描注册，包路径: {}", basePackages);
     }
 
+    /** 注册 @RepositorySession 切面及自动代理创建器 */
+    private void registerRepositorySessionAdvisor(BeanDefinitionRegistry registry) {
+        if (registry.containsBeanDefinition(REPOSITORY_SESSION_ADVISOR_BEAN_NAME)) {
+            return;
+        }
+
+        AopConfigUtils.registerAutoProxyCreatorIfNecessary(registry);
+
+        RootBeanDefinition advisorDefinition = new RootBeanDefinition(RepositorySessionAdvisor.class);
+        advisorDefinition.setRole(BeanDefinition.ROLE_INFRASTRUCTURE);
+        registry.registerBeanDefinition(REPOSITORY_SESSION_ADVISOR_BEAN_NAME, advisorDefinition);
+    }
+
     /** 获取要扫描的基础包路径 */
     private List<String> getBasePackages(AnnotationMetadata importingClassMetadata, AnnotationAttributes attributes) {
 
@@ -105,11 +162,31 @@ public class DataRepositoryRegistrar implements ImportBeanDefinitionRegistrar {
         return basePackages;
     }
 
-    /** 扫描并注册 Repository 接口 */
+    /**
+     * 扫描并注册 Repository 接口，组件索引中有条目的基础包直接读取索引，其余基础包扫描类路径
+     *
+     * <p>
+     * 只通过ASM读取类的元数据，注册Bean定义时不加载Repository接口。
+     */
     private void scanAndRegisterRepositories(BeanDefinitionRegistry registry) throws Exception {
         MetadataReaderFactory readerFactory = new CachingMetadataReaderFactory(resourcePatternResolver);
 
+        DataComponentsIndex index = DataComponentsIndex.load(resourcePatternResolver.getClassLoader());
         for (String basePackage : basePackages) {
+            if (index != null && index.hasCandidates(basePackage)) {
+                for (String className : index.getCandidateTypes(basePackage, DataComponentsIndex.REPOSITORY)) {
+                    try {
+                        MetadataReader reader = readerFactory.getMetadataReader(className);
+                        if (isRepositoryInterface(reader)) {
+                            registerRepositoryBean(registry, reader);
+                        }
+                    } catch (Exception e) {
+                        log.warn("Failed to read indexed repository: {}", className, e);
+                    }
+                }
+                continue;
+            }
+
             String pattern = ResourcePatternResolver.CLASSPATH_ALL_URL_PREFIX
                     + ClassUtils.convertClassNameToResourcePath(basePackage) + RESOURCE_PATTERN;
 
@@ -120,7 +197,7 @@ public class DataRepositoryRegistrar implements ImportBeanDefinitionRegistrar {
                     try {
                         MetadataReader reader = readerFactory.getMetadataReader(resource);
                         if (isRepositoryInterface(reader)) {
-                            registerRepositoryBean(registry, reader.getClassMetadata().getClassName());
+                            registerRepositoryBean(registry, reader);
                         }
                     } catch (Exception e) {
                         log.warn("Failed to read resource: {}", resource, e);
@@ -148,55 +225,74 @@ public class DataRepositoryRegistrar implements ImportBeanDefinitionRegistrar {
         }
     }
 
-    /** 注册 Repository Bean 定义 */
-    private void registerRepositoryBean(BeanDefinitionRegistry registry, String className) {
+    /**
+     * 注册 Repository Bean 定义
+     *
+     * <p>
+     * Bean定义只携带接口的类名，由Spring在创建工厂Bean时加载；延迟模式下Bean定义同时标记为延迟初始化。
+     */
+    private void registerRepositoryBean(BeanDefinitionRegistry registry, MetadataReader reader) {
+        String className = reader.getClassMetadata().getClassName();
         try {
-            Class<?> repositoryInterface = Class.forName(className);
-
             // 获取Repository注解的provider属性值
-            String provider = getRepositoryProvider(repositoryInterface);
+            String provider = getRepositoryAttribute(reader, "provider");
+            // Repository注解的dataStore属性指定SessionFactory的Bean名称，优先于全局配置
+            String dataStore = getRepositoryAttribute(reader, "dataStore");
+            String sessionFactory = StringUtils.hasText(dataStore) ? dataStore : sessionFactoryRef;
 
             BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(DataRepositoryFactoryBean.class)
-                    .setRole(BeanDefinition.ROLE_INFRASTRUCTURE).addConstructorArgValue(repositoryInterface);
+                    .setRole(BeanDefinition.ROLE_INFRASTRUCTURE).addConstructorArgValue(className)
+                    .addPropertyValue("proxyMode", proxyMode).addPropertyValue("lazy", lazy).setLazyInit(lazy);
 
             // 如果provider不为空，添加到bean definition中
             if (StringUtils.hasText(provider)) {
                 builder.addPropertyValue("provider", provider);
             }
+            if (StringUtils.hasText(sessionFactory)) {
+                builder.addPropertyValue("sessionFactoryRef", sessionFactory);
+            }
+            if (StringUtils.hasText(dataSourceRef)) {
+                builder.addPropertyValue("dataSourceRef", dataSourceRef);
+            }
+            if (lazyConnection) {
+                builder.addPropertyValue("lazyConnection", true);
+            }
 
             AbstractBeanDefinition beanDefinition = builder.getBeanDefinition();
+            beanDefinition.setAttribute(BASE_PACKAGES_ATTRIBUTE, StringUtils.toStringArray(basePackages));
+            if (entityPackages.length > 0) {
+                beanDefinition.setAttribute(ENTITY_PACKAGES_ATTRIBUTE, entityPackages);
+            }
 
-            String beanName = generateBeanName(repositoryInterface);
+            String beanName = generateBeanName(className);
             if (registry.containsBeanDefinition(beanName)) {
                 return;
             }
 
             registry.registerBeanDefinition(beanName, beanDefinition);
 
-            log.debug("Registered Repository bean: {} -> {} with provider: {}", beanName, className, provider);
+            log.debug("Registered Repository bean: {} -> {} with provider: {}, proxy mode: {}, lazy: {}", beanName,
+                    className, provider, proxyMode, lazy);
 
         } catch (Exception e) {
             log.error("Failed to register Repository bean for class: {}", className, e);
         }
     }
 
-    /** 获取Repository注解的provider属性值 */
-    private String getRepositoryProvider(Class<?> repositoryInterface) {
-        try {
-            Repository repositoryAnnotation = repositoryInterface.getAnnotation(Repository.class);
-            if (repositoryAnnotation != null) {
-                return repositoryAnnotation.provider();
-            }
-        } catch (Exception e) {
-            log.debug("Failed to get provider from Repository annotation for class: {}", repositoryInterface.getName(),
-                    e);
+    /** 获取Repository注解的字符串属性值 */
+    private String getRepositoryAttribute(MetadataReader reader, String attributeName) {
+        Map<String, Object> attributes = reader.getAnnotationMetadata()
+                .getAnnotationAttributes(Repository.class.getName());
+        if (attributes != null && attributes.get(attributeName) instanceof String value) {
+            return value;
         }
         return "";
     }
 
     /** 生成 Bean 名称 */
-    private String generateBeanName(Class<?> repositoryInterface) {
-        String simpleName = repositoryInterface.getSimpleName();
+    private String generateBeanName(String className) {
+        String shortName = ClassUtils.getShortName(className);
+        String simpleName = shortName.substring(shortName.lastIndexOf('.') + 1);
         return Character.toLowerCase(simpleName.charAt(0)) + simpleName.substring(1);
     }
 }
@@ -0,0 +1,60 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import jakarta.data.repository.Delete;
+import jakarta.data.repository.Insert;
+import jakarta.data.repository.Query;
+import jakarta.data.repository.Save;
+import jakarta.data.repository.Update;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+
+/**
+ * Repository方法的判定工具
+ *
+ * @author luckygc
+ */
+public final class RepositoryMethodUtil {
+
+    private RepositoryMethodUtil() {
+        // Prevent Instantiation
+    }
+
+    /**
+     * 是否为生命周期写方法或更新类 {@code @Query} 方法
+     *
+     * @param method
+     *            Repository接口方法
+     * @return 标注了 {@code @Insert}、{@code @Update}、{@code @Delete}、{@code @Save}，
+     *         或 {@code @Query} 为update、delete、insert语句时为true
+     */
+    public static boolean isWrite(Method method) {
+        if (method.isAnnotationPresent(Insert.class) || method.isAnnotationPresent(Update.class)
+                || method.isAnnotationPresent(Delete.class) || method.isAnnotationPresent(Save.class)) {
+            return true;
+        }
+        Query query = method.getAnnotation(Query.class);
+        if (query == null) {
+            return false;
+        }
+        String ql = query.value().strip().toLowerCase(Locale.ROOT);
+        return ql.startsWith("update") || ql.startsWith("delete") || ql.startsWith("insert");
+    }
+}
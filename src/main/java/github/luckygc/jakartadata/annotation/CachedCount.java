@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存分页查询的总数
+ *
+ * <p>
+ * 用于返回 {@link jakarta.data.page.Page} 的偏移分页查询方法。以除 {@link jakarta.data.page.PageRequest} 及排序参数外的方法参数为键缓存总数，
+ * 命中时以 {@link jakarta.data.page.PageRequest#withoutTotal()} 执行查询，只查询当前页，不再执行count查询。
+ * 当前页不满一页时总数可以直接算出，并用于刷新缓存；当前页与缓存的总数矛盾时重新执行count查询。
+ * 调用方传入不要求总数的 {@code PageRequest} 时本来就不执行count查询，也不读写缓存。
+ *
+ * <p>
+ * 同一Repository的 {@code @Insert}、{@code @Update}、{@code @Delete}、{@code @Save} 方法以及更新类 {@code @Query}
+ * 方法执行后清空该Repository的全部总数缓存。其他途径的写入在存活时间内不可见，缓存的总数可能偏离实际值。 非只读事务中的调用绕过缓存。
+ *
+ * @author luckygc
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CachedCount {
+
+    /**
+     * 缓存总数的存活时间，小于等于0表示不过期
+     *
+     * @return 存活时间
+     */
+    long ttl() default 60;
+
+    /**
+     * 存活时间的单位
+     *
+     * @return 时间单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 最大缓存条目数，超出时淘汰最久未访问的条目
+     *
+     * @return 最大条目数
+     */
+    int maxEntries() default 1024;
+}
@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 缓存Repository查询方法的结果
+ *
+ * <p>
+ * 以方法参数为键在进程内缓存返回值，命中时不打开StatelessSession，也不获取JDBC连接。 同一Repository的 {@code @Insert}、{@code @Update}、
+ * {@code @Delete}、{@code @Save} 方法以及更新类 {@code @Query} 方法执行后清空该Repository的全部结果缓存。
+ *
+ * <p>
+ * 缓存的对象由所有调用方共享，调用方不应修改。非只读事务中的调用绕过缓存，以免读到或缓存未提交的数据。 不能用于返回
+ * {@link java.util.stream.Stream} 或没有返回值的方法。
+ *
+ * @author luckygc
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface CachedResult {
+
+    /**
+     * 缓存条目的存活时间，小于等于0表示不过期
+     *
+     * @return 存活时间
+     */
+    long ttl() default 60;
+
+    /**
+     * 存活时间的单位
+     *
+     * @return 时间单位
+     */
+    TimeUnit timeUnit() default TimeUnit.SECONDS;
+
+    /**
+     * 最大缓存条目数，超出时淘汰最久未访问的条目
+     *
+     * @return 最大条目数
+     */
+    int maxEntries() default 1024;
+}
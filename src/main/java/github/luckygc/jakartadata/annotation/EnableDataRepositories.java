@@ -39,4 +39,49 @@ public @interface EnableDataRepositories {
 
     /** 要扫描的基础包路径 */
     String[] basePackages() default {};
+
+    /**
+     * 实体类所在的包路径，仅用于AOT处理时为实体类注册反射提示
+     *
+     * <p>
+     * 为空时使用容器中 {@link github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean} Bean定义的packagesToScan，
+     * 二者都无法确定时使用 {@link #basePackages()}。通过 {@code @Bean} 方法创建SessionFactory且实体与Repository不在同一包下时需要指定。
+     */
+    String[] entityPackages() default {};
+
+    /** Repository 代理实现方式，默认使用JDK动态代理 */
+    ProxyMode proxyMode() default ProxyMode.JDK;
+
+    /**
+     * 是否延迟初始化Repository
+     *
+     * <p>
+     * 为true时Repository Bean标记为延迟初始化，代理在首次调用时才解析SessionFactory、DataSource及Hibernate生成的实现类，
+     * 未被使用的Repository不会触发这些工作。延迟模式下始终使用JDK动态代理。
+     */
+    boolean lazy() default false;
+
+    /**
+     * Repository使用的 {@link org.hibernate.SessionFactory} Bean名称
+     *
+     * <p>
+     * 为空时按类型获取容器中唯一的SessionFactory。单个Repository可以通过 {@link jakarta.data.repository.Repository#dataStore()} 覆盖。
+     */
+    String sessionFactoryRef() default "";
+
+    /**
+     * Repository使用的 {@link javax.sql.DataSource} Bean名称，为空时按类型获取容器中唯一的DataSource
+     */
+    String dataSourceRef() default "";
+
+    /**
+     * 是否延迟获取事务性Session的JDBC连接
+     *
+     * <p>
+     * 为true时事务中新建的StatelessSession持有连接代理，执行第一条语句时才获取物理连接，没有执行SQL的事务不会占用连接池。
+     * 使用 {@link org.springframework.jdbc.datasource.DataSourceTransactionManager} 时事务开始即获取连接，
+     * 需要同时将数据源包装为 {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}。
+     * 注册 {@link github.luckygc.jakartadata.metrics.RepositoryMetrics} 可以统计未使用连接的事务数。
+     */
+    boolean lazyConnection() default false;
 }
@@ -0,0 +1,50 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 配置Repository集合写方法的JDBC批量大小
+ *
+ * <p>
+ * 作用于参数为 {@link java.util.List} 或数组的 {@code @Insert}、{@code @Update}、{@code @Delete}、{@code @Save} 方法。 集合按
+ * {@link #size()} 分段执行，每段作为一个JDBC批次发送，段尾即为批次的刷新边界。 可标注在Repository接口上作为该接口的默认值，方法上的配置优先；均未配置时使用
+ * {@link github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean#setJdbcBatchSize(int)} 的全局配置。
+ *
+ * <p>
+ * {@code @Save} 方法批量发送方言原生的upsert语句；方言没有原生upsert时，每段按主键查出已存在的实体后分别批量更新和插入。
+ *
+ * @author luckygc
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface JdbcBatch {
+
+    /**
+     * 每个JDBC批次包含的语句数，小于等于0表示不分段，整个集合作为一个批次发送
+     *
+     * @return 批量大小
+     */
+    int size();
+}
@@ -0,0 +1,37 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.annotation;
+
+/**
+ * Repository 代理实现方式
+ *
+ * @author luckygc
+ */
+public enum ProxyMode {
+
+    /** 使用JDK动态代理 {@link java.lang.reflect.Proxy}，默认方式 */
+    JDK,
+
+    /**
+     * 启动时为每个Repository接口生成隐藏类，直接调用Hibernate生成的实现类方法， 没有参数数组和 {@link java.lang.reflect.Method} 分派。
+     *
+     * <p>
+     * 当Repository接口或实现类对当前类加载器不可见或不可访问时，回退为 {@link #JDK}。
+     */
+    HIDDEN_CLASS
+}
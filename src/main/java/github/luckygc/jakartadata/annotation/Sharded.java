@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 声明分片Repository
+ *
+ * <p>
+ * 分片Repository的每次调用由 {@link github.luckygc.jakartadata.routing.ShardRouter} 确定执行的分片：
+ * <ul>
+ * <li>方法参数标注了 {@link ShardKey} 时，在该参数值对应的分片上执行</li>
+ * <li>{@code @Insert}、{@code @Update}、{@code @Save} 及以实体为参数的 {@code @Delete} 方法，按实体中标注了 {@link ShardKey}
+ * 的字段确定分片，实体集合按分片拆分后分别执行</li>
+ * <li>其余方法在所有分片上并行执行并合并结果：集合、数组及 {@link java.util.stream.Stream} 依次拼接，{@link java.util.Optional}
+ * 、单个实体及其他单值结果取第一个存在的结果，计数与更新行数求和，布尔值取或</li>
+ * </ul>
+ * 分页、排序（{@code @OrderBy}、{@code Order}、{@code Sort} 或查询中的order by）、限制条数的方法以及计数以外的聚合查询无法跨分片合并，
+ * 缺少分片键时抛出 {@link UnsupportedOperationException}。 多分片的 {@link java.util.stream.Stream} 结果在合并前全部读入内存。
+ * 事务或 {@link RepositorySession} 作用域内的多分片调用在当前线程依次执行，以使用线程绑定的Session。
+ *
+ * @author luckygc
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Sharded {
+
+    /**
+     * {@link github.luckygc.jakartadata.routing.ShardRouter} 的Bean名称，为空时按类型获取容器中唯一的ShardRouter
+     *
+     * @return Bean名称
+     */
+    String value() default "";
+}
@@ -0,0 +1,54 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 启动时预热的Repository读方法
+ *
+ * <p>
+ * 容器中注册了 {@link github.luckygc.jakartadata.warmup.RepositoryWarmUpRunner} 时，在容器完成刷新前以 {@link #args()}
+ * 为参数反复调用该方法，使代理调用路径、Hibernate生成的实现类及连接池在接收流量前完成预热。 参数按方法的参数类型由Spring类型转换服务从字符串转换，需要复杂参数时使用
+ * {@link github.luckygc.jakartadata.warmup.RepositoryWarmUpCallback}。 只能用于读方法，标注了 {@code @CachedResult} 的方法预热时会命中结果缓存。
+ *
+ * @author luckygc
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface WarmUp {
+
+    /**
+     * 调用参数，个数必须与方法参数个数相同
+     *
+     * @return 参数的字符串形式
+     */
+    String[] args() default {};
+
+    /**
+     * 调用次数，小于0时使用预热执行器的默认次数
+     *
+     * @return 调用次数
+     */
+    int iterations() default -1;
+}
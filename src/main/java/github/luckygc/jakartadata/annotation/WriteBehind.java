@@ -0,0 +1,79 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.annotation;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Repository插入的异步写后缓冲
+ *
+ * <p>
+ * 标注在Repository接口上，作用于没有返回值且只有一个实体、{@link java.util.List} 或数组参数的 {@code @Insert} 方法。
+ * 调用时实体放入有界的无锁队列后立即返回，由该Repository的写线程取出后在一个本地事务中以JDBC批处理写入：
+ * 积累到 {@link #batchSize()} 个实体或距上次写入超过 {@link #flushInterval()} 时写入一批。 队列满时调用方等待，直到写线程腾出空间。
+ *
+ * <p>
+ * 事务或 {@link github.luckygc.jakartadata.provider.hibernate.RepositorySessionScope} 内的调用、有返回值的插入方法以及超过队列容量的集合仍同步执行。
+ * 写入失败的实体交给容器中的 {@link github.luckygc.jakartadata.async.WriteBehindFailureHandler}，未注册时记录错误日志。
+ * SessionFactory开始关闭时写入队列中剩余的实体，之后的调用同步执行。 无论容器中注册的是
+ * {@link github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean} 还是其 {@code getObject()} 返回的SessionFactory，
+ * 容器关闭时都会关闭SessionFactory；自行创建SessionFactory时需要在停止应用前调用 {@link org.hibernate.SessionFactory#close()}，否则队列中的实体丢失。
+ *
+ * <p>
+ * 调用返回时数据尚未写入，之后的查询可能读不到，写入失败也不会抛给调用方。 自增主键的实体插入时需要逐行取回主键，Hibernate不对其使用JDBC批处理。
+ *
+ * @author luckygc
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface WriteBehind {
+
+    /**
+     * 队列容量，即已提交但尚未写入完成的最大实体数
+     *
+     * @return 队列容量
+     */
+    int capacity() default 10000;
+
+    /**
+     * 每批写入的最大实体数
+     *
+     * @return 批量大小
+     */
+    int batchSize() default 500;
+
+    /**
+     * 未满一批的实体在队列中等待的最长时间
+     *
+     * @return 刷新间隔
+     */
+    long flushInterval() default 100;
+
+    /**
+     * 刷新间隔的单位
+     *
+     * @return 时间单位
+     */
+    TimeUnit timeUnit() default TimeUnit.MILLISECONDS;
+}
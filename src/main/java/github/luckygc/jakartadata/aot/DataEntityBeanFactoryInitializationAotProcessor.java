@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.aot;
+
+import github.luckygc.jakartadata.DataRepositoryRegistrar;
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.index.DataComponentsIndex;
+import github.luckygc.jakartadata.provider.hibernate.HibernateScanner;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotContribution;
+import org.springframework.beans.factory.aot.BeanFactoryInitializationAotProcessor;
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.util.StringUtils;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 实体类的AOT处理器
+ *
+ * <p>
+ * 按以下顺序确定实体类所在的包路径：Repository Bean定义上记录的 {@link EnableDataRepositories#entityPackages()}，
+ * 容器中 {@link SessionFactoryBean} Bean定义的packagesToScan，最后是Repository的扫描基础包路径。
+ * 通过 {@link HibernateScanner} 查找其中的实体类、映射超类及属性转换器，
+ * 为它们及对应的静态元模型类注册反射提示，并注册 {@link DataComponentsIndex} 索引文件的资源提示，使原生镜像中的实体扫描可以读取索引。
+ *
+ * @author luckygc
+ */
+class DataEntityBeanFactoryInitializationAotProcessor implements BeanFactoryInitializationAotProcessor {
+
+    /** 实体类需要的反射访问：Hibernate通过字段或属性访问实体状态，并通过无参构造函数实例化实体 */
+    private static final MemberCategory[] ENTITY_MEMBER_CATEGORIES = {MemberCategory.DECLARED_FIELDS,
+            MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS};
+
+    @Override
+    public @Nullable BeanFactoryInitializationAotContribution processAheadOfTime(
+            ConfigurableListableBeanFactory beanFactory) {
+        Set<String> basePackages = new LinkedHashSet<>();
+        Set<String> entityPackages = new LinkedHashSet<>();
+        Set<String> packagesToScan = new LinkedHashSet<>();
+        for (String beanName : beanFactory.getBeanDefinitionNames()) {
+            BeanDefinition beanDefinition = beanFactory.getBeanDefinition(beanName);
+            if (beanDefinition.getAttribute(DataRepositoryRegistrar.BASE_PACKAGES_ATTRIBUTE)
+                    instanceof String[] packages) {
+                basePackages.addAll(Arrays.asList(packages));
+            }
+            if (beanDefinition.getAttribute(DataRepositoryRegistrar.ENTITY_PACKAGES_ATTRIBUTE)
+                    instanceof String[] packages) {
+                entityPackages.addAll(Arrays.asList(packages));
+            }
+            if (SessionFactoryBean.class.getName().equals(beanDefinition.getBeanClassName())) {
+                packagesToScan.addAll(getPackagesToScan(beanDefinition));
+            }
+        }
+        if (basePackages.isEmpty()) {
+            return null;
+        }
+        if (entityPackages.isEmpty()) {
+            entityPackages = packagesToScan.isEmpty() ? basePackages : packagesToScan;
+        }
+
+        Set<String> managedClassNames = HibernateScanner
+                .findManagedClassNames(StringUtils.toStringArray(entityPackages));
+        ClassLoader classLoader = beanFactory.getBeanClassLoader();
+        return (generationContext, beanFactoryInitializationCode) -> {
+            RuntimeHints hints = generationContext.getRuntimeHints();
+            hints.resources().registerPattern(DataComponentsIndex.INDEX_LOCATION);
+            for (String className : managedClassNames) {
+                hints.reflection().registerType(TypeReference.of(className), ENTITY_MEMBER_CATEGORIES);
+                // Hibernate启动时反射填充静态元模型类的字段
+                hints.reflection().registerTypeIfPresent(classLoader, className + "_", MemberCategory.DECLARED_FIELDS);
+            }
+        };
+    }
+
+    /** 读取SessionFactoryBean Bean定义中以数组或逗号分隔字符串配置的packagesToScan */
+    private static Set<String> getPackagesToScan(BeanDefinition beanDefinition) {
+        PropertyValue propertyValue = beanDefinition.getPropertyValues().getPropertyValue("packagesToScan");
+        Object value = propertyValue != null ? propertyValue.getValue() : null;
+        if (value instanceof TypedStringValue typedStringValue) {
+            value = typedStringValue.getValue();
+        }
+        if (value instanceof String[] packages) {
+            return new LinkedHashSet<>(Arrays.asList(packages));
+        }
+        if (value instanceof String packages) {
+            return StringUtils.commaDelimitedListToSet(StringUtils.trimAllWhitespace(packages));
+        }
+        return Set.of();
+    }
+}
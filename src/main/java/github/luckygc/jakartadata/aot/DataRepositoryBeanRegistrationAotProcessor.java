@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.aot;
+
+import github.luckygc.jakartadata.DataRepositoryFactoryBean;
+
+import org.hibernate.StatelessSession;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.aot.generate.GenerationContext;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.beans.factory.aot.BeanRegistrationAotContribution;
+import org.springframework.beans.factory.aot.BeanRegistrationAotProcessor;
+import org.springframework.beans.factory.aot.BeanRegistrationCode;
+import org.springframework.beans.factory.aot.BeanRegistrationCodeFragments;
+import org.springframework.beans.factory.aot.BeanRegistrationCodeFragmentsDecorator;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
+import org.springframework.beans.factory.support.RegisteredBean;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.core.ResolvableType;
+import org.springframework.javapoet.CodeBlock;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Modifier;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Repository Bean定义的AOT处理器
+ *
+ * <p>
+ * 对 {@link DataRepositoryFactoryBean} 的Bean定义：
+ * <ul>
+ * <li>生成的Bean定义带有泛型目标类型，运行期无需实例化工厂Bean即可按Repository接口类型匹配</li>
+ * <li>生成的Bean定义以Hibernate生成实现类的构造函数引用设置 {@code implementationFactory}，运行期不再使用LambdaMetafactory</li>
+ * <li>注册Repository接口的JDK代理提示，以及接口与实现类的反射提示</li>
+ * </ul>
+ *
+ * @author luckygc
+ */
+class DataRepositoryBeanRegistrationAotProcessor implements BeanRegistrationAotProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(DataRepositoryBeanRegistrationAotProcessor.class);
+
+    @Override
+    public @Nullable BeanRegistrationAotContribution processAheadOfTime(RegisteredBean registeredBean) {
+        if (!DataRepositoryFactoryBean.class.isAssignableFrom(registeredBean.getBeanClass())) {
+            return null;
+        }
+
+        ClassLoader classLoader = registeredBean.getBeanFactory().getBeanClassLoader();
+        Class<?> repositoryInterface = resolveRepositoryInterface(registeredBean.getMergedBeanDefinition(),
+                classLoader);
+        if (repositoryInterface == null) {
+            log.debug("无法确定Bean '{}' 的Repository接口，跳过AOT处理", registeredBean.getBeanName());
+            return null;
+        }
+
+        return new RepositoryRegistrationContribution(repositoryInterface,
+                resolveImplementationClass(repositoryInterface, classLoader));
+    }
+
+    /** 从工厂Bean的构造参数中解析Repository接口，参数可以是类名或Class */
+    private @Nullable Class<?> resolveRepositoryInterface(RootBeanDefinition beanDefinition,
+            @Nullable ClassLoader classLoader) {
+        ValueHolder valueHolder = beanDefinition.getConstructorArgumentValues().getIndexedArgumentValue(0, null);
+        if (valueHolder == null) {
+            return null;
+        }
+
+        Object value = valueHolder.getValue();
+        if (value instanceof Class<?> type) {
+            return type;
+        }
+        if (value instanceof String className && ClassUtils.isPresent(className, classLoader)) {
+            return ClassUtils.resolveClassName(className, classLoader);
+        }
+        return null;
+    }
+
+    /** 解析Hibernate生成的实现类，只有存在公开的 (StatelessSession) 构造函数时才能在生成代码中引用 */
+    private @Nullable Class<?> resolveImplementationClass(Class<?> repositoryInterface,
+            @Nullable ClassLoader classLoader) {
+        String implementationClassName = repositoryInterface.getName() + "_";
+        if (!ClassUtils.isPresent(implementationClassName, classLoader)) {
+            return null;
+        }
+
+        Class<?> implementationClass = ClassUtils.resolveClassName(implementationClassName, classLoader);
+        if (!Modifier.isPublic(implementationClass.getModifiers())
+                || !repositoryInterface.isAssignableFrom(implementationClass)
+                || !ClassUtils.hasConstructor(implementationClass, StatelessSession.class)) {
+            return null;
+        }
+        return implementationClass;
+    }
+
+    /** 单个Repository Bean的AOT贡献 */
+    private static final class RepositoryRegistrationContribution implements BeanRegistrationAotContribution {
+
+        private final Class<?> repositoryInterface;
+
+        @Nullable
+        private final Class<?> implementationClass;
+
+        RepositoryRegistrationContribution(Class<?> repositoryInterface, @Nullable Class<?> implementationClass) {
+            this.repositoryInterface = repositoryInterface;
+            this.implementationClass = implementationClass;
+        }
+
+        @Override
+        public BeanRegistrationCodeFragments customizeBeanRegistrationCodeFragments(
+                GenerationContext generationContext, BeanRegistrationCodeFragments codeFragments) {
+            return new BeanRegistrationCodeFragmentsDecorator(codeFragments) {
+
+                @Override
+                public CodeBlock generateNewBeanDefinitionCode(GenerationContext generationContext,
+                        ResolvableType beanType, BeanRegistrationCode beanRegistrationCode) {
+                    return super.generateNewBeanDefinitionCode(generationContext,
+                            ResolvableType.forClassWithGenerics(DataRepositoryFactoryBean.class, repositoryInterface),
+                            beanRegistrationCode);
+                }
+
+                @Override
+                public CodeBlock generateSetBeanDefinitionPropertiesCode(GenerationContext generationContext,
+                        BeanRegistrationCode beanRegistrationCode, RootBeanDefinition beanDefinition,
+                        Predicate<String> attributeFilter) {
+                    CodeBlock code = super.generateSetBeanDefinitionPropertiesCode(generationContext,
+                            beanRegistrationCode, beanDefinition, attributeFilter);
+                    if (implementationClass == null) {
+                        return code;
+                    }
+
+                    return CodeBlock.builder().add(code)
+                            .addStatement("$L.getPropertyValues().addPropertyValue($S, ($T<$T, $T>) $T::new)",
+                                    BEAN_DEFINITION_VARIABLE, "implementationFactory", Function.class,
+                                    StatelessSession.class, repositoryInterface, implementationClass)
+                            .build();
+                }
+            };
+        }
+
+        @Override
+        public void applyTo(GenerationContext generationContext, BeanRegistrationCode beanRegistrationCode) {
+            RuntimeHints hints = generationContext.getRuntimeHints();
+            hints.proxies().registerJdkProxy(repositoryInterface);
+
+            // 方法调用表通过反射解析接口方法及实现方法
+            for (Class<?> declaringInterface : ClassUtils.getAllInterfacesForClassAsSet(repositoryInterface)) {
+                hints.reflection().registerType(declaringInterface, MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+            if (implementationClass != null) {
+                hints.reflection().registerType(implementationClass, MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS,
+                        MemberCategory.INVOKE_PUBLIC_METHODS);
+            }
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.async;
+
+import org.jspecify.annotations.NonNull;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+import javax.sql.DataSource;
+
+/**
+ * 异步Repository方法的执行器
+ *
+ * <p>
+ * 返回 {@link java.util.concurrent.CompletionStage} 的Repository默认方法在该执行器上执行。 同时执行的调用数不超过
+ * {@link #getMaxConcurrency()}，超出的调用在执行线程上等待许可，不会占用连接池中的连接。默认在虚拟线程上执行， 运行环境不支持虚拟线程时使用与并发上限等大的守护线程池。
+ *
+ * <p>
+ * 容器中注册该Bean时所有Repository共用；未注册时按数据源共享一个执行器，并发上限为连接池的最大连接数。
+ *
+ * @author luckygc
+ */
+public class RepositoryExecutor implements Executor {
+
+    /** 无法识别连接池大小时使用的并发上限 */
+    public static final int DEFAULT_MAX_CONCURRENCY = 10;
+
+    private static final Logger log = LoggerFactory.getLogger(RepositoryExecutor.class);
+
+    /** 常见连接池返回最大连接数的方法：HikariCP、H2、DBCP2、Tomcat JDBC */
+    private static final String[] POOL_SIZE_METHODS = {"getMaximumPoolSize", "getMaxConnections", "getMaxTotal",
+            "getMaxActive"};
+
+    private static final Map<DataSource, RepositoryExecutor> sharedExecutors = new ConcurrentReferenceHashMap<>();
+
+    private final Executor delegate;
+
+    private final int maxConcurrency;
+
+    private final Semaphore permits;
+
+    /**
+     * 构造函数，使用虚拟线程或守护线程池执行
+     *
+     * @param maxConcurrency
+     *            最大并发调用数
+     */
+    public RepositoryExecutor(int maxConcurrency) {
+        this(createDefaultExecutor(maxConcurrency), maxConcurrency);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param delegate
+     *            实际执行调用的执行器
+     * @param maxConcurrency
+     *            最大并发调用数
+     */
+    public RepositoryExecutor(@NonNull Executor delegate, int maxConcurrency) {
+        Assert.notNull(delegate, "delegate must not be null");
+        Assert.isTrue(maxConcurrency > 0, "maxConcurrency must be greater than 0");
+        this.delegate = delegate;
+        this.maxConcurrency = maxConcurrency;
+        this.permits = new Semaphore(maxConcurrency);
+    }
+
+    /**
+     * 获取数据源共享的执行器，并发上限为连接池的最大连接数
+     *
+     * @param dataSource
+     *            数据源
+     * @return 执行器
+     */
+    public static RepositoryExecutor forDataSource(@NonNull DataSource dataSource) {
+        return sharedExecutors.computeIfAbsent(dataSource,
+                key -> new RepositoryExecutor(determineMaxConcurrency(key)));
+    }
+
+    /**
+     * 识别连接池的最大连接数
+     *
+     * <p>
+     * 支持HikariCP、H2、DBCP2及Tomcat JDBC连接池，以及包装它们的 {@link DelegatingDataSource}；无法识别时返回 {@link #DEFAULT_MAX_CONCURRENCY}。
+     *
+     * @param dataSource
+     *            数据源
+     * @return 最大连接数
+     */
+    public static int determineMaxConcurrency(@NonNull DataSource dataSource) {
+        DataSource target = dataSource;
+        while (target instanceof DelegatingDataSource delegating && delegating.getTargetDataSource() != null) {
+            target = delegating.getTargetDataSource();
+        }
+
+        for (String methodName : POOL_SIZE_METHODS) {
+            Method method = ReflectionUtils.findMethod(target.getClass(), methodName);
+            if (method != null && (method.getReturnType() == int.class || method.getReturnType() == Integer.class)) {
+                Object size = ReflectionUtils.invokeMethod(method, target);
+                if (size instanceof Integer poolSize && poolSize > 0) {
+                    return poolSize;
+                }
+            }
+        }
+
+        log.debug("无法识别数据源 '{}' 的连接池大小，异步Repository方法的并发上限使用默认值 {}", target.getClass().getName(),
+                DEFAULT_MAX_CONCURRENCY);
+        return DEFAULT_MAX_CONCURRENCY;
+    }
+
+    private static Executor createDefaultExecutor(int maxConcurrency) {
+        try {
+            return new VirtualThreadTaskExecutor("repository-async-");
+        } catch (UnsupportedOperationException ex) {
+            CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("repository-async-");
+            threadFactory.setDaemon(true);
+            return Executors.newFixedThreadPool(maxConcurrency, threadFactory);
+        }
+    }
+
+    @Override
+    public void execute(@NonNull Runnable task) {
+        delegate.execute(() -> {
+            permits.acquireUninterruptibly();
+            try {
+                task.run();
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /** 最大并发调用数 */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /** 正在执行的调用数 */
+    public int getActiveCount() {
+        return maxConcurrency - permits.availablePermits();
+    }
+
+    @Override
+    public String toString() {
+        return "RepositoryExecutor[maxConcurrency=" + maxConcurrency + "]";
+    }
+}
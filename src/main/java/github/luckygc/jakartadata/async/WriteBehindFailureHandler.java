@@ -0,0 +1,45 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.async;
+
+import java.util.List;
+
+/**
+ * 写后缓冲的写入失败回调
+ *
+ * <p>
+ * 注册为Spring Bean后，{@link github.luckygc.jakartadata.annotation.WriteBehind} Repository的一批实体写入失败并回滚时，
+ * 在写线程上以该批全部实体调用。回调应尽快返回，例如记录到死信表或重新提交，回调执行期间写线程不处理队列。
+ *
+ * @author luckygc
+ */
+@FunctionalInterface
+public interface WriteBehindFailureHandler {
+
+    /**
+     * 一批实体写入失败
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param entities
+     *            未写入的实体
+     * @param cause
+     *            写入时抛出的异常
+     */
+    void writeFailed(Class<?> repositoryInterface, List<?> entities, Throwable cause);
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.index;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.SpringProperties;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 构建期生成的Repository与实体索引
+ *
+ * <p>
+ * 由 {@link DataComponentsIndexer} 在编译时写入 {@value #INDEX_LOCATION}，每行格式为 {@code 类名=构造型[,构造型...]}，
+ * 构造型为 {@code @Repository}、{@code @Entity} 等注解的全限定名。Repository注册与实体扫描对索引中有条目的基础包直接读取索引，
+ * 索引中没有任何条目的基础包仍遍历类文件，因此依赖中的索引不会隐藏未运行索引处理器的应用中的组件。
+ *
+ * <p>
+ * 同一基础包下的组件分散在有索引和无索引的模块中时，无索引模块中的组件不会被发现。 此时可以通过系统属性或 {@code spring.properties} 设置
+ * {@value #IGNORE_INDEX_PROPERTY}{@code =true} 忽略索引，始终扫描类路径。
+ *
+ * @author luckygc
+ */
+public final class DataComponentsIndex {
+
+    /** 索引文件位置 */
+    public static final String INDEX_LOCATION = "META-INF/jakarta-data.components";
+
+    /** 忽略索引、始终扫描类路径的开关 */
+    public static final String IGNORE_INDEX_PROPERTY = "jakarta-data.index.ignore";
+
+    /** Repository接口的构造型 */
+    public static final String REPOSITORY = "jakarta.data.repository.Repository";
+
+    /** Hibernate生成的Repository实现类的构造型 */
+    public static final String REPOSITORY_IMPLEMENTATION = "jakarta.data.repository.Repository#implementation";
+
+    /** 实体的构造型 */
+    public static final String ENTITY = "jakarta.persistence.Entity";
+
+    /** 映射超类的构造型 */
+    public static final String MAPPED_SUPERCLASS = "jakarta.persistence.MappedSuperclass";
+
+    /** 属性转换器的构造型 */
+    public static final String CONVERTER = "jakarta.persistence.Converter";
+
+    private static final Logger log = LoggerFactory.getLogger(DataComponentsIndex.class);
+
+    private static final Map<ClassLoader, Optional<DataComponentsIndex>> cache = new ConcurrentReferenceHashMap<>();
+
+    /** 构造型到类名集合的映射 */
+    private final Map<String, Set<String>> stereotypes;
+
+    private DataComponentsIndex(Map<String, Set<String>> stereotypes) {
+        this.stereotypes = stereotypes;
+    }
+
+    /**
+     * 加载类加载器可见的全部索引并合并
+     *
+     * @param classLoader
+     *            类加载器，为null时使用默认类加载器
+     * @return 索引，类路径上没有索引或索引被忽略时返回null
+     */
+    @Nullable
+    public static DataComponentsIndex load(@Nullable ClassLoader classLoader) {
+        if (SpringProperties.getFlag(IGNORE_INDEX_PROPERTY)) {
+            return null;
+        }
+        ClassLoader loader = classLoader != null ? classLoader : DataComponentsIndex.class.getClassLoader();
+        return cache.computeIfAbsent(loader, DataComponentsIndex::doLoad).orElse(null);
+    }
+
+    private static Optional<DataComponentsIndex> doLoad(ClassLoader classLoader) {
+        Map<String, Set<String>> stereotypes = new HashMap<>();
+        int indexCount = 0;
+        try {
+            Enumeration<URL> urls = classLoader.getResources(INDEX_LOCATION);
+            while (urls.hasMoreElements()) {
+                URL url = urls.nextElement();
+                Properties properties = new Properties();
+                try (InputStream in = url.openStream()) {
+                    properties.load(in);
+                }
+                for (String className : properties.stringPropertyNames()) {
+                    for (String stereotype : properties.getProperty(className).split(",")) {
+                        stereotypes.computeIfAbsent(stereotype.strip(), k -> new TreeSet<>()).add(className);
+                    }
+                }
+                indexCount++;
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("读取Jakarta Data组件索引失败: " + INDEX_LOCATION, e);
+        }
+
+        if (indexCount == 0) {
+            return Optional.empty();
+        }
+        log.debug("已加载 {} 个Jakarta Data组件索引", indexCount);
+        return Optional.of(new DataComponentsIndex(stereotypes));
+    }
+
+    /**
+     * 索引中是否有指定包及其子包中的组件
+     *
+     * @param basePackage
+     *            基础包名
+     * @return 有任意构造型的条目时返回true，否则应扫描类路径
+     */
+    public boolean hasCandidates(@NonNull String basePackage) {
+        String prefix = basePackage + ".";
+        for (Set<String> classNames : stereotypes.values()) {
+            for (String className : classNames) {
+                if (basePackage.isEmpty() || className.startsWith(prefix)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 获取指定包及其子包中带有指定构造型的类名
+     *
+     * @param basePackage
+     *            基础包名
+     * @param stereotype
+     *            构造型
+     * @return 按名称排序的类名集合
+     */
+    @NonNull
+    public Set<String> getCandidateTypes(@NonNull String basePackage, @NonNull String stereotype) {
+        Set<String> candidates = stereotypes.getOrDefault(stereotype, Collections.emptySet());
+        if (basePackage.isEmpty()) {
+            return Collections.unmodifiableSet(candidates);
+        }
+        String prefix = basePackage + ".";
+        Set<String> result = new TreeSet<>();
+        for (String className : candidates) {
+            if (className.startsWith(prefix)) {
+                result.add(className);
+            }
+        }
+        return result;
+    }
+}
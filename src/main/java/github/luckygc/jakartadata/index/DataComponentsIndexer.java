@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.index;
+
+import java.io.BufferedWriter;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+/**
+ * 生成 {@link DataComponentsIndex} 的注解处理器
+ *
+ * <p>
+ * 记录编译单元中的 {@code @Repository} 接口、Hibernate生成的 {@code _} 实现类以及 {@code @Entity}、{@code @MappedSuperclass}、
+ * {@code @Converter} 类，在最后一轮写入 {@value DataComponentsIndex#INDEX_LOCATION}。 增量编译时与已有索引合并：
+ * 本次重新处理的类以本次结果为准，已删除的类从索引中移除。
+ * 处理器接收所有编译单元，以便发现去掉了注解的类，但不声明对注解的占有，不影响Hibernate处理器等其他处理器。
+ *
+ * <p>
+ * 通过 {@code META-INF/services} 自动注册；显式配置了 {@code annotationProcessorPaths} 的项目需要将本构件加入处理器路径。
+ *
+ * @author luckygc
+ */
+@SupportedAnnotationTypes("*")
+public class DataComponentsIndexer extends AbstractProcessor {
+
+    private static final Set<String> STEREOTYPES = Set.of(DataComponentsIndex.REPOSITORY, DataComponentsIndex.ENTITY,
+            DataComponentsIndex.MAPPED_SUPERCLASS, DataComponentsIndex.CONVERTER);
+
+    /** 类名到构造型集合的映射 */
+    private final Map<String, Set<String>> components = new TreeMap<>();
+
+    /** 已有索引中类名到构造型集合的映射 */
+    private final Map<String, Set<String>> previousComponents = new TreeMap<>();
+
+    /** 本次编译处理过的类名 */
+    private final Set<String> processedTypes = new HashSet<>();
+
+    /** 是否读取到已有索引 */
+    private boolean previousIndexFound;
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public synchronized void init(ProcessingEnvironment processingEnv) {
+        super.init(processingEnv);
+        readExistingIndex();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getRootElements()) {
+            collect(element);
+        }
+        if (roundEnv.processingOver()) {
+            writeIndex();
+        }
+        return false;
+    }
+
+    private void collect(Element element) {
+        if (!(element instanceof TypeElement typeElement)) {
+            return;
+        }
+
+        String className = processingEnv.getElementUtils().getBinaryName(typeElement).toString();
+        processedTypes.add(className);
+        for (AnnotationMirror annotation : typeElement.getAnnotationMirrors()) {
+            String annotationName = annotationName(annotation.getAnnotationType());
+            if (STEREOTYPES.contains(annotationName)) {
+                components.computeIfAbsent(className, k -> new TreeSet<>()).add(annotationName);
+            }
+        }
+        if (typeElement.getKind() == ElementKind.CLASS && isRepositoryImplementation(typeElement)) {
+            components.computeIfAbsent(className, k -> new TreeSet<>())
+                    .add(DataComponentsIndex.REPOSITORY_IMPLEMENTATION);
+        }
+
+        for (Element enclosed : typeElement.getEnclosedElements()) {
+            collect(enclosed);
+        }
+    }
+
+    /** 是否为Hibernate为Repository接口生成的 {@code 接口名_} 实现类 */
+    private boolean isRepositoryImplementation(TypeElement typeElement) {
+        for (TypeMirror interfaceType : typeElement.getInterfaces()) {
+            if (interfaceType instanceof DeclaredType declaredType
+                    && declaredType.asElement() instanceof TypeElement repositoryInterface
+                    && typeElement.getSimpleName().contentEquals(repositoryInterface.getSimpleName() + "_")) {
+                for (AnnotationMirror annotation : repositoryInterface.getAnnotationMirrors()) {
+                    if (DataComponentsIndex.REPOSITORY.equals(annotationName(annotation.getAnnotationType()))) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String annotationName(DeclaredType annotationType) {
+        return ((TypeElement) annotationType.asElement()).getQualifiedName().toString();
+    }
+
+    /** 增量编译时读取上次生成的索引 */
+    private void readExistingIndex() {
+        try {
+            FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "",
+                    DataComponentsIndex.INDEX_LOCATION);
+            Properties properties = new Properties();
+            try (InputStream in = existing.openInputStream()) {
+                properties.load(in);
+            }
+            for (String className : properties.stringPropertyNames()) {
+                Set<String> stereotypes = previousComponents.computeIfAbsent(className, k -> new TreeSet<>());
+                for (String stereotype : properties.getProperty(className).split(",")) {
+                    stereotypes.add(stereotype.strip());
+                }
+            }
+            previousIndexFound = true;
+        } catch (FileNotFoundException | NoSuchFileException e) {
+            // 全量编译，没有已有索引
+        } catch (IOException | IllegalArgumentException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "忽略无法读取的已有组件索引: " + e);
+        }
+    }
+
+    /**
+     * 合并已有索引中未被本次处理且仍然存在的类
+     *
+     * <p>
+     * 本次处理过的类已按当前注解重新收集；找不到的类已被删除或重命名，继续保留会导致启动时加载失败。
+     */
+    private void mergePreviousComponents() {
+        for (Map.Entry<String, Set<String>> entry : previousComponents.entrySet()) {
+            String className = entry.getKey();
+            if (!processedTypes.contains(className)
+                    && processingEnv.getElementUtils().getTypeElement(className.replace('$', '.')) != null) {
+                components.computeIfAbsent(className, k -> new TreeSet<>()).addAll(entry.getValue());
+            }
+        }
+    }
+
+    private void writeIndex() {
+        mergePreviousComponents();
+        if (components.isEmpty() && !previousIndexFound) {
+            return;
+        }
+        try {
+            FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    DataComponentsIndex.INDEX_LOCATION);
+            try (Writer writer = new BufferedWriter(
+                    new OutputStreamWriter(file.openOutputStream(), StandardCharsets.ISO_8859_1))) {
+                writer.write("# Generated by " + getClass().getName() + "\n");
+                for (Map.Entry<String, Set<String>> entry : components.entrySet()) {
+                    writer.write(entry.getKey() + "=" + String.join(",", entry.getValue()) + "\n");
+                }
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "写入Jakarta Data组件索引失败: " + e);
+        }
+    }
+}
@@ -0,0 +1,485 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.jdbc;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.util.Assert;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.sql.DataSource;
+
+/**
+ * 缓存PreparedStatement的数据源
+ *
+ * <p>
+ * 包装连接池数据源后，Repository在事务性及非事务性Session中获取的连接都经过该数据源。 每个物理连接持有一个按SQL（及结果集类型、生成键等选项）索引的有界LRU缓存，
+ * 关闭语句时不真正关闭，而是清空参数后放回缓存，同一物理连接下次准备相同SQL时直接复用，省去服务端的解析与执行计划。
+ * 不要求连接池或驱动自身支持语句缓存：语句在连接池返回的连接所包装的物理连接上准备，连接归还后仍然有效。
+ *
+ * <p>
+ * 修改过最大行数、超时、fetch size等属性的语句在放回缓存前恢复原值，未关闭的结果集一并关闭，避免影响下一次使用；
+ * 无法读取原值的属性（如游标名、转义处理）被修改后语句不再放回缓存。 连接池关闭物理连接后，其缓存在下一次出现新的物理连接时清除。
+ *
+ * <pre>
+ * &#64;Bean
+ * public DataSource dataSource() {
+ *     return new StatementCachingDataSource(pooledDataSource, 64);
+ * }
+ * </pre>
+ *
+ * @author luckygc
+ */
+public class StatementCachingDataSource extends DelegatingDataSource {
+
+    /** 默认每个物理连接缓存的语句数 */
+    public static final int DEFAULT_CACHE_SIZE = 64;
+
+    private static final Logger log = LoggerFactory.getLogger(StatementCachingDataSource.class);
+
+    /** 可恢复原值的属性设置方法到读取该属性的方法的映射，语句放回缓存前恢复原值 */
+    private static final Map<String, Method> RESTORABLE_SETTERS = restorableSetters();
+
+    /** 无法读取原值的属性设置方法，调用后语句不再放回缓存 */
+    private static final Set<String> IRREVERSIBLE_SETTERS = Set.of("setEscapeProcessing", "setCursorName",
+            "closeOnCompletion");
+
+    private final int cacheSize;
+
+    /** 物理连接到其语句缓存的映射，出现新的物理连接时清除已关闭连接的条目 */
+    private final Map<Connection, StatementCache> caches = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * 构造函数，每个物理连接缓存 {@link #DEFAULT_CACHE_SIZE} 条语句
+     *
+     * @param targetDataSource
+     *            连接池数据源
+     */
+    public StatementCachingDataSource(@NonNull DataSource targetDataSource) {
+        this(targetDataSource, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param targetDataSource
+     *            连接池数据源
+     * @param cacheSize
+     *            每个物理连接缓存的语句数
+     */
+    public StatementCachingDataSource(@NonNull DataSource targetDataSource, int cacheSize) {
+        super(targetDataSource);
+        Assert.isTrue(cacheSize > 0, "cacheSize must be greater than 0");
+        this.cacheSize = cacheSize;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    /** 每个物理连接缓存的语句数 */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    /** 从缓存中取得语句的次数 */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /** 缓存中没有可用语句而新准备语句的次数 */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /** 因超出缓存大小而关闭的语句数 */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private Connection wrap(Connection connection) throws SQLException {
+        Connection physical = physicalConnection(connection);
+        StatementCache cache = caches.get(physical);
+        if (cache == null) {
+            caches.keySet().removeIf(StatementCachingDataSource::isClosed);
+            cache = caches.computeIfAbsent(physical, key -> new StatementCache());
+        }
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[] {ConnectionProxy.class}, new CachingConnection(connection, physical, cache));
+    }
+
+    /**
+     * 获取连接池返回的连接所包装的物理连接
+     *
+     * <p>
+     * 依次展开Spring的 {@link ConnectionProxy} 及 {@link Connection#unwrap} 返回的其他连接，无法继续展开时返回当前连接。
+     */
+    private static Connection physicalConnection(Connection connection) throws SQLException {
+        Connection current = DataSourceUtils.getTargetConnection(connection);
+        while (current.isWrapperFor(Connection.class)) {
+            Connection unwrapped = DataSourceUtils.getTargetConnection(current.unwrap(Connection.class));
+            if (unwrapped == null || unwrapped == current) {
+                break;
+            }
+            current = unwrapped;
+        }
+        return current;
+    }
+
+    private static boolean isClosed(Connection connection) {
+        try {
+            return connection.isClosed();
+        } catch (SQLException e) {
+            return true;
+        }
+    }
+
+    private static Map<String, Method> restorableSetters() {
+        Map<String, String> getters = Map.of("setMaxRows", "getMaxRows", "setLargeMaxRows", "getLargeMaxRows",
+                "setQueryTimeout", "getQueryTimeout", "setFetchSize", "getFetchSize", "setFetchDirection",
+                "getFetchDirection", "setMaxFieldSize", "getMaxFieldSize", "setPoolable", "isPoolable");
+        Map<String, Method> setters = new HashMap<>();
+        getters.forEach((setter, getter) -> setters.put(setter, ReflectionUtils.findMethod(Statement.class, getter)));
+        return Map.copyOf(setters);
+    }
+
+    private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * 语句缓存的键
+     *
+     * @param sql
+     *            SQL语句
+     * @param options
+     *            准备语句时的其他参数，如结果集类型、生成键选项或列
+     */
+    private record StatementKey(String sql, List<Object> options) {
+
+        private static StatementKey of(Object[] args) {
+            List<Object> options = new ArrayList<>(args.length - 1);
+            for (int i = 1; i < args.length; i++) {
+                Object arg = args[i];
+                if (arg instanceof int[] columnIndexes) {
+                    options.add(Arrays.stream(columnIndexes).boxed().toList());
+                } else if (arg instanceof Object[] columnNames) {
+                    options.add(Arrays.asList(columnNames));
+                } else {
+                    options.add(arg);
+                }
+            }
+            return new StatementKey((String) args[0], options);
+        }
+    }
+
+    /**
+     * 单个物理连接的语句缓存
+     *
+     * <p>
+     * 只保存空闲的语句，取出的语句在关闭前不在缓存中，同一SQL的嵌套使用会准备各自的语句。
+     */
+    private final class StatementCache {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final LinkedHashMap<StatementKey, PreparedStatement> statements = new LinkedHashMap<>(16, 0.75f, true);
+
+        @Nullable
+        private PreparedStatement take(StatementKey key) {
+            lock.lock();
+            try {
+                return statements.remove(key);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * 放回语句，被替换及超出容量淘汰的语句在释放锁后关闭
+         */
+        private void offer(StatementKey key, PreparedStatement statement) {
+            List<PreparedStatement> discarded = new ArrayList<>(1);
+            lock.lock();
+            try {
+                PreparedStatement displaced = statements.put(key, statement);
+                if (displaced != null) {
+                    discarded.add(displaced);
+                }
+                Iterator<PreparedStatement> eldest = statements.values().iterator();
+                while (statements.size() > cacheSize) {
+                    discarded.add(eldest.next());
+                    eldest.remove();
+                    evictions.increment();
+                }
+            } finally {
+                lock.unlock();
+            }
+            discarded.forEach(StatementCachingDataSource::closeQuietly);
+        }
+    }
+
+    private static void closeQuietly(PreparedStatement statement) {
+        try {
+            statement.close();
+        } catch (SQLException e) {
+            log.debug("关闭缓存的PreparedStatement时发生异常", e);
+        }
+    }
+
+    /**
+     * 连接代理，在物理连接上准备语句并通过缓存复用，其余调用转发给连接池返回的连接
+     */
+    private final class CachingConnection implements InvocationHandler {
+
+        private final Connection target;
+
+        private final Connection physical;
+
+        private final StatementCache cache;
+
+        private CachingConnection(Connection target, Connection physical, StatementCache cache) {
+            this.target = target;
+            this.physical = physical;
+            this.cache = cache;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Statement caching proxy for target Connection [" + target + "]";
+                }
+                case "getTargetConnection" -> {
+                    return target;
+                }
+                case "prepareStatement" -> {
+                    return prepareStatement((Connection) proxy, method, args);
+                }
+                default -> {
+                    return invokeTarget(target, method, args);
+                }
+            }
+        }
+
+        private PreparedStatement prepareStatement(Connection proxy, Method method, Object[] args)
+                throws Throwable {
+            StatementKey key = StatementKey.of(args);
+            PreparedStatement statement = cache.take(key);
+            if (statement != null && !statement.isClosed()) {
+                hits.increment();
+            } else {
+                misses.increment();
+                statement = (PreparedStatement) invokeTarget(physical, method, args);
+            }
+            return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, new CachedStatement(proxy, statement, key, cache));
+        }
+    }
+
+    /**
+     * 语句代理，关闭时关闭结果集、恢复属性、清空参数并放回缓存
+     */
+    private static final class CachedStatement implements InvocationHandler {
+
+        private final Connection connection;
+
+        private final PreparedStatement target;
+
+        private final StatementKey key;
+
+        private final StatementCache cache;
+
+        private boolean closed;
+
+        private boolean reusable = true;
+
+        private boolean batched;
+
+        /** 被修改的属性设置方法到其首次修改前的值，按修改顺序排列 */
+        private final Map<Method, Object> originalSettings = new LinkedHashMap<>();
+
+        /** 执行返回的结果集，放回缓存前关闭 */
+        private final List<ResultSet> resultSets = new ArrayList<>();
+
+        private CachedStatement(Connection connection, PreparedStatement target, StatementKey key,
+                StatementCache cache) {
+            this.connection = connection;
+            this.target = target;
+            this.key = key;
+            this.cache = cache;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Cached PreparedStatement [" + target + "]";
+                }
+                case "close" -> {
+                    close();
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed || target.isClosed();
+                }
+                case "getConnection" -> {
+                    return connection;
+                }
+                case "unwrap" -> {
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return proxy;
+                    }
+                }
+                case "isWrapperFor" -> {
+                    if (((Class<?>) args[0]).isInstance(proxy)) {
+                        return true;
+                    }
+                }
+                case "addBatch" -> batched = true;
+                default -> {
+                    // 其余方法委托给目标语句
+                }
+            }
+
+            if (closed) {
+                throw new SQLException("PreparedStatement is closed");
+            }
+            recordSetting(method);
+            Object result = invokeTarget(target, method, args);
+            if (result instanceof ResultSet resultSet) {
+                resultSets.add(resultSet);
+            }
+            return result;
+        }
+
+        /**
+         * 属性首次被修改前记录其原值
+         */
+        private void recordSetting(Method method) throws Throwable {
+            String name = method.getName();
+            if (IRREVERSIBLE_SETTERS.contains(name)) {
+                reusable = false;
+                return;
+            }
+            Method getter = RESTORABLE_SETTERS.get(name);
+            if (getter != null && !originalSettings.containsKey(method)) {
+                originalSettings.put(method, invokeTarget(target, getter, null));
+            }
+        }
+
+        /**
+         * 按修改的逆序恢复属性原值，先后修改setMaxRows与setLargeMaxRows时以最早的原值为准
+         */
+        private void restoreSettings() throws SQLException {
+            List<Map.Entry<Method, Object>> settings = new ArrayList<>(originalSettings.entrySet());
+            Collections.reverse(settings);
+            for (Map.Entry<Method, Object> setting : settings) {
+                try {
+                    invokeTarget(target, setting.getKey(), new Object[] {setting.getValue()});
+                } catch (SQLException e) {
+                    throw e;
+                } catch (Throwable e) {
+                    throw new SQLException("Failed to restore statement setting " + setting.getKey().getName(), e);
+                }
+            }
+        }
+
+        private void close() throws SQLException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (!reusable || target.isClosed() || connection.isClosed()) {
+                target.close();
+                return;
+            }
+
+            try {
+                for (ResultSet resultSet : resultSets) {
+                    resultSet.close();
+                }
+                restoreSettings();
+                target.clearParameters();
+                if (batched) {
+                    target.clearBatch();
+                }
+                target.clearWarnings();
+            } catch (SQLException e) {
+                target.close();
+                return;
+            }
+            cache.offer(key, target);
+        }
+    }
+}
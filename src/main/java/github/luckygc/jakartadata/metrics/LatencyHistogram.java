@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.metrics;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 无锁延迟直方图
+ *
+ * <p>
+ * 采用与HdrHistogram相同的对数-线性分桶：小于16纳秒的值精确记录，其余按2的幂分段，每段再均分为8个子桶， 相对误差不超过12.5%。
+ * 计数、总和及各分桶计数都使用分段计数器 {@link LongAdder}，并发记录同一分桶时不争用同一缓存行；分桶计数器在首次落入该桶时创建，
+ * 未使用的分桶不占用计数器。记录过程无锁。
+ *
+ * @author luckygc
+ */
+public class LatencyHistogram {
+
+    /** 精确记录的小值桶数量 */
+    private static final int LINEAR_BUCKETS = 16;
+
+    /** 每个2的幂分段的子桶位数 */
+    private static final int SUB_BUCKET_BITS = 3;
+
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /** 最小的分段指数，2^4 = 16 */
+    private static final int MIN_EXPONENT = 4;
+
+    private static final int BUCKETS = LINEAR_BUCKETS + (Long.SIZE - 1 - MIN_EXPONENT) * SUB_BUCKETS;
+
+    /** 分桶计数器，首次落入该桶时创建 */
+    private final AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(BUCKETS);
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos
+     *            耗时（纳秒），负值按0处理
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        bucket(bucketIndex(value)).increment();
+        count.increment();
+        totalNanos.add(value);
+        maxNanos.accumulate(value);
+    }
+
+    /**
+     * 获取当前数据的快照
+     *
+     * <p>
+     * 快照不是原子的，并发记录时各项之间可能存在微小偏差。
+     *
+     * @return 快照
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            LongAdder bucket = buckets.get(i);
+            counts[i] = bucket != null ? bucket.sum() : 0;
+        }
+        return new Snapshot(count.sum(), totalNanos.sum(), maxNanos.get(), counts);
+    }
+
+    private LongAdder bucket(int index) {
+        LongAdder bucket = buckets.get(index);
+        if (bucket == null) {
+            LongAdder created = new LongAdder();
+            bucket = buckets.compareAndExchange(index, null, created);
+            if (bucket == null) {
+                bucket = created;
+            }
+        }
+        return bucket;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < LINEAR_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < LINEAR_BUCKETS) {
+            return index;
+        }
+        int exponent = (index - LINEAR_BUCKETS) / SUB_BUCKETS + MIN_EXPONENT;
+        int subBucket = (index - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width - 1;
+    }
+
+    /**
+     * 延迟直方图快照
+     */
+    public static final class Snapshot {
+
+        private final long count;
+
+        private final long totalNanos;
+
+        private final long maxNanos;
+
+        private final long[] buckets;
+
+        Snapshot(long count, long totalNanos, long maxNanos, long[] buckets) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.buckets = buckets;
+        }
+
+        /** 记录次数 */
+        public long getCount() {
+            return count;
+        }
+
+        /** 总耗时（纳秒） */
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        /** 最大耗时（纳秒） */
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        /** 平均耗时（纳秒），无记录时为0 */
+        public double getMeanNanos() {
+            return (count == 0 ? 0 : (double) totalNanos / count);
+        }
+
+        /**
+         * 获取百分位耗时
+         *
+         * @param percentile
+         *            百分位，取值范围 [0, 100]
+         * @return 该百分位所在桶的上界（纳秒），不超过最大耗时，无记录时为0
+         */
+        public long getPercentileNanos(double percentile) {
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+
+            long threshold = Math.max(1, (long) Math.ceil(total * Math.min(Math.max(percentile, 0), 100) / 100));
+            long cumulative = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i];
+                if (cumulative >= threshold) {
+                    return Math.min(bucketUpperBound(i), maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count=%d, mean=%.0fns, p50=%dns, p99=%dns, max=%dns", count, getMeanNanos(),
+                    getPercentileNanos(50), getPercentileNanos(99), maxNanos);
+        }
+    }
+}
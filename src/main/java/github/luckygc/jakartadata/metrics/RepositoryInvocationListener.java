@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.metrics;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.reflect.Method;
+
+/**
+ * Repository 调用监听器SPI
+ *
+ * <p>
+ * 在Spring容器中注册该类型的Bean即可接收Repository调用、Session打开及连接获取的耗时。 未注册时调用路径上只有一次空值判断。 实现必须线程安全且尽量轻量，回调在调用线程上同步执行。
+ *
+ * @author luckygc
+ * @see RepositoryMetrics
+ */
+public interface RepositoryInvocationListener {
+
+    /**
+     * Repository方法调用完成
+     *
+     * @param repositoryInterface
+     *            被调用的Repository接口，继承的方法（如 {@code CrudRepository} 的方法）由多个Repository共享同一个 {@link Method}，需要以接口区分
+     * @param method
+     *            Repository接口方法
+     * @param nanos
+     *            调用耗时（纳秒），包含Session获取与释放
+     * @param failure
+     *            调用抛出的异常，成功时为null
+     */
+    default void invocationCompleted(Class<?> repositoryInterface, Method method, long nanos,
+            @Nullable Throwable failure) {
+    }
+
+    /**
+     * 获取Repository方法的调用回调
+     *
+     * <p>
+     * Repository代理创建时为每个接口方法调用一次并缓存返回的回调，调用完成时直接回调而不再按方法查找。 默认实现委托给
+     * {@link #invocationCompleted(Class, Method, long, Throwable)}，需要按方法累计数据的实现可以覆盖该方法，预先绑定方法对应的计数器。
+     *
+     * @param repositoryInterface
+     *            Repository接口
+     * @param method
+     *            Repository接口方法
+     * @return 该方法的调用回调
+     */
+    default MethodInvocationCallback forMethod(Class<?> repositoryInterface, Method method) {
+        return (nanos, failure) -> invocationCompleted(repositoryInterface, method, nanos, failure);
+    }
+
+    /**
+     * 通过 {@code DataSourceUtils.getConnection} 获取到JDBC连接
+     *
+     * @param nanos
+     *            获取连接耗时（纳秒）
+     */
+    default void connectionAcquired(long nanos) {
+    }
+
+    /**
+     * 打开了StatelessSession
+     *
+     * @param nanos
+     *            {@code openStatelessSession} 耗时（纳秒），不包含获取连接
+     */
+    default void sessionOpened(long nanos) {
+    }
+
+    /**
+     * 事务结束，关闭了事务性StatelessSession
+     *
+     * @param connectionUsed
+     *            该Session是否使用过JDBC连接；未启用延迟获取连接时始终为true
+     */
+    default void transactionalSessionClosed(boolean connectionUsed) {
+    }
+
+    /**
+     * 单个Repository方法的调用回调
+     */
+    @FunctionalInterface
+    interface MethodInvocationCallback {
+
+        /**
+         * Repository方法调用完成
+         *
+         * @param nanos
+         *            调用耗时（纳秒），包含Session获取与释放
+         * @param failure
+         *            调用抛出的异常，成功时为null
+         */
+        void invocationCompleted(long nanos, @Nullable Throwable failure);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.metrics;
+
+import org.jspecify.annotations.Nullable;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 默认的Repository调用指标收集器
+ *
+ * <p>
+ * 按Repository接口及方法记录调用次数、异常次数和延迟直方图，并分别记录打开StatelessSession和获取JDBC连接的耗时，
+ * 以及结束时未使用过连接的事务性Session数。 每个方法的计数器在Repository代理创建时通过 {@link #forMethod(Class, Method)} 绑定，
+ * 调用路径上不再查找； 所有计数均为无锁分段计数器，可在高并发下直接注册为Spring Bean使用：
+ *
+ * <pre>
+ * &#64;Bean
+ * public RepositoryMetrics repositoryMetrics() {
+ *     return new RepositoryMetrics();
+ * }
+ * </pre>
+ *
+ * @author luckygc
+ */
+public class RepositoryMetrics implements RepositoryInvocationListener {
+
+    private final Map<MethodKey, MethodMetrics> methods = new ConcurrentHashMap<>();
+
+    private final LatencyHistogram connectionAcquisition = new LatencyHistogram();
+
+    private final LatencyHistogram sessionOpening = new LatencyHistogram();
+
+    private final LongAdder transactionalSessions = new LongAdder();
+
+    private final LongAdder transactionalSessionsWithoutConnection = new LongAdder();
+
+    @Override
+    public void invocationCompleted(Class<?> repositoryInterface, Method method, long nanos,
+            @Nullable Throwable failure) {
+        forMethod(repositoryInterface, method).invocationCompleted(nanos, failure);
+    }
+
+    @Override
+    public MethodInvocationCallback forMethod(Class<?> repositoryInterface, Method method) {
+        MethodKey key = new MethodKey(repositoryInterface, method);
+        MethodMetrics metrics = methods.get(key);
+        return metrics != null ? metrics : methods.computeIfAbsent(key, k -> new MethodMetrics());
+    }
+
+    @Override
+    public void connectionAcquired(long nanos) {
+        connectionAcquisition.record(nanos);
+    }
+
+    @Override
+    public void sessionOpened(long nanos) {
+        sessionOpening.record(nanos);
+    }
+
+    @Override
+    public void transactionalSessionClosed(boolean connectionUsed) {
+        transactionalSessions.increment();
+        if (!connectionUsed) {
+            transactionalSessionsWithoutConnection.increment();
+        }
+    }
+
+    /**
+     * 获取当前指标快照
+     *
+     * @return 指标快照，方法按 "Repository接口全限定名.方法名(参数类型全限定名)" 排序
+     */
+    public Snapshot snapshot() {
+        Map<String, MethodSnapshot> methodSnapshots = new TreeMap<>();
+        methods.forEach((key, metrics) -> methodSnapshots.put(describe(key.repositoryInterface(), key.method()),
+                new MethodSnapshot(metrics.calls.sum(), metrics.errors.sum(), metrics.latency.snapshot())));
+        return new Snapshot(methodSnapshots, connectionAcquisition.snapshot(), sessionOpening.snapshot(),
+                transactionalSessions.sum(), transactionalSessionsWithoutConnection.sum());
+    }
+
+    private static String describe(Class<?> repositoryInterface, Method method) {
+        StringBuilder sb = new StringBuilder(repositoryInterface.getName()).append('.')
+                .append(method.getName()).append('(');
+        Class<?>[] parameterTypes = method.getParameterTypes();
+        for (int i = 0; i < parameterTypes.length; i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(parameterTypes[i].getTypeName());
+        }
+        return sb.append(')').toString();
+    }
+
+    /** 指标键，继承的方法由多个Repository共享同一个 {@link Method}，需要与Repository接口一起区分 */
+    private record MethodKey(Class<?> repositoryInterface, Method method) {
+    }
+
+    /** 单个方法的计数器 */
+    private static final class MethodMetrics implements MethodInvocationCallback {
+
+        private final LongAdder calls = new LongAdder();
+
+        private final LongAdder errors = new LongAdder();
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        @Override
+        public void invocationCompleted(long nanos, @Nullable Throwable failure) {
+            calls.increment();
+            if (failure != null) {
+                errors.increment();
+            }
+            latency.record(nanos);
+        }
+    }
+
+    /**
+     * 单个Repository方法的指标快照
+     *
+     * @param calls
+     *            调用次数
+     * @param errors
+     *            异常次数
+     * @param latency
+     *            调用耗时分布
+     */
+    public record MethodSnapshot(long calls, long errors, LatencyHistogram.Snapshot latency) {
+    }
+
+    /**
+     * Repository指标快照
+     *
+     * @param methods
+     *            各方法的指标
+     * @param connectionAcquisition
+     *            获取JDBC连接的耗时分布
+     * @param sessionOpening
+     *            打开StatelessSession的耗时分布
+     * @param transactionalSessions
+     *            已结束的事务性StatelessSession数
+     * @param transactionalSessionsWithoutConnection
+     *            其中未使用过JDBC连接的Session数，仅在延迟获取连接时可能大于0
+     */
+    public record Snapshot(Map<String, MethodSnapshot> methods, LatencyHistogram.Snapshot connectionAcquisition,
+            LatencyHistogram.Snapshot sessionOpening, long transactionalSessions,
+            long transactionalSessionsWithoutConnection) {
+    }
+}
@@ -18,14 +18,29 @@
 package github.luckygc.jakartadata.provider.hibernate;
 
 import github.luckygc.jakartadata.ExceptionUtil;
+import github.luckygc.jakartadata.RepositoryMethodUtil;
+import github.luckygc.jakartadata.annotation.Sharded;
+import github.luckygc.jakartadata.async.RepositoryExecutor;
+import github.luckygc.jakartadata.async.WriteBehindFailureHandler;
+import github.luckygc.jakartadata.metrics.RepositoryInvocationListener;
+import github.luckygc.jakartadata.metrics.RepositoryInvocationListener.MethodInvocationCallback;
+import github.luckygc.jakartadata.provider.hibernate.StatelessSessionUtils.ResourceKey;
+import github.luckygc.jakartadata.provider.hibernate.StatelessSessionUtils.StatelessSessionHolder;
+import github.luckygc.jakartadata.routing.ReadReplicaRouter;
+import github.luckygc.jakartadata.routing.ShardRouter;
 
 import org.hibernate.SessionFactory;
 import org.hibernate.StatelessSession;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.BeanFactory;
+import org.springframework.core.NativeDetector;
+import org.springframework.core.annotation.AnnotationUtils;
 import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.StringUtils;
 
 import java.io.Serial;
 import java.io.Serializable;
@@ -36,7 +51,17 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import javax.sql.DataSource;
 
@@ -50,9 +75,12 @@ import javax.sql.DataSource;
  * 主要功能：
  * <ul>
  * <li>动态创建Hibernate生成的Repository实现类实例</li>
+ * <li>通过预编译的方法句柄表分派Repository方法调用</li>
  * <li>管理StatelessSession的创建、绑定和释放</li>
  * <li>支持Spring事务管理</li>
- * <li>提供线程安全的Session访问</li>
+ * <li>提供线程安全的Session访问，非事务、非作用域调用不保留任何线程本地状态，适用于虚拟线程</li>
+ * <li>返回 {@link CompletionStage} 的默认方法在 {@link RepositoryExecutor} 上异步执行</li>
+ * <li>{@link github.luckygc.jakartadata.annotation.WriteBehind} Repository的插入方法经由写后缓冲批量写入</li>
  * </ul>
  *
  * @param <T>
@@ -68,32 +96,218 @@ public class HibernateRepositoryProxy<T, I extends T> implements InvocationHandl
 
     private static final Logger log = LoggerFactory.getLogger(HibernateRepositoryProxy.class);
 
-    /** 线程本地Session存储，用于非事务性操作 */
-    private static final ThreadLocal<StatelessSession> threadLocalSession = new ThreadLocal<>();
+    /** 方法句柄的统一调用类型: (实现类实例, 参数数组) -> 返回值 */
+    private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object.class, Object[].class);
+
+    /** Repository接口类型 */
+    private final Class<T> repositoryInterface;
 
     /** 构造函数调用器，用于创建Repository实现类实例 */
     private final Function<StatelessSession, I> constructorInvoker;
 
+    /** 方法调用表，Repository接口方法到实现类方法句柄的不可变映射 */
+    private final Map<Method, MethodHandle> methodHandles;
+
+    /** Hibernate生成的实现类 */
+    private final Class<I> implementationClass;
+
     /** Hibernate SessionFactory */
     private final SessionFactory sessionFactory;
 
     /** 数据源 */
     private final DataSource dataSource;
 
+    /** 事务资源键，(SessionFactory, DataSource) 对应的标识键，创建一次后复用 */
+    private final ResourceKey resourceKey;
+
+    /** 返回 {@link Stream} 的方法，结果流关闭时才释放非事务性Session */
+    private final Set<Method> streamMethods;
+
+    /** 标注了 {@link github.luckygc.jakartadata.annotation.CachedResult} 的方法的结果缓存 */
+    private final Map<Method, ResultCache> resultCaches;
+
+    /** 标注了 {@link github.luckygc.jakartadata.annotation.CachedCount} 的分页方法的总数缓存 */
+    private final Map<Method, PageCountCache> pageCountCaches;
+
+    /** 执行后需要清空结果缓存及总数缓存的写方法，两者都没有时为空 */
+    private final Set<Method> cacheEvictingMethods;
+
+    /** 参数为集合或数组的写方法，可能需要分段批量执行 */
+    private final Set<Method> collectionWriteMethods;
+
+    /**
+     * 集合写方法的JDBC批量大小，仅包含需要分段执行的方法
+     *
+     * <p>
+     * 默认批量大小来自SessionFactory的配置属性，首次调用集合写方法时才解析，SessionFactory异步初始化时创建Repository不必等待。
+     */
+    @Nullable
+    private volatile Map<Method, Integer> jdbcBatchSizes;
+
+    /** 调用监听器，容器中未注册 {@link RepositoryInvocationListener} 时为null，此时不做任何计时 */
+    @Nullable
+    private final RepositoryInvocationListener listener;
+
+    /** 各接口方法的调用回调，与方法调用表一同在创建时确定，没有调用监听器时为空 */
+    private final Map<Method, MethodInvocationCallback> invocationCallbacks;
+
+    /** 只读副本路由，容器中未注册 {@link ReadReplicaRouter} 时为null */
+    @Nullable
+    private final ReadReplicaRouter replicaRouter;
+
+    /** 可以路由到只读副本的读方法，没有副本路由时为空 */
+    private final Set<Method> replicaReadMethods;
+
+    /** 各副本对应的资源键，同一副本上的调用始终使用同一个键，没有副本路由时为空 */
+    private final Map<DataSource, ResourceKey> replicaKeys;
+
+    /** 分片路由，Repository接口未标注 {@link Sharded} 时为null */
+    @Nullable
+    private final ShardingSupport sharding;
+
+    /** 是否延迟获取事务性Session的JDBC连接 */
+    private final boolean lazyConnection;
+
+    /** 返回 {@link CompletionStage} 的默认方法，在 {@link #asyncExecutor} 上执行 */
+    private final Set<Method> asyncMethods;
+
+    /** 异步方法的执行器，没有异步方法时为null */
+    @Nullable
+    private final RepositoryExecutor asyncExecutor;
+
+    /** 插入方法的写后缓冲，Repository接口未标注 {@link github.luckygc.jakartadata.annotation.WriteBehind} 时为null */
+    @Nullable
+    private final WriteBehindBuffer writeBehind;
+
     /**
      * 构造函数
      *
      * @param repositoryInterface
      *            Repository接口类型
      * @param beanFactory
-     *            Spring Bean工厂，用于获取SessionFactory和DataSource
+     *            Spring Bean工厂，用于获取SessionFactory、DataSource及可选的 {@link RepositoryInvocationListener}
      */
     public HibernateRepositoryProxy(@NonNull Class<T> repositoryInterface, @NonNull BeanFactory beanFactory) {
-        this.sessionFactory = beanFactory.getBean(SessionFactory.class);
-        this.dataSource = beanFactory.getBean(DataSource.class);
+        this(repositoryInterface, beanFactory, null);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param beanFactory
+     *            Spring Bean工厂，用于获取SessionFactory、DataSource及可选的 {@link RepositoryInvocationListener}
+     * @param implementationFactory
+     *            实现类的创建函数，通常是AOT生成代码中的构造函数引用；为null时运行期创建构造函数调用器
+     */
+    public HibernateRepositoryProxy(@NonNull Class<T> repositoryInterface, @NonNull BeanFactory beanFactory,
+            @Nullable Function<StatelessSession, ? extends T> implementationFactory) {
+        this(repositoryInterface, beanFactory, implementationFactory, null, null);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param beanFactory
+     *            Spring Bean工厂，用于获取SessionFactory、DataSource及可选的 {@link RepositoryInvocationListener}
+     * @param implementationFactory
+     *            实现类的创建函数，通常是AOT生成代码中的构造函数引用；为null时运行期创建构造函数调用器
+     * @param sessionFactoryRef
+     *            SessionFactory的Bean名称，为空时按类型获取
+     * @param dataSourceRef
+     *            DataSource的Bean名称，为空时按类型获取
+     */
+    public HibernateRepositoryProxy(@NonNull Class<T> repositoryInterface, @NonNull BeanFactory beanFactory,
+            @Nullable Function<StatelessSession, ? extends T> implementationFactory,
+            @Nullable String sessionFactoryRef, @Nullable String dataSourceRef) {
+        this(repositoryInterface, beanFactory, implementationFactory, sessionFactoryRef, dataSourceRef, false);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param beanFactory
+     *            Spring Bean工厂，用于获取SessionFactory、DataSource及可选的 {@link RepositoryInvocationListener}
+     * @param implementationFactory
+     *            实现类的创建函数，通常是AOT生成代码中的构造函数引用；为null时运行期创建构造函数调用器
+     * @param sessionFactoryRef
+     *            SessionFactory的Bean名称，为空时按类型获取
+     * @param dataSourceRef
+     *            DataSource的Bean名称，为空时按类型获取
+     * @param lazyConnection
+     *            是否延迟到执行第一条语句时才获取事务性Session的JDBC连接
+     */
+    @SuppressWarnings("unchecked")
+    public HibernateRepositoryProxy(@NonNull Class<T> repositoryInterface, @NonNull BeanFactory beanFactory,
+            @Nullable Function<StatelessSession, ? extends T> implementationFactory,
+            @Nullable String sessionFactoryRef, @Nullable String dataSourceRef, boolean lazyConnection) {
+        this.repositoryInterface = repositoryInterface;
+        this.lazyConnection = lazyConnection;
+        this.sessionFactory = StringUtils.hasText(sessionFactoryRef)
+                ? beanFactory.getBean(sessionFactoryRef, SessionFactory.class)
+                : beanFactory.getBean(SessionFactory.class);
+        this.dataSource = StringUtils.hasText(dataSourceRef) ? beanFactory.getBean(dataSourceRef, DataSource.class)
+                : beanFactory.getBean(DataSource.class);
+        this.resourceKey = new ResourceKey(this.sessionFactory, this.dataSource);
+        this.listener = beanFactory.getBeanProvider(RepositoryInvocationListener.class).getIfAvailable();
+
+        this.implementationClass = getImplementationClass(repositoryInterface);
+        this.constructorInvoker = implementationFactory != null
+                ? (Function<StatelessSession, I>) implementationFactory
+                : createConstructorInvoker(implementationClass);
+        this.methodHandles = createMethodHandles(repositoryInterface, implementationClass);
+        this.invocationCallbacks = listener == null ? Map.of()
+                : methodHandles.keySet().stream().collect(Collectors.toUnmodifiableMap(Function.identity(),
+                        method -> listener.forMethod(repositoryInterface, method)));
+        this.streamMethods = methodHandles.keySet().stream()
+                .filter(method -> Stream.class.isAssignableFrom(method.getReturnType())).collect(Collectors.toSet());
+        this.resultCaches = ResultCache.createCaches(methodHandles.keySet());
+        this.pageCountCaches = PageCountCache.createCaches(methodHandles.keySet());
+        this.cacheEvictingMethods = resultCaches.isEmpty() && pageCountCaches.isEmpty() ? Set.of()
+                : ResultCache.findWriteMethods(methodHandles.keySet());
+        this.collectionWriteMethods = JdbcBatchSupport.findCollectionWrites(methodHandles.keySet());
+        this.replicaRouter = beanFactory.getBeanProvider(ReadReplicaRouter.class).getIfAvailable();
+        this.replicaReadMethods = replicaRouter == null ? Set.of()
+                : methodHandles.keySet().stream()
+                        .filter(method -> !method.isDefault() && !RepositoryMethodUtil.isWrite(method))
+                        .collect(Collectors.toUnmodifiableSet());
+        this.replicaKeys = replicaRouter == null ? Map.of()
+                : replicaRouter.getReplicas().stream().distinct().collect(Collectors.toUnmodifiableMap(
+                        Function.identity(), replica -> new ResourceKey(this.sessionFactory, replica)));
+        this.sharding = createSharding(repositoryInterface, beanFactory);
+        this.asyncMethods = methodHandles.keySet().stream().filter(method -> method.isDefault()
+                && CompletionStage.class.isAssignableFrom(method.getReturnType())
+                && method.getReturnType().isAssignableFrom(CompletableFuture.class))
+                .collect(Collectors.toUnmodifiableSet());
+        this.asyncExecutor = asyncMethods.isEmpty() ? null
+                : beanFactory.getBeanProvider(RepositoryExecutor.class)
+                        .getIfAvailable(() -> RepositoryExecutor.forDataSource(dataSource));
+        this.writeBehind = WriteBehindBuffer.create(repositoryInterface, methodHandles.keySet(), sessionFactory,
+                dataSource, beanFactory.getBeanProvider(WriteBehindFailureHandler.class).getIfAvailable(),
+                this::evictResultCaches);
+        if (writeBehind != null && sharding != null) {
+            throw new IllegalStateException(
+                    String.format("分片Repository '%s' 不支持 @WriteBehind", repositoryInterface.getName()));
+        }
+    }
+
+    /** 为标注了 {@link Sharded} 的Repository创建分片路由 */
+    @Nullable
+    private ShardingSupport createSharding(Class<T> repositoryInterface, BeanFactory beanFactory) {
+        Sharded sharded = AnnotationUtils.findAnnotation(repositoryInterface, Sharded.class);
+        if (sharded == null) {
+            return null;
+        }
 
-        var implementationClass = getImplementationClass(repositoryInterface);
-        this.constructorInvoker = createConstructorInvoker(implementationClass);
+        ShardRouter router = StringUtils.hasText(sharded.value())
+                ? beanFactory.getBean(sharded.value(), ShardRouter.class)
+                : beanFactory.getBean(ShardRouter.class);
+        return new ShardingSupport(router, methodHandles.keySet());
     }
 
     /**
@@ -121,11 +335,16 @@ public class HibernateRepositoryProxy<T, I extends T> implements InvocationHandl
         }
     }
 
+    /** 获取Hibernate生成的实现类 */
+    Class<I> getImplementationClass() {
+        return implementationClass;
+    }
+
     /**
      * 使用LambdaMetafactory创建构造函数调用器
      *
      * <p>
-     * 通过方法句柄和Lambda表达式创建高性能的构造函数调用器， 避免反射调用的性能开销。
+     * 通过方法句柄和Lambda表达式创建高性能的构造函数调用器， 避免反射调用的性能开销。 GraalVM原生镜像不支持运行期生成Lambda类，此时直接调用构造函数的方法句柄。
      *
      * @param implementationClass
      *            Hibernate生成的实现类
@@ -142,6 +361,20 @@ public class HibernateRepositoryProxy<T, I extends T> implements InvocationHandl
             MethodHandle constructorHandle = lookup.findConstructor(implementationClass,
                     MethodType.methodType(void.class, StatelessSession.class));
 
+            if (NativeDetector.inNativeImage()) {
+                MethodHandle invokerHandle = constructorHandle.asType(
+                        MethodType.methodType(Object.class, StatelessSession.class));
+                return session -> {
+                    try {
+                        return implementationClass.cast(invokerHandle.invokeExact(session));
+                    } catch (RuntimeException | Error e) {
+                        throw e;
+                    } catch (Throwable t) {
+                        throw new IllegalStateException("无法创建实现类实例: " + implementationClass.getName(), t);
+                    }
+                };
+            }
+
             // 使用 LambdaMetafactory 创建 Function
             CallSite callSite = LambdaMetafactory.metafactory(lookup, "apply", // 函数式接口方法名
                     MethodType.methodType(Function.class), // 调用点类型
@@ -162,46 +395,433 @@ public class HibernateRepositoryProxy<T, I extends T> implements InvocationHandl
         }
     }
 
+    /**
+     * 创建方法调用表
+     *
+     * <p>
+     * 为Repository接口及其所有父接口声明的方法预先解析实现类中对应方法的方法句柄， 并统一适配为 {@link #INVOKER_TYPE}，调用时无需反射及访问检查，也不会产生
+     * {@link java.lang.reflect.InvocationTargetException} 包装。
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param implementationClass
+     *            Hibernate生成的实现类
+     * @return 不可变的方法调用表
+     * @throws IllegalStateException
+     *             如果无法解析实现方法
+     */
+    private Map<Method, MethodHandle> createMethodHandles(Class<T> repositoryInterface, Class<I> implementationClass) {
+        MethodHandles.Lookup lookup = MethodHandles.lookup();
+        Map<Method, MethodHandle> handles = new HashMap<>();
+
+        for (Class<?> declaringInterface : collectInterfaces(repositoryInterface)) {
+            for (Method method : declaringInterface.getDeclaredMethods()) {
+                if (Modifier.isStatic(method.getModifiers()) || method.isSynthetic()) {
+                    continue;
+                }
+
+                try {
+                    Method implementationMethod = implementationClass.getMethod(method.getName(),
+                            method.getParameterTypes());
+                    MethodHandle handle = lookup.unreflect(implementationMethod)
+                            .asSpreader(Object[].class, method.getParameterCount()).asType(INVOKER_TYPE);
+                    handles.put(method, handle);
+                } catch (NoSuchMethodException | IllegalAccessException e) {
+                    throw new IllegalStateException(String.format("无法为Repository方法 '%s' 解析实现类 '%s' 中的对应方法",
+                            method, implementationClass.getName()), e);
+                }
+            }
+        }
+
+        return Map.copyOf(handles);
+    }
+
+    /** 收集Repository接口及其所有父接口 */
+    static Set<Class<?>> collectInterfaces(Class<?> repositoryInterface) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        doCollectInterfaces(repositoryInterface, interfaces);
+        return interfaces;
+    }
+
+    private static void doCollectInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        if (interfaces.add(type)) {
+            for (Class<?> superInterface : type.getInterfaces()) {
+                doCollectInterfaces(superInterface, interfaces);
+            }
+        }
+    }
+
     @Override
     public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
         // 处理Object类的方法，避免不必要的Session创建
         if (Object.class.equals(method.getDeclaringClass())) {
-            return method.invoke(this, args);
+            try {
+                return method.invoke(this, args);
+            } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+            }
+        }
+
+        MethodHandle handle = methodHandles.get(method);
+        if (handle == null) {
+            throw new IllegalStateException(String.format("未找到Repository方法 '%s' 的实现", method));
+        }
+
+        if (writeBehind != null && writeBehind.handles(method) && offerWriteBehind(args[0])) {
+            return null;
+        }
+
+        if (!asyncMethods.isEmpty() && asyncMethods.contains(method)) {
+            return invokeAsync(method, handle, args);
+        }
+
+        return invokeDirect(method, handle, args);
+    }
+
+    /**
+     * 将插入的实体交给写后缓冲
+     *
+     * <p>
+     * 事务及 {@link RepositorySessionScope} 内的插入需要与同一范围内的其他操作一起提交或被读到，不进入缓冲。
+     *
+     * @return 已入队返回true，需要同步执行返回false
+     */
+    private boolean offerWriteBehind(Object entities) {
+        if (TransactionSynchronizationManager.isSynchronizationActive() || RepositorySessionScope.isActive()) {
+            return false;
+        }
+        return writeBehind.offer(entities);
+    }
+
+    /** 在调用线程上执行Repository方法 */
+    private Object invokeDirect(Method method, MethodHandle handle, Object[] args) throws Throwable {
+        if (listener == null) {
+            return invokeInSession(method, handle, args);
+        }
+
+        return invokeObserved(method, handle, args, invocationCallbacks.get(method));
+    }
+
+    /**
+     * 在 {@link RepositoryExecutor} 上执行返回 {@link CompletionStage} 的默认方法
+     *
+     * <p>
+     * 执行线程自行打开并释放非事务性Session，调用不加入调用线程的事务或 {@link RepositorySessionScope}。
+     * 默认方法返回时Session即被释放，因此默认方法应在执行线程上同步完成查询，例如返回 {@link CompletableFuture#completedFuture(Object)}。
+     * 执行器限制同时执行的调用数，超出连接池大小的调用在执行器中排队，不会阻塞在获取连接上。
+     */
+    @SuppressWarnings("unchecked")
+    private Object invokeAsync(Method method, MethodHandle handle, Object[] args) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return (CompletionStage<Object>) invokeDirect(method, handle, args);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable t) {
+                throw new CompletionException(t);
+            }
+        }, asyncExecutor).thenCompose(stage -> stage != null ? stage : CompletableFuture.completedFuture(null));
+    }
+
+    /** 在当前调用的Session中执行Repository方法 */
+    private Object invokeInSession(Method method, MethodHandle handle, Object[] args) throws Throwable {
+        if (!resultCaches.isEmpty() || !pageCountCaches.isEmpty()) {
+            ResultCache cache = resultCaches.get(method);
+            if (cache != null) {
+                return invokeCached(cache, method, handle, args);
+            }
+            PageCountCache countCache = pageCountCaches.get(method);
+            if (countCache != null) {
+                return invokeCounted(countCache, method, handle, args);
+            }
+            if (cacheEvictingMethods.contains(method)) {
+                try {
+                    return invokeUncached(method, handle, args);
+                } finally {
+                    evictResultCaches();
+                }
+            }
         }
 
-        StatelessSession session = null;
-        boolean isSynchronizationActive = TransactionSynchronizationManager.isSynchronizationActive();
-        boolean sessionCreatedHere = false;
+        return invokeUncached(method, handle, args);
+    }
+
+    /** 在当前调用的Session中执行Repository方法，不经过结果缓存 */
+    private Object invokeUncached(Method method, MethodHandle handle, Object[] args) throws Throwable {
+        if (sharding != null) {
+            return sharding.invoke(method, args,
+                    (shard, shardArgs) -> invokeOn(new ResourceKey(sessionFactory, shard), method, handle, shardArgs));
+        }
+
+        return invokeOn(resolveResourceKey(method), method, handle, args);
+    }
+
+    /** 在资源键对应的数据源上执行Repository方法 */
+    private Object invokeOn(ResourceKey key, Method method, MethodHandle handle, Object[] args) throws Throwable {
+        if (!streamMethods.isEmpty() && streamMethods.contains(method)) {
+            return invokeStream(key, method, handle, args);
+        }
 
+        StatelessSessionHolder holder = acquire(key);
         try {
-            // 获取或创建Session
-            if (isSynchronizationActive) {
-                // 事务性操作：使用事务绑定的Session
-                session = StatelessSessionUtils.getTransactionalSession(sessionFactory, dataSource);
-            } else {
-                // 非事务性操作：使用线程本地Session
-                session = threadLocalSession.get();
-                if (session == null || !session.isConnected()) {
-                    session = sessionFactory.openStatelessSession();
-                    threadLocalSession.set(session);
-                    sessionCreatedHere = true;
-                    log.debug("创建新的非事务性StatelessSession");
+            if (!collectionWriteMethods.isEmpty() && collectionWriteMethods.contains(method)) {
+                Integer batchSize = jdbcBatchSizes().get(method);
+                if (batchSize != null) {
+                    return JdbcBatchSupport.invoke(method, holder, key.getTargetSessionFactory(), constructorInvoker,
+                            handle, args[0], batchSize);
                 }
             }
+            return (Object) handle.invokeExact(repository(holder), args);
+        } finally {
+            release(holder);
+        }
+    }
+
+    /** 获取集合写方法的批量大小，首次调用时解析 */
+    private Map<Method, Integer> jdbcBatchSizes() {
+        Map<Method, Integer> batchSizes = this.jdbcBatchSizes;
+        if (batchSizes == null) {
+            batchSizes = JdbcBatchSupport.resolveBatchSizes(repositoryInterface, collectionWriteMethods,
+                    sessionFactory);
+            this.jdbcBatchSizes = batchSizes;
+        }
+        return batchSizes;
+    }
+
+    /**
+     * 通过结果缓存执行Repository查询方法
+     *
+     * <p>
+     * 命中时直接返回，不获取Session。非只读事务中绕过缓存，避免读到本事务的未提交修改或将其写入缓存。
+     */
+    private Object invokeCached(ResultCache cache, Method method, MethodHandle handle, Object[] args)
+            throws Throwable {
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return invokeUncached(method, handle, args);
+        }
+
+        Object key = ResultCache.key(args);
+        Object cached = cache.get(key);
+        if (cached != ResultCache.MISS) {
+            return cached;
+        }
+
+        long generation = cache.generation();
+        Object result = invokeUncached(method, handle, args);
+        cache.put(key, result, generation);
+        return result;
+    }
+
+    /**
+     * 通过总数缓存执行分页查询方法
+     *
+     * <p>
+     * 与结果缓存相同，非只读事务中绕过缓存。
+     */
+    private Object invokeCounted(PageCountCache cache, Method method, MethodHandle handle, Object[] args)
+            throws Throwable {
+        if (TransactionSynchronizationManager.isSynchronizationActive()
+                && !TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            return invokeUncached(method, handle, args);
+        }
+
+        return cache.invoke(args, pageArgs -> invokeUncached(method, handle, pageArgs));
+    }
+
+    /**
+     * 清空本Repository的全部结果缓存及总数缓存
+     *
+     * <p>
+     * 写操作在事务中执行时，事务结束后再次清空，丢弃事务提交前被并发查询加载的旧数据。
+     */
+    private void evictResultCaches() {
+        clearCaches();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    clearCaches();
+                }
+            });
+        }
+    }
+
+    private void clearCaches() {
+        resultCaches.values().forEach(ResultCache::clear);
+        pageCountCaches.values().forEach(PageCountCache::clear);
+    }
+
+    /**
+     * 执行返回 {@link Stream} 的Repository方法
+     *
+     * <p>
+     * 事务性Session在事务结束时关闭，结果流在事务内有效；非事务性Session的释放推迟到结果流关闭时，
+     * 并为本次调用独占的连接关闭自动提交，使驱动可以按fetch size使用服务端游标逐批读取。
+     */
+    @SuppressWarnings("unchecked")
+    private Object invokeStream(ResourceKey key, Method method, MethodHandle handle, Object[] args)
+            throws Throwable {
+        StatelessSessionHolder holder = acquire(key);
+        if (holder.isSynchronizedWithTransaction()) {
+            // 事务性Session由事务同步回调负责清理，无需释放
+            return (Object) handle.invokeExact(repository(holder), args);
+        }
+
+        final Stream<Object> stream;
+        try {
+            if (!RepositorySessionScope.isActive()) {
+                StatelessSessionUtils.beginCursorTransaction(holder);
+            }
+            stream = (Stream<Object>) (Object) handle.invokeExact(repository(holder), args);
+        } catch (Throwable t) {
+            release(holder);
+            throw t;
+        }
 
-            // 创建Repository实现实例并调用方法
-            Object repositoryImpl = constructorInvoker.apply(session);
-            return method.invoke(repositoryImpl, args);
+        if (stream == null) {
+            release(holder);
+            return null;
+        }
+        return ResultStreams.releaseOnClose(stream, () -> release(holder), method);
+    }
 
+    /** 计时执行Repository方法，并将耗时及异常报告给该方法的调用回调 */
+    private Object invokeObserved(Method method, MethodHandle handle, Object[] args,
+            MethodInvocationCallback callback) throws Throwable {
+        final long start = System.nanoTime();
+        Throwable failure = null;
+        try {
+            return invokeInSession(method, handle, args);
         } catch (Throwable t) {
-            throw ExceptionUtil.unwrapThrowable(t);
+            failure = t;
+            throw t;
         } finally {
-            // 清理非事务性Session
-            if (!isSynchronizationActive && sessionCreatedHere) {
-                StatelessSessionUtils.closeSession(session);
-                threadLocalSession.remove();
-                log.debug("清理非事务性StatelessSession");
+            callback.invocationCompleted(System.nanoTime() - start, failure);
+        }
+    }
+
+    /**
+     * 是否必须经由 {@link #invoke(Object, Method, Object[])} 分派该方法
+     *
+     * <p>
+     * 直接调用实现类的代理（如隐藏类代理）只能跳过不需要额外处理的方法：注册了调用监听器时所有方法都需要计时，
+     * 集合写方法可能需要分段执行（批量大小在首次调用时解析），返回 {@link Stream} 的方法需要推迟释放Session，
+     * 结果缓存及总数缓存的读写方法需要查询或清空缓存，可路由到只读副本的读方法及分片Repository的所有方法需要选择数据源，
+     * 返回 {@link CompletionStage} 的默认方法需要切换到异步执行器，写后缓冲的插入方法需要入队。
+     *
+     * @param method
+     *            Repository接口方法
+     * @return 需要经由调用处理器分派时返回true
+     */
+    boolean requiresInvocationHandler(Method method) {
+        return listener != null || sharding != null || collectionWriteMethods.contains(method)
+                || streamMethods.contains(method) || resultCaches.containsKey(method)
+                || pageCountCaches.containsKey(method)
+                || cacheEvictingMethods.contains(method) || replicaReadMethods.contains(method)
+                || asyncMethods.contains(method) || (writeBehind != null && writeBehind.handles(method));
+    }
+
+    /**
+     * 确定本次调用使用的数据源对应的资源键
+     *
+     * <p>
+     * 配置了 {@link ReadReplicaRouter} 时，读方法在非事务、非作用域调用及只读事务中使用副本；
+     * 写方法、读写事务及 {@link RepositorySessionScope} 内的调用使用主库，保证读己之写。
+     * 只读事务中首次读操作选择的副本由 {@link ReadReplicaRouter#determineReplica()} 作为事务资源绑定，
+     * 事务内后续读操作得到同一资源键，从而复用同一个事务性Session及连接。
+     *
+     * @param method
+     *            Repository接口方法
+     * @return 资源键
+     */
+    private ResourceKey resolveResourceKey(Method method) {
+        if (replicaRouter == null || !replicaReadMethods.contains(method)) {
+            return resourceKey;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+                return resourceKey;
             }
+        } else if (RepositorySessionScope.isActive()) {
+            return resourceKey;
+        }
+
+        DataSource replica = replicaRouter.determineReplica();
+        ResourceKey replicaKey = replicaKeys.get(replica);
+        return replicaKey != null ? replicaKey : new ResourceKey(sessionFactory, replica);
+    }
+
+    /**
+     * 获取当前调用使用的Session持有者
+     *
+     * <p>
+     * 事务中使用事务绑定的Session；处于 {@link RepositorySessionScope} 内时使用作用域共享的Session；
+     * 否则为本次调用新建Session，该Session只由调用栈持有，不绑定到线程。 每次成功调用后必须调用 {@link #release(StatelessSessionHolder)}。
+     *
+     * @return Session持有者
+     */
+    StatelessSessionHolder acquire() {
+        return acquire(resourceKey);
+    }
+
+    /**
+     * 获取指定数据源上当前调用使用的Session持有者
+     *
+     * @param key
+     *            数据源对应的资源键
+     * @return Session持有者
+     * @see #acquire()
+     */
+    private StatelessSessionHolder acquire(ResourceKey key) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 事务性操作：使用事务绑定的Session，由事务同步回调负责清理
+            return StatelessSessionUtils.getTransactionalSessionHolder(key, listener, lazyConnection);
+        }
+
+        // 非事务性操作：优先使用Repository Session作用域内共享的Session
+        StatelessSessionHolder holder = RepositorySessionScope.getSessionHolder(key, listener);
+        if (holder == null) {
+            holder = StatelessSessionUtils.openSession(key, listener);
+            log.debug("创建新的非事务性StatelessSession");
+        }
+        holder.requested();
+        return holder;
+    }
+
+    /**
+     * 获取绑定在Session持有者上的Repository实现类实例
+     *
+     * <p>
+     * 实现类实例缓存在Session持有者中，同一Session范围内复用。
+     *
+     * @param holder
+     *            {@link #acquire()} 返回的Session持有者
+     * @return Repository实现类实例
+     */
+    I repository(StatelessSessionHolder holder) {
+        return holder.getRepository(implementationClass, constructorInvoker);
+    }
+
+    /**
+     * 释放 {@link #acquire()} 获取的Session
+     *
+     * <p>
+     * 事务性Session由事务同步回调负责清理，作用域Session在作用域结束时关闭，其余非事务性Session在调用结束时关闭。
+     *
+     * @param holder
+     *            {@link #acquire()} 返回的Session持有者
+     */
+    void release(StatelessSessionHolder holder) {
+        if (holder.isSynchronizedWithTransaction()) {
+            return;
+        }
+
+        holder.released();
+        if (!holder.isOpen()) {
+            StatelessSessionUtils.releaseSession(holder);
+            log.debug("清理非事务性StatelessSession");
         }
     }
 }
@@ -17,6 +17,9 @@
  
 package github.luckygc.jakartadata.provider.hibernate;
 
+import github.luckygc.jakartadata.index.DataComponentsIndex;
+
+import jakarta.data.repository.Repository;
 import jakarta.persistence.Converter;
 import jakarta.persistence.Entity;
 import jakarta.persistence.MappedSuperclass;
@@ -27,15 +30,19 @@ import org.hibernate.jpa.HibernatePersistenceConfiguration;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
-import org.springframework.core.type.classreading.CachingMetadataReaderFactory;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.core.type.filter.AnnotationTypeFilter;
 import org.springframework.core.type.filter.TypeFilter;
 import org.springframework.util.ClassUtils;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -51,6 +58,13 @@ public class HibernateScanner {
     /** 转换器类型过滤器 用于识别标注了@Converter注解的属性转换器类 */
     private static final TypeFilter CONVERTER_TYPE_FILTER = new AnnotationTypeFilter(Converter.class, false);
 
+    /** Repository接口过滤器 用于识别标注了@Repository注解的类型，匹配后还需检查是否为接口 */
+    private static final TypeFilter REPOSITORY_TYPE_FILTER = new AnnotationTypeFilter(Repository.class, false);
+
+    /** 从索引读取的构造型 */
+    private static final String[] INDEXED_STEREOTYPES = {DataComponentsIndex.ENTITY,
+            DataComponentsIndex.MAPPED_SUPERCLASS, DataComponentsIndex.CONVERTER};
+
     /** 资源模式解析器 用于解析类路径下的资源文件 */
     private static final ResourcePatternResolver resourcePatternResolver = new PathMatchingResourcePatternResolver();
 
@@ -59,6 +73,7 @@ public class HibernateScanner {
      *
      * <p>
      * 该方法会扫描指定包路径下的所有类文件，识别标注了@Entity、@MappedSuperclass或@Converter注解的类， 并将这些类添加到Hibernate持久化配置中作为管理类。
+     * 类路径上存在 {@link DataComponentsIndex} 时直接读取索引，不再遍历类文件。
      *
      * @param configuration
      *            Hibernate持久化配置对象
@@ -69,8 +84,109 @@ public class HibernateScanner {
      */
     public static void scan(HibernatePersistenceConfiguration configuration, String... packagesToScan)
             throws HibernateException {
+        Set<String> managedClassNames = findManagedClassNames(packagesToScan);
+
+        // 获取类加载器用于并行加载扫描到的类
+        ClassLoader cl = resourcePatternResolver.getClassLoader();
+        List<Class<?>> managedClasses = managedClassNames.parallelStream().<Class<?>>map(className -> {
+            try {
+                return ClassUtils.forName(className, cl);
+            } catch (ClassNotFoundException | LinkageError ex) {
+                throw new MappingException("从类路径加载注解类失败: " + className, ex);
+            }
+        }).toList();
+
+        // 按类名顺序将管理类添加到Hibernate配置中，配置对象不是线程安全的
+        managedClasses.forEach(configuration::managedClass);
+    }
+
+    /**
+     * 查找指定包路径下的实体类、映射超类及属性转换器的类名
+     *
+     * <p>
+     * {@link DataComponentsIndex} 中有条目的包直接读取索引，其余包遍历类文件。AOT处理时也通过该方法确定需要注册反射提示的实体类。
+     *
+     * @param packagesToScan
+     *            要扫描的包路径数组
+     * @return 有序的类名集合
+     * @throws HibernateException
+     *             当扫描过程中发生错误时抛出
+     */
+    public static Set<String> findManagedClassNames(String... packagesToScan) throws HibernateException {
         // 使用TreeSet保证类名的有序性，便于调试和日志输出
         Set<String> managedClassNames = new TreeSet<>();
+        DataComponentsIndex index = DataComponentsIndex.load(resourcePatternResolver.getClassLoader());
+        List<String> unindexedPackages = new ArrayList<>();
+        for (String pkg : packagesToScan) {
+            if (index != null && index.hasCandidates(pkg)) {
+                for (String stereotype : INDEXED_STEREOTYPES) {
+                    managedClassNames.addAll(index.getCandidateTypes(pkg, stereotype));
+                }
+            } else {
+                unindexedPackages.add(pkg);
+            }
+        }
+        if (!unindexedPackages.isEmpty()) {
+            scanClasspath(managedClassNames, unindexedPackages.toArray(String[]::new));
+        }
+        return managedClassNames;
+    }
+
+    /**
+     * 查找指定包路径下标注了 {@link Repository} 的接口的类名
+     *
+     * <p>
+     * 与Repository注册时的扫描规则一致：{@link DataComponentsIndex} 中有条目的包直接读取索引，其余包遍历类文件。
+     *
+     * @param packagesToScan
+     *            要扫描的包路径数组
+     * @return 有序的接口名集合
+     * @throws HibernateException
+     *             当扫描过程中发生错误时抛出
+     */
+    public static Set<String> findRepositoryInterfaceNames(String... packagesToScan) throws HibernateException {
+        Set<String> repositoryNames = new TreeSet<>();
+        DataComponentsIndex index = DataComponentsIndex.load(resourcePatternResolver.getClassLoader());
+        List<String> unindexedPackages = new ArrayList<>();
+        for (String pkg : packagesToScan) {
+            if (index != null && index.hasCandidates(pkg)) {
+                repositoryNames.addAll(index.getCandidateTypes(pkg, DataComponentsIndex.REPOSITORY));
+            } else {
+                unindexedPackages.add(pkg);
+            }
+        }
+        if (unindexedPackages.isEmpty()) {
+            return repositoryNames;
+        }
+
+        List<Resource> resources = listClassResources(unindexedPackages.toArray(String[]::new));
+        MetadataReaderFactory readerFactory = new SimpleMetadataReaderFactory(resourcePatternResolver);
+        repositoryNames.addAll(resources.parallelStream().map(resource -> {
+            try {
+                MetadataReader reader = readerFactory.getMetadataReader(resource);
+                return reader.getClassMetadata().isInterface() && REPOSITORY_TYPE_FILTER.match(reader, readerFactory)
+                        ? reader.getClassMetadata().getClassName()
+                        : null;
+            } catch (FileNotFoundException ex) {
+                return null;
+            } catch (Throwable ex) {
+                throw new MappingException("读取候选Repository接口失败: " + resource, ex);
+            }
+        }).filter(Objects::nonNull).toList());
+        return repositoryNames;
+    }
+
+    /**
+     * 列出指定包路径下的所有类文件
+     *
+     * @param packagesToScan
+     *            要扫描的包路径数组
+     * @return 类文件资源
+     * @throws HibernateException
+     *             当扫描过程中发生错误时抛出
+     */
+    private static List<Resource> listClassResources(String... packagesToScan) throws HibernateException {
+        List<Resource> resources = new ArrayList<>();
         try {
             // 遍历每个要扫描的包路径
             for (String pkg : packagesToScan) {
@@ -78,43 +194,64 @@ public class HibernateScanner {
                 String pattern = ResourcePatternResolver.CLASSPATH_URL_PREFIX
                         + ClassUtils.convertClassNameToResourcePath(pkg) + RESOURCE_PATTERN;
                 // 获取匹配模式的所有资源文件
-                Resource[] resources = resourcePatternResolver.getResources(pattern);
-                // 创建元数据读取器工厂，用于读取类的元数据信息
-                MetadataReaderFactory readerFactory = new CachingMetadataReaderFactory(resourcePatternResolver);
-
-                // 遍历每个资源文件
-                for (Resource resource : resources) {
-                    try {
-                        // 读取类的元数据信息
-                        MetadataReader reader = readerFactory.getMetadataReader(resource);
-                        String className = reader.getClassMetadata().getClassName();
-
-                        // 检查是否匹配实体类型过滤器或转换器过滤器
-                        if (matchesEntityTypeFilter(reader, readerFactory)
-                                || CONVERTER_TYPE_FILTER.match(reader, readerFactory)) {
-                            managedClassNames.add(className);
-                        }
-                    } catch (FileNotFoundException ex) {
-                        // 忽略无法读取的资源文件
-                    } catch (Throwable ex) {
-                        throw new MappingException("读取候选组件类失败: " + resource, ex);
-                    }
-                }
+                resources.addAll(Arrays.asList(resourcePatternResolver.getResources(pattern)));
             }
         } catch (IOException ex) {
             throw new MappingException("扫描类路径中的未列出类失败", ex);
         }
+        return resources;
+    }
+
+    /**
+     * 遍历类路径，收集指定包路径下的实体类、映射超类及属性转换器
+     *
+     * <p>
+     * 先列出所有包路径下的类文件，再并行读取类的元数据。
+     *
+     * @param managedClassNames
+     *            收集结果
+     * @param packagesToScan
+     *            要扫描的包路径数组
+     * @throws HibernateException
+     *             当扫描过程中发生错误时抛出
+     */
+    private static void scanClasspath(Set<String> managedClassNames, String... packagesToScan)
+            throws HibernateException {
+        List<Resource> resources = listClassResources(packagesToScan);
+
+        // 元数据读取器工厂不缓存结果，可以在多个线程中共享
+        MetadataReaderFactory readerFactory = new SimpleMetadataReaderFactory(resourcePatternResolver);
+        managedClassNames.addAll(resources.parallelStream()
+                .map(resource -> readManagedClassName(resource, readerFactory)).filter(Objects::nonNull).toList());
+    }
 
+    /**
+     * 读取类文件的元数据，匹配实体类型过滤器或转换器过滤器时返回类名
+     *
+     * @param resource
+     *            类文件资源
+     * @param readerFactory
+     *            元数据读取器工厂
+     * @return 匹配时返回类名，否则返回null
+     * @throws HibernateException
+     *             当读取类元数据失败时抛出
+     */
+    private static String readManagedClassName(Resource resource, MetadataReaderFactory readerFactory)
+            throws HibernateException {
         try {
-            // 获取类加载器用于加载扫描到的类
-            ClassLoader cl = resourcePatternResolver.getClassLoader();
+            // 读取类的元数据信息
+            MetadataReader reader = readerFactory.getMetadataReader(resource);
 
-            // 将扫描到的管理类添加到Hibernate配置中
-            for (String className : managedClassNames) {
-                configuration.managedClass(ClassUtils.forName(className, cl));
+            // 检查是否匹配实体类型过滤器或转换器过滤器
+            if (matchesEntityTypeFilter(reader, readerFactory) || CONVERTER_TYPE_FILTER.match(reader, readerFactory)) {
+                return reader.getClassMetadata().getClassName();
             }
-        } catch (ClassNotFoundException ex) {
-            throw new MappingException("从类路径加载注解类失败", ex);
+            return null;
+        } catch (FileNotFoundException ex) {
+            // 忽略无法读取的资源文件
+            return null;
+        } catch (Throwable ex) {
+            throw new MappingException("读取候选组件类失败: " + resource, ex);
         }
     }
 
@@ -0,0 +1,373 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import github.luckygc.jakartadata.provider.hibernate.StatelessSessionUtils.StatelessSessionHolder;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.util.ClassUtils;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 隐藏类Repository生成器
+ *
+ * <p>
+ * 为Repository接口生成一个实现类，并通过 {@link MethodHandles.Lookup#defineHiddenClass} 定义为隐藏类。 生成的每个接口方法形如：
+ *
+ * <pre>
+ * public R method(A a, B b) {
+ *     StatelessSessionHolder holder = handler.acquire();
+ *     try {
+ *         return ((Repository_) handler.repository(holder)).method(a, b);
+ *     } finally {
+ *         handler.release(holder);
+ *     }
+ * }
+ * </pre>
+ *
+ * <p>
+ * 调用路径中没有参数数组、{@link Method} 对象和 {@link java.lang.reflect.InvocationHandler}，便于JIT内联。 对于
+ * {@link HibernateRepositoryProxy#requiresInvocationHandler(Method)} 返回true的方法（例如注册了调用监听器时），
+ * 生成的方法将参数装箱后委托给 {@link HibernateRepositoryProxy#invoke(Object, Method, Object[])}，与JDK代理的行为保持一致。
+ *
+ * @author luckygc
+ */
+public final class HiddenClassRepositoryGenerator {
+
+    private static final String HANDLER_FIELD = "handler";
+
+    private static final String METHODS_FIELD = "methods";
+
+    private static final String METHODS_DESCRIPTOR = Type.getDescriptor(Method[].class);
+
+    private static final String INVOKE_DESCRIPTOR = "(Ljava/lang/Object;Ljava/lang/reflect/Method;[Ljava/lang/Object;)"
+            + "Ljava/lang/Object;";
+
+    private static final String HANDLER_INTERNAL_NAME = Type.getInternalName(HibernateRepositoryProxy.class);
+
+    private static final String HANDLER_DESCRIPTOR = Type.getDescriptor(HibernateRepositoryProxy.class);
+
+    private static final String HOLDER_DESCRIPTOR = Type.getDescriptor(StatelessSessionHolder.class);
+
+    private static final String ACQUIRE_DESCRIPTOR = "()" + HOLDER_DESCRIPTOR;
+
+    private static final String REPOSITORY_DESCRIPTOR = "(" + HOLDER_DESCRIPTOR + ")Ljava/lang/Object;";
+
+    private static final String RELEASE_DESCRIPTOR = "(" + HOLDER_DESCRIPTOR + ")V";
+
+    private static final String GENERATED_CLASS_NAME = ClassUtils
+            .convertClassNameToResourcePath(HiddenClassRepositoryGenerator.class.getPackageName())
+            + "/GeneratedRepository";
+
+    private HiddenClassRepositoryGenerator() {
+        // Prevent Instantiation
+    }
+
+    /**
+     * 判断是否可以为Repository接口生成隐藏类
+     *
+     * <p>
+     * 隐藏类在本包中定义，要求Repository接口与实现类均为public，且对本类的类加载器可见。
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param handler
+     *            Repository代理
+     * @return 是否支持
+     */
+    public static boolean isSupported(Class<?> repositoryInterface, HibernateRepositoryProxy<?, ?> handler) {
+        final Class<?> implementationClass = handler.getImplementationClass();
+        ClassLoader classLoader = HiddenClassRepositoryGenerator.class.getClassLoader();
+        return Modifier.isPublic(repositoryInterface.getModifiers())
+                && Modifier.isPublic(implementationClass.getModifiers())
+                && ClassUtils.isVisible(repositoryInterface, classLoader)
+                && ClassUtils.isVisible(implementationClass, classLoader);
+    }
+
+    /**
+     * 生成隐藏类并创建Repository实例
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param handler
+     *            Repository代理，负责Session的获取与释放
+     * @param <T>
+     *            Repository接口类型
+     * @return Repository实例
+     * @throws IllegalStateException
+     *             如果生成或实例化失败
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T newInstance(Class<T> repositoryInterface, HibernateRepositoryProxy<T, ?> handler) {
+        try {
+            Method[] methods = collectMethods(repositoryInterface).values().toArray(new Method[0]);
+            byte[] bytecode = generate(repositoryInterface, methods, handler);
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(bytecode, true);
+            return (T) lookup
+                    .findConstructor(lookup.lookupClass(),
+                            MethodType.methodType(void.class, HibernateRepositoryProxy.class, Method[].class))
+                    .invoke(handler, methods);
+        } catch (Throwable e) {
+            throw new IllegalStateException(
+                    String.format("无法为Repository接口 '%s' 生成隐藏类代理", repositoryInterface.getName()), e);
+        }
+    }
+
+    /** 生成隐藏类字节码 */
+    private static byte[] generate(Class<?> repositoryInterface, Method[] methods,
+            HibernateRepositoryProxy<?, ?> handler) throws NoSuchMethodException {
+        final Class<?> implementationClass = handler.getImplementationClass();
+        ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+            @Override
+            protected String getCommonSuperClass(String type1, String type2) {
+                // 生成代码中合并的局部变量均按Object使用，无需加载类型
+                return "java/lang/Object";
+            }
+        };
+        cw.visit(Opcodes.V17, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SUPER, GENERATED_CLASS_NAME, null,
+                "java/lang/Object", new String[] {Type.getInternalName(repositoryInterface)});
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, HANDLER_FIELD, HANDLER_DESCRIPTOR, null, null)
+                .visitEnd();
+        cw.visitField(Opcodes.ACC_PRIVATE | Opcodes.ACC_FINAL, METHODS_FIELD, METHODS_DESCRIPTOR, null, null)
+                .visitEnd();
+
+        generateConstructor(cw);
+        for (int i = 0; i < methods.length; i++) {
+            Method method = methods[i];
+            if (handler.requiresInvocationHandler(method)) {
+                generateHandlerMethod(cw, method, i);
+            } else {
+                Method implementationMethod = implementationClass.getMethod(method.getName(),
+                        method.getParameterTypes());
+                generateMethod(cw, method, implementationMethod);
+            }
+        }
+
+        cw.visitEnd();
+        return cw.toByteArray();
+    }
+
+    private static void generateConstructor(ClassWriter cw) {
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>",
+                "(" + HANDLER_DESCRIPTOR + METHODS_DESCRIPTOR + ")V", null, null);
+        mv.visitCode();
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 1);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, GENERATED_CLASS_NAME, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 2);
+        mv.visitFieldInsn(Opcodes.PUTFIELD, GENERATED_CLASS_NAME, METHODS_FIELD, METHODS_DESCRIPTOR);
+        mv.visitInsn(Opcodes.RETURN);
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    private static void generateMethod(ClassWriter cw, Method method, Method implementationMethod) {
+        Type methodType = Type.getType(method);
+        final Type returnType = methodType.getReturnType();
+        Class<?>[] exceptionTypes = method.getExceptionTypes();
+        String[] exceptions = new String[exceptionTypes.length];
+        for (int i = 0; i < exceptionTypes.length; i++) {
+            exceptions[i] = Type.getInternalName(exceptionTypes[i]);
+        }
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, method.getName(), methodType.getDescriptor(), null,
+                exceptions);
+        mv.visitCode();
+
+        int holderSlot = 1;
+        for (Type argumentType : methodType.getArgumentTypes()) {
+            holderSlot += argumentType.getSize();
+        }
+        final int resultSlot = holderSlot + 1;
+
+        // StatelessSessionHolder holder = handler.acquire();
+        loadHandler(mv);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, HANDLER_INTERNAL_NAME, "acquire", ACQUIRE_DESCRIPTOR, false);
+        mv.visitVarInsn(Opcodes.ASTORE, holderSlot);
+
+        Label tryStart = new Label();
+        Label tryEnd = new Label();
+        Label finallyHandler = new Label();
+        mv.visitTryCatchBlock(tryStart, tryEnd, finallyHandler, null);
+
+        // result = ((Repository_) handler.repository(holder)).method(args...);
+        mv.visitLabel(tryStart);
+        final String implementationOwner = Type.getInternalName(implementationMethod.getDeclaringClass());
+        loadHandler(mv);
+        mv.visitVarInsn(Opcodes.ALOAD, holderSlot);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, HANDLER_INTERNAL_NAME, "repository", REPOSITORY_DESCRIPTOR, false);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, implementationOwner);
+        int slot = 1;
+        for (Type argumentType : methodType.getArgumentTypes()) {
+            mv.visitVarInsn(argumentType.getOpcode(Opcodes.ILOAD), slot);
+            slot += argumentType.getSize();
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, implementationOwner, implementationMethod.getName(),
+                Type.getMethodDescriptor(implementationMethod), false);
+        if (returnType.getSort() == Type.OBJECT || returnType.getSort() == Type.ARRAY) {
+            if (!method.getReturnType().isAssignableFrom(implementationMethod.getReturnType())) {
+                mv.visitTypeInsn(Opcodes.CHECKCAST, returnType.getInternalName());
+            }
+        }
+        if (returnType.getSort() != Type.VOID) {
+            mv.visitVarInsn(returnType.getOpcode(Opcodes.ISTORE), resultSlot);
+        }
+        mv.visitLabel(tryEnd);
+
+        // handler.release(holder); return result;
+        loadHandler(mv);
+        mv.visitVarInsn(Opcodes.ALOAD, holderSlot);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, HANDLER_INTERNAL_NAME, "release", RELEASE_DESCRIPTOR, false);
+        if (returnType.getSort() != Type.VOID) {
+            mv.visitVarInsn(returnType.getOpcode(Opcodes.ILOAD), resultSlot);
+        }
+        mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+
+        // finally: handler.release(holder); throw t;
+        mv.visitLabel(finallyHandler);
+        int throwableSlot = resultSlot + returnType.getSize();
+        mv.visitVarInsn(Opcodes.ASTORE, throwableSlot);
+        loadHandler(mv);
+        mv.visitVarInsn(Opcodes.ALOAD, holderSlot);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, HANDLER_INTERNAL_NAME, "release", RELEASE_DESCRIPTOR, false);
+        mv.visitVarInsn(Opcodes.ALOAD, throwableSlot);
+        mv.visitInsn(Opcodes.ATHROW);
+
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /**
+     * 生成委托给调用处理器的方法
+     *
+     * <pre>
+     * public R method(A a, B b) {
+     *     return (R) handler.invoke(this, methods[index], new Object[] {a, b});
+     * }
+     * </pre>
+     */
+    private static void generateHandlerMethod(ClassWriter cw, Method method, int index) {
+        Type methodType = Type.getType(method);
+        final Type returnType = methodType.getReturnType();
+        final Type[] argumentTypes = methodType.getArgumentTypes();
+
+        MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, method.getName(), methodType.getDescriptor(), null,
+                null);
+        mv.visitCode();
+
+        loadHandler(mv);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, GENERATED_CLASS_NAME, METHODS_FIELD, METHODS_DESCRIPTOR);
+        mv.visitLdcInsn(index);
+        mv.visitInsn(Opcodes.AALOAD);
+
+        mv.visitLdcInsn(argumentTypes.length);
+        mv.visitTypeInsn(Opcodes.ANEWARRAY, "java/lang/Object");
+        int slot = 1;
+        for (int i = 0; i < argumentTypes.length; i++) {
+            mv.visitInsn(Opcodes.DUP);
+            mv.visitLdcInsn(i);
+            mv.visitVarInsn(argumentTypes[i].getOpcode(Opcodes.ILOAD), slot);
+            box(mv, argumentTypes[i]);
+            mv.visitInsn(Opcodes.AASTORE);
+            slot += argumentTypes[i].getSize();
+        }
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, HANDLER_INTERNAL_NAME, "invoke", INVOKE_DESCRIPTOR, false);
+
+        switch (returnType.getSort()) {
+            case Type.VOID -> mv.visitInsn(Opcodes.POP);
+            case Type.OBJECT, Type.ARRAY -> mv.visitTypeInsn(Opcodes.CHECKCAST, returnType.getInternalName());
+            default -> unbox(mv, returnType);
+        }
+        mv.visitInsn(returnType.getOpcode(Opcodes.IRETURN));
+
+        mv.visitMaxs(0, 0);
+        mv.visitEnd();
+    }
+
+    /** 将栈顶的基本类型值装箱 */
+    private static void box(MethodVisitor mv, Type type) {
+        if (type.getSort() == Type.OBJECT || type.getSort() == Type.ARRAY) {
+            return;
+        }
+        String wrapper = wrapperInternalName(type);
+        mv.visitMethodInsn(Opcodes.INVOKESTATIC, wrapper, "valueOf",
+                "(" + type.getDescriptor() + ")L" + wrapper + ";", false);
+    }
+
+    /** 将栈顶的包装类型值拆箱为基本类型 */
+    private static void unbox(MethodVisitor mv, Type type) {
+        String wrapper = wrapperInternalName(type);
+        mv.visitTypeInsn(Opcodes.CHECKCAST, wrapper);
+        mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapper, type.getClassName() + "Value",
+                "()" + type.getDescriptor(), false);
+    }
+
+    private static String wrapperInternalName(Type type) {
+        return switch (type.getSort()) {
+            case Type.BOOLEAN -> "java/lang/Boolean";
+            case Type.CHAR -> "java/lang/Character";
+            case Type.BYTE -> "java/lang/Byte";
+            case Type.SHORT -> "java/lang/Short";
+            case Type.INT -> "java/lang/Integer";
+            case Type.FLOAT -> "java/lang/Float";
+            case Type.LONG -> "java/lang/Long";
+            case Type.DOUBLE -> "java/lang/Double";
+            default -> throw new IllegalArgumentException("不是基本类型: " + type);
+        };
+    }
+
+    private static void loadHandler(MethodVisitor mv) {
+        mv.visitVarInsn(Opcodes.ALOAD, 0);
+        mv.visitFieldInsn(Opcodes.GETFIELD, GENERATED_CLASS_NAME, HANDLER_FIELD, HANDLER_DESCRIPTOR);
+    }
+
+    /**
+     * 收集需要实现的接口方法
+     *
+     * <p>
+     * 按方法名与描述符去重，覆盖Repository接口及其所有父接口中的非静态方法。
+     */
+    private static Map<String, Method> collectMethods(Class<?> repositoryInterface) {
+        Map<String, Method> methods = new LinkedHashMap<>();
+        for (Class<?> declaringInterface : HibernateRepositoryProxy.collectInterfaces(repositoryInterface)) {
+            for (Method method : declaringInterface.getDeclaredMethods()) {
+                if (Modifier.isStatic(method.getModifiers()) || Modifier.isPrivate(method.getModifiers())
+                        || method.isSynthetic()) {
+                    continue;
+                }
+                methods.putIfAbsent(method.getName() + Type.getMethodDescriptor(method), method);
+            }
+        }
+        return methods;
+    }
+}
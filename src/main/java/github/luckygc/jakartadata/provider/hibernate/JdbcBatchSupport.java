@@ -0,0 +1,415 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import github.luckygc.jakartadata.ExceptionUtil;
+import github.luckygc.jakartadata.annotation.JdbcBatch;
+import github.luckygc.jakartadata.provider.hibernate.StatelessSessionUtils.StatelessSessionHolder;
+
+import jakarta.data.exceptions.DataException;
+import jakarta.data.exceptions.EntityExistsException;
+import jakarta.data.exceptions.OptimisticLockingFailureException;
+import jakarta.data.repository.Delete;
+import jakarta.data.repository.Insert;
+import jakarta.data.repository.Save;
+import jakarta.data.repository.Update;
+
+import jakarta.persistence.PersistenceException;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.StaleStateException;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.metamodel.mapping.BasicEntityIdentifierMapping;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.sql.model.MutationOperationGroup;
+import org.hibernate.sql.model.SelfExecutingUpdateOperation;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.util.ConcurrentReferenceHashMap;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Repository集合写方法的JDBC分段批量执行
+ *
+ * <p>
+ * Hibernate只在其自身的事务处于活动状态时才对StatelessSession的写操作使用JDBC批处理，而本框架的Session运行在Spring管理或自动提交的连接上，
+ * {@code insertMultiple} 等方法因此逐行执行。本类在当前连接上打开一个专用的StatelessSession并开启Hibernate事务，
+ * 将集合按配置的批量大小切分后逐段调用实现方法：Hibernate将批次大小设为分段大小，每段在最后一条语句加入时作为一个JDBC批次发送， 段尾即为批次的刷新边界。
+ *
+ * <p>
+ * 在Spring事务中，专用Session使用屏蔽了 {@code commit}/{@code rollback} 的连接代理，提交与回滚仍由Spring负责；
+ * 非事务调用时整个集合在一个本地事务中写入，失败时整体回滚。
+ *
+ * <p>
+ * {@code @Save} 方法由Hibernate生成方言原生的upsert语句（如H2、Oracle、SQL Server的 {@code MERGE}，PostgreSQL的
+ * {@code MERGE} 或 {@code INSERT ... ON CONFLICT}），同样按段批量发送。方言没有原生upsert时，Hibernate对每个实体先执行
+ * {@code UPDATE}，影响行数为0时再执行 {@code INSERT}，语句无法加入批次；此时每段先按主键一次查出已存在的实体，
+ * 再分别批量执行 {@code UPDATE} 与 {@code INSERT}。该回退方式在查询与写入之间不加锁，并发插入相同主键的行时写入因主键冲突失败。
+ *
+ * @author luckygc
+ */
+final class JdbcBatchSupport {
+
+    /** 实体持久化器到其upsert是否只能逐行执行的缓存 */
+    private static final Map<EntityPersister, Boolean> rowByRowUpserts = new ConcurrentReferenceHashMap<>();
+
+    /** 对一段实体执行写操作 */
+    @FunctionalInterface
+    private interface ChunkCall {
+
+        Object invoke(Object chunk) throws Throwable;
+    }
+
+    private JdbcBatchSupport() {
+        // Prevent Instantiation
+    }
+
+    /**
+     * 查找可能分段批量执行的集合写方法
+     *
+     * @param methods
+     *            Repository接口方法
+     * @return 参数为集合或数组的生命周期写方法
+     */
+    static Set<Method> findCollectionWrites(Iterable<Method> methods) {
+        Set<Method> collectionWrites = new HashSet<>();
+        for (Method method : methods) {
+            if (isCollectionWrite(method)) {
+                collectionWrites.add(method);
+            }
+        }
+        return Set.copyOf(collectionWrites);
+    }
+
+    /**
+     * 解析Repository中集合写方法的批量大小
+     *
+     * <p>
+     * 优先级：方法上的 {@link JdbcBatch} &gt; Repository接口上的 {@link JdbcBatch} &gt; SessionFactory的
+     * {@link AvailableSettings#STATEMENT_BATCH_SIZE}。 仅保留批量大小大于0的方法。
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param methods
+     *            Repository接口方法
+     * @param sessionFactory
+     *            SessionFactory
+     * @return 方法到批量大小的不可变映射
+     */
+    static Map<Method, Integer> resolveBatchSizes(Class<?> repositoryInterface, Iterable<Method> methods,
+            SessionFactory sessionFactory) {
+        JdbcBatch typeLevel = AnnotatedElementUtils.findMergedAnnotation(repositoryInterface, JdbcBatch.class);
+        int defaultSize = typeLevel != null ? typeLevel.size()
+                : ConfigurationHelper.getInt(AvailableSettings.STATEMENT_BATCH_SIZE, sessionFactory.getProperties(),
+                        0);
+
+        Map<Method, Integer> batchSizes = new HashMap<>();
+        for (Method method : methods) {
+            if (!isCollectionWrite(method)) {
+                continue;
+            }
+            JdbcBatch methodLevel = AnnotatedElementUtils.findMergedAnnotation(method, JdbcBatch.class);
+            int size = methodLevel != null ? methodLevel.size() : defaultSize;
+            if (size > 0) {
+                batchSizes.put(method, size);
+            }
+        }
+        return Map.copyOf(batchSizes);
+    }
+
+    /** 是否为参数为集合或数组的生命周期写方法 */
+    private static boolean isCollectionWrite(Method method) {
+        if (method.getParameterCount() != 1) {
+            return false;
+        }
+        Class<?> parameterType = method.getParameterTypes()[0];
+        if (!List.class.isAssignableFrom(parameterType) && !parameterType.isArray()) {
+            return false;
+        }
+        return method.isAnnotationPresent(Insert.class) || method.isAnnotationPresent(Update.class)
+                || method.isAnnotationPresent(Delete.class) || method.isAnnotationPresent(Save.class);
+    }
+
+    /**
+     * 在专用Session中分段批量执行集合写方法
+     *
+     * @param method
+     *            Repository接口方法
+     * @param holder
+     *            当前调用的Session持有者，提供JDBC连接
+     * @param sessionFactory
+     *            SessionFactory
+     * @param constructorInvoker
+     *            Repository实现类构造函数
+     * @param handle
+     *            实现方法句柄，类型为 (Object, Object[])Object
+     * @param entities
+     *            实体集合或数组
+     * @param batchSize
+     *            每段大小
+     * @return 合并后的返回值，方法无返回值时为null
+     * @throws Throwable
+     *             实现方法或提交时抛出的异常，已转换为Jakarta Data异常
+     */
+    static Object invoke(Method method, StatelessSessionHolder holder, SessionFactory sessionFactory,
+            Function<StatelessSession, ?> constructorInvoker, MethodHandle handle, Object entities, int batchSize)
+            throws Throwable {
+        Connection connection = holder.getStatelessSession().doReturningWork(c -> c);
+        if (holder.isSynchronizedWithTransaction()) {
+            connection = transactionManagedConnection(connection);
+        }
+
+        try (StatelessSession session = sessionFactory.openStatelessSession(connection)) {
+            Object repository = constructorInvoker.apply(session);
+            ChunkCall call = chunk -> (Object) handle.invokeExact(repository, new Object[] {chunk});
+            if (method.isAnnotationPresent(Save.class)) {
+                boolean returnsChunk = method.getReturnType() != void.class;
+                ChunkCall nativeCall = call;
+                call = chunk -> chunk != null && isRowByRowUpsert(sessionFactory, chunk)
+                        ? upsertSeparately(session, chunk, returnsChunk)
+                        : nativeCall.invoke(chunk);
+            }
+            Transaction transaction = session.beginTransaction();
+            try {
+                Object result = invokeChunked(call, entities, batchSize);
+                transaction.commit();
+                return result;
+            } catch (Throwable t) {
+                if (transaction.getStatus().canRollback()) {
+                    transaction.rollback();
+                }
+                throw translate(method, t);
+            }
+        }
+    }
+
+    /** 逐段调用实现方法并合并返回值 */
+    private static Object invokeChunked(ChunkCall call, Object entities, int batchSize) throws Throwable {
+        if (entities == null) {
+            return call.invoke(null);
+        }
+        if (entities instanceof List<?> list) {
+            if (list.size() <= batchSize) {
+                return call.invoke(entities);
+            }
+            List<Object> results = null;
+            boolean returnsInput = true;
+            for (int from = 0; from < list.size(); from += batchSize) {
+                List<?> chunk = list.subList(from, Math.min(from + batchSize, list.size()));
+                Object result = call.invoke(chunk);
+                returnsInput &= result == chunk;
+                if (result instanceof List<?> chunkResult) {
+                    if (results == null) {
+                        results = new ArrayList<>(list.size());
+                    }
+                    results.addAll(chunkResult);
+                }
+            }
+            // 实现方法原样返回参数时，保持返回参数本身
+            return returnsInput ? entities : results;
+        }
+
+        int length = Array.getLength(entities);
+        if (length <= batchSize) {
+            return call.invoke(entities);
+        }
+        Object results = null;
+        for (int from = 0; from < length; from += batchSize) {
+            int chunkLength = Math.min(batchSize, length - from);
+            Object chunk = Array.newInstance(entities.getClass().getComponentType(), chunkLength);
+            System.arraycopy(entities, from, chunk, 0, chunkLength);
+            Object result = call.invoke(chunk);
+            if (result != null && result.getClass().isArray()) {
+                if (results == null) {
+                    results = Array.newInstance(result.getClass().getComponentType(), length);
+                }
+                System.arraycopy(result, 0, results, from, chunkLength);
+            }
+        }
+        return results;
+    }
+
+    /** 段内是否有实体的upsert只能由Hibernate逐行执行 */
+    private static boolean isRowByRowUpsert(SessionFactory sessionFactory, Object chunk) {
+        SessionFactoryImplementor factory = sessionFactory.unwrap(SessionFactoryImplementor.class);
+        for (Object entity : asList(chunk)) {
+            if (entity != null && rowByRowUpserts.computeIfAbsent(
+                    factory.getMappingMetamodel().getEntityDescriptor(entity.getClass()),
+                    JdbcBatchSupport::hasSelfExecutingUpsert)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 实体的upsert是否包含自行执行的操作
+     *
+     * <p>
+     * 方言不支持原生upsert时，Hibernate以 {@link SelfExecutingUpdateOperation} 先更新后插入，绕过JDBC批处理。 动态更新的实体没有静态操作组，交由Hibernate处理。
+     */
+    private static boolean hasSelfExecutingUpsert(EntityPersister persister) {
+        MutationOperationGroup operations = persister.getMergeCoordinator().getStaticMutationOperationGroup();
+        if (operations == null) {
+            return false;
+        }
+
+        for (int i = 0; i < operations.getNumberOfOperations(); i++) {
+            if (operations.getOperation(i) instanceof SelfExecutingUpdateOperation) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 不使用原生upsert写入一段实体
+     *
+     * <p>
+     * 按实体类型一次查出已存在的主键，已存在的实体批量更新，其余实体批量插入，主键为null的实体直接插入。
+     * 同一段中主键相同的实体只写入最后一个，与逐个保存的最终结果一致。
+     *
+     * @return 有返回值时返回该段实体，与Hibernate生成的实现方法一致
+     */
+    private static Object upsertSeparately(StatelessSession session, Object chunk, boolean returnsChunk) {
+        Map<Class<?>, List<Object>> entitiesByType = new LinkedHashMap<>();
+        for (Object entity : asList(chunk)) {
+            if (entity == null) {
+                throw new NullPointerException("Null entity");
+            }
+            entitiesByType.computeIfAbsent(entity.getClass(), type -> new ArrayList<>()).add(entity);
+        }
+
+        for (Map.Entry<Class<?>, List<Object>> entry : entitiesByType.entrySet()) {
+            List<Object> inserts = new ArrayList<>();
+            Map<Object, Object> identified = new LinkedHashMap<>();
+            for (Object entity : entry.getValue()) {
+                Object id = session.getFactory().getPersistenceUnitUtil().getIdentifier(entity);
+                if (id == null) {
+                    inserts.add(entity);
+                } else {
+                    identified.put(id, entity);
+                }
+            }
+
+            List<Object> updates = new ArrayList<>(identified.size());
+            if (!identified.isEmpty()) {
+                Set<Object> existing = findExistingIds(session, entry.getKey(), identified.keySet());
+                for (Map.Entry<Object, Object> candidate : identified.entrySet()) {
+                    (existing.contains(candidate.getKey()) ? updates : inserts).add(candidate.getValue());
+                }
+            }
+            session.updateMultiple(updates);
+            session.insertMultiple(inserts);
+        }
+        return returnsChunk ? chunk : null;
+    }
+
+    /**
+     * 查询已存在的主键
+     *
+     * <p>
+     * 单列主键只查询主键列，不加载实体；复合主键按主键加载实体判断是否存在。
+     */
+    private static Set<Object> findExistingIds(StatelessSession session, Class<?> entityType, Set<Object> ids) {
+        EntityPersister persister = session.getFactory().unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(entityType);
+        if (persister.getIdentifierMapping() instanceof BasicEntityIdentifierMapping) {
+            String hql = "select id(e) from " + persister.getJpaEntityName() + " e where id(e) in :ids";
+            return new HashSet<>(session.createSelectionQuery(hql, Object.class).setParameterList("ids", ids)
+                    .getResultList());
+        }
+
+        List<Object> idList = new ArrayList<>(ids);
+        List<?> entities = session.getMultiple(entityType, idList);
+        Set<Object> existing = new HashSet<>();
+        for (int i = 0; i < idList.size(); i++) {
+            if (entities.get(i) != null) {
+                existing.add(idList.get(i));
+            }
+        }
+        return existing;
+    }
+
+    /** 将集合或数组参数视为列表 */
+    private static List<?> asList(Object entities) {
+        return entities instanceof List<?> list ? list : Arrays.asList((Object[]) entities);
+    }
+
+    /**
+     * 转换提交时执行剩余批次抛出的Hibernate异常，规则与Hibernate生成的实现类一致
+     *
+     * <p>
+     * 实现方法内抛出的异常已经是Jakarta Data异常，原样返回。
+     */
+    private static Throwable translate(Method method, Throwable t) {
+        if (t instanceof StaleStateException) {
+            return new OptimisticLockingFailureException(t.getMessage(), t);
+        }
+        if (t instanceof ConstraintViolationException && method.isAnnotationPresent(Insert.class)) {
+            return new EntityExistsException(t.getMessage(), t);
+        }
+        if (t instanceof PersistenceException) {
+            return new DataException(t.getMessage(), t);
+        }
+        return t;
+    }
+
+    /**
+     * 创建由Spring事务管理的连接代理
+     *
+     * <p>
+     * 屏蔽无参的 {@code commit}、{@code rollback} 与 {@code close}，使Hibernate事务的结束只执行剩余批次而不结束Spring事务。
+     */
+    private static Connection transactionManagedConnection(Connection target) {
+        return (Connection) Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+                new Class<?>[] {ConnectionProxy.class}, (proxy, method, args) -> {
+                    String name = method.getName();
+                    if ("close".equals(name) || (args == null && ("commit".equals(name) || "rollback".equals(name)))) {
+                        return null;
+                    }
+                    if ("getTargetConnection".equals(name)) {
+                        return target;
+                    }
+                    try {
+                        return method.invoke(target, args);
+                    } catch (Throwable t) {
+                        throw ExceptionUtil.unwrapThrowable(t);
+                    }
+                });
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import github.luckygc.jakartadata.ExceptionUtil;
+
+import org.hibernate.StatelessSession;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.springframework.beans.factory.BeanFactory;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 延迟初始化的Repository代理
+ *
+ * <p>
+ * 创建时只保存Repository接口和Bean工厂，首次调用Repository方法时才创建 {@link HibernateRepositoryProxy}： 解析SessionFactory与DataSource、
+ * 加载Hibernate生成的实现类并构建方法句柄。初始化只执行一次，并发的首次调用会等待同一次初始化完成。 {@link Object} 的方法不会触发初始化。
+ *
+ * @param <T>
+ *            Repository接口类型
+ * @author luckygc
+ */
+public class LazyRepositoryProxy<T> implements InvocationHandler {
+
+    private final Class<T> repositoryInterface;
+
+    private final Supplier<HibernateRepositoryProxy<T, ?>> delegateFactory;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile HibernateRepositoryProxy<T, ?> delegate;
+
+    /**
+     * 构造函数
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param beanFactory
+     *            Spring Bean工厂，首次调用时用于获取SessionFactory和DataSource
+     */
+    public LazyRepositoryProxy(@NonNull Class<T> repositoryInterface, @NonNull BeanFactory beanFactory) {
+        this(repositoryInterface, beanFactory, null);
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param beanFactory
+     *            Spring Bean工厂，首次调用时用于获取SessionFactory和DataSource
+     * @param implementationFactory
+     *            实现类的创建函数，为null时初始化时创建构造函数调用器
+     */
+    public LazyRepositoryProxy(@NonNull Class<T> repositoryInterface, @NonNull BeanFactory beanFactory,
+            @Nullable Function<StatelessSession, ? extends T> implementationFactory) {
+        this(repositoryInterface,
+                () -> new HibernateRepositoryProxy<>(repositoryInterface, beanFactory, implementationFactory));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param delegateFactory
+     *            首次调用时创建 {@link HibernateRepositoryProxy} 的函数
+     */
+    public LazyRepositoryProxy(@NonNull Class<T> repositoryInterface,
+            @NonNull Supplier<HibernateRepositoryProxy<T, ?>> delegateFactory) {
+        this.repositoryInterface = repositoryInterface;
+        this.delegateFactory = delegateFactory;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (Object.class.equals(method.getDeclaringClass())) {
+            try {
+                return method.invoke(this, args);
+            } catch (Throwable t) {
+                throw ExceptionUtil.unwrapThrowable(t);
+            }
+        }
+
+        return getDelegate().invoke(proxy, method, args);
+    }
+
+    /** 是否已完成初始化 */
+    public boolean isInitialized() {
+        return delegate != null;
+    }
+
+    private HibernateRepositoryProxy<T, ?> getDelegate() {
+        HibernateRepositoryProxy<T, ?> result = delegate;
+        if (result != null) {
+            return result;
+        }
+
+        lock.lock();
+        try {
+            result = delegate;
+            if (result == null) {
+                result = delegateFactory.get();
+                delegate = result;
+            }
+            return result;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "LazyRepositoryProxy[" + repositoryInterface.getName() + "]";
+    }
+}
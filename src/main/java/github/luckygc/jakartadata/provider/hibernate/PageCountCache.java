@@ -0,0 +1,178 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import github.luckygc.jakartadata.annotation.CachedCount;
+import github.luckygc.jakartadata.annotation.CachedResult;
+
+import jakarta.data.Order;
+import jakarta.data.Sort;
+import jakarta.data.page.Page;
+import jakarta.data.page.PageRequest;
+import jakarta.data.page.impl.PageRecord;
+
+import java.lang.reflect.Method;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 分页查询总数缓存
+ *
+ * <p>
+ * 为标注了 {@link CachedCount} 的偏移分页方法缓存count查询的结果。缓存键只包含过滤条件参数，不包含 {@link PageRequest} 及排序参数，
+ * 因此同一条件下翻页、调整页大小或切换排序都复用同一个总数。命中时以不要求总数的 {@code PageRequest} 执行查询，
+ * 再用缓存的总数组装 {@link Page}。
+ *
+ * <p>
+ * 当前页的内容可以校验缓存的总数：不满一页时总数可以直接算出；满页时总数不能小于已读到的位置，空页时总数不能超过页的起始位置。
+ * 校验失败说明缓存已过期，重新执行带count的查询。
+ *
+ * @author luckygc
+ */
+final class PageCountCache {
+
+    private final ResultCache counts;
+
+    /** {@link PageRequest} 参数的下标 */
+    private final int pageRequestIndex;
+
+    /** 参与缓存键的参数下标 */
+    private final int[] keyIndexes;
+
+    private PageCountCache(CachedCount config, int pageRequestIndex, int[] keyIndexes) {
+        this.counts = new ResultCache(config.ttl(), config.timeUnit(), config.maxEntries());
+        this.pageRequestIndex = pageRequestIndex;
+        this.keyIndexes = keyIndexes;
+    }
+
+    /** 执行分页查询 */
+    @FunctionalInterface
+    interface PageQuery {
+
+        Object load(Object[] args) throws Throwable;
+    }
+
+    /**
+     * 为标注了 {@link CachedCount} 的方法创建总数缓存
+     *
+     * @param methods
+     *            Repository接口方法
+     * @return 方法到总数缓存的不可变映射
+     * @throws IllegalStateException
+     *             如果注解标注在不返回 {@link Page}、没有 {@link PageRequest} 参数或同时标注了 {@link CachedResult} 的方法上
+     */
+    static Map<Method, PageCountCache> createCaches(Iterable<Method> methods) {
+        Map<Method, PageCountCache> caches = new HashMap<>();
+        for (Method method : methods) {
+            CachedCount config = method.getAnnotation(CachedCount.class);
+            if (config == null) {
+                continue;
+            }
+            int pageRequestIndex = List.of(method.getParameterTypes()).indexOf(PageRequest.class);
+            if (method.getReturnType() != Page.class || pageRequestIndex < 0
+                    || method.isAnnotationPresent(CachedResult.class)) {
+                throw new IllegalStateException(String.format(
+                        "@CachedCount 只能用于有PageRequest参数且返回Page的查询方法，且不能与@CachedResult同时使用: '%s'", method));
+            }
+            caches.put(method, new PageCountCache(config, pageRequestIndex, keyIndexes(method)));
+        }
+        return Map.copyOf(caches);
+    }
+
+    /** 过滤条件参数的下标，排除分页及排序参数 */
+    private static int[] keyIndexes(Method method) {
+        Class<?>[] types = method.getParameterTypes();
+        int count = 0;
+        int[] indexes = new int[types.length];
+        for (int i = 0; i < types.length; i++) {
+            Class<?> type = types[i];
+            if (type != PageRequest.class && type != Order.class && type != Sort.class && type != Sort[].class) {
+                indexes[count++] = i;
+            }
+        }
+        int[] result = new int[count];
+        System.arraycopy(indexes, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * 执行分页查询，尽可能使用缓存的总数
+     *
+     * @param args
+     *            方法参数
+     * @param query
+     *            以给定参数执行查询的回调
+     * @return 分页结果
+     * @throws Throwable
+     *             查询抛出的异常
+     */
+    Object invoke(Object[] args, PageQuery query) throws Throwable {
+        PageRequest pageRequest = (PageRequest) args[pageRequestIndex];
+        if (pageRequest == null || !pageRequest.requestTotal() || pageRequest.mode() != PageRequest.Mode.OFFSET) {
+            return query.load(args);
+        }
+
+        Object key = key(args);
+        long generation = counts.generation();
+        Object cached = counts.get(key);
+        if (cached instanceof Long total) {
+            Object[] pageArgs = args.clone();
+            pageArgs[pageRequestIndex] = pageRequest.withoutTotal();
+            Page<?> page = (Page<?>) query.load(pageArgs);
+            Page<?> result = withTotal(pageRequest, page, total, key, generation);
+            if (result != null) {
+                return result;
+            }
+        }
+
+        Page<?> page = (Page<?>) query.load(args);
+        if (page != null && page.hasTotals()) {
+            counts.put(key, page.totalElements(), generation);
+        }
+        return page;
+    }
+
+    /** 用缓存的总数组装分页结果，总数与当前页矛盾时返回null */
+    private <E> Page<E> withTotal(PageRequest pageRequest, Page<E> page, long total, Object key, long generation) {
+        long offset = (pageRequest.page() - 1) * pageRequest.size();
+        List<E> content = page.content();
+        if (content.size() < pageRequest.size() && (!content.isEmpty() || offset == 0)) {
+            long exact = offset + content.size();
+            if (exact != total) {
+                counts.put(key, exact, generation);
+            }
+            return new PageRecord<>(pageRequest, content, exact);
+        }
+        boolean consistent = content.isEmpty() ? total <= offset : total >= offset + content.size();
+        return consistent ? new PageRecord<>(pageRequest, content, total) : null;
+    }
+
+    private Object key(Object[] args) {
+        Object[] keyArgs = new Object[keyIndexes.length];
+        for (int i = 0; i < keyIndexes.length; i++) {
+            keyArgs[i] = args[keyIndexes[i]];
+        }
+        return ResultCache.key(keyArgs);
+    }
+
+    /** 清空总数缓存并使进行中的加载失效 */
+    void clear() {
+        counts.clear();
+    }
+}
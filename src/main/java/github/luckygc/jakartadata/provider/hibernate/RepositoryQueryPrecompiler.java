@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import jakarta.data.repository.Query;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.QuerySettings;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.internal.util.config.ConfigurationHelper;
+import org.hibernate.query.spi.QueryEngine;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.ResolvableType;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Repository查询预编译
+ *
+ * <p>
+ * 收集Repository接口中 {@link Query} 方法的HQL，在SessionFactory构建完成后并行解析并放入Hibernate的查询解释缓存，
+ * 首次调用这些方法时不再解析HQL。HQL取自Hibernate注解处理器在实现类中生成的查询常量，JDQL已被转换为完整的HQL；
+ * 缓存键中的结果类型与生成代码创建查询时传入的类型一致。{@code @Find} 等方法由生成代码通过Criteria API构建，不经过HQL解析，无需预编译。
+ *
+ * @author luckygc
+ * @see SessionFactoryBean#setRepositoryPackagesToPrecompile(String[])
+ */
+public final class RepositoryQueryPrecompiler {
+
+    private static final Logger log = LoggerFactory.getLogger(RepositoryQueryPrecompiler.class);
+
+    private RepositoryQueryPrecompiler() {
+    }
+
+    /**
+     * 查找指定包路径下所有Repository接口的查询
+     *
+     * @param packagesToScan
+     *            Repository接口所在的包路径
+     * @return 查询列表
+     */
+    public static List<RepositoryQuery> findQueries(String... packagesToScan) {
+        ClassLoader classLoader = ClassUtils.getDefaultClassLoader();
+        List<Class<?>> repositoryInterfaces = new ArrayList<>();
+        for (String className : HibernateScanner.findRepositoryInterfaceNames(packagesToScan)) {
+            try {
+                repositoryInterfaces.add(ClassUtils.forName(className, classLoader));
+            } catch (ClassNotFoundException | LinkageError ex) {
+                log.warn("无法加载Repository接口 '{}'，跳过其查询预编译", className, ex);
+            }
+        }
+        return findQueries(repositoryInterfaces);
+    }
+
+    /**
+     * 查找Repository接口及其父接口中的查询
+     *
+     * @param repositoryInterfaces
+     *            Repository接口
+     * @return 查询列表
+     */
+    public static List<RepositoryQuery> findQueries(@NonNull Collection<Class<?>> repositoryInterfaces) {
+        List<RepositoryQuery> queries = new ArrayList<>();
+        for (Class<?> repositoryInterface : repositoryInterfaces) {
+            Class<?> implementationClass;
+            try {
+                implementationClass = ClassUtils.forName(repositoryInterface.getName() + "_",
+                        repositoryInterface.getClassLoader());
+            } catch (ClassNotFoundException | LinkageError ex) {
+                log.warn("未找到Repository接口 '{}' 的Hibernate生成实现类，跳过其查询预编译", repositoryInterface.getName());
+                continue;
+            }
+
+            for (Class<?> declaringInterface : HibernateRepositoryProxy.collectInterfaces(repositoryInterface)) {
+                for (Method method : declaringInterface.getDeclaredMethods()) {
+                    Query query = method.getAnnotation(Query.class);
+                    if (query != null) {
+                        String hql = resolveHql(implementationClass, method, query);
+                        queries.add(new RepositoryQuery(method, hql, isMutation(hql) ? null : resultType(method)));
+                    }
+                }
+            }
+        }
+        return queries;
+    }
+
+    /**
+     * 能容纳全部Repository查询的查询计划缓存大小
+     *
+     * <p>
+     * 在Hibernate默认大小之上为每个查询预留一个位置，HQL解释与查询计划分别使用该大小作为上限。
+     *
+     * @param queryCount
+     *            Repository查询数
+     * @return 查询计划缓存大小
+     */
+    public static int planCacheSize(int queryCount) {
+        return QueryEngine.DEFAULT_QUERY_PLAN_MAX_COUNT + queryCount;
+    }
+
+    /**
+     * 并行解析查询并放入SessionFactory的查询解释缓存
+     *
+     * <p>
+     * 单个查询解析失败不影响其他查询，失败的查询记录在报告中并输出警告日志。
+     *
+     * @param sessionFactory
+     *            构建完成的SessionFactory
+     * @param queries
+     *            {@link #findQueries} 返回的查询
+     * @return 预编译报告
+     */
+    public static Report precompile(@NonNull SessionFactory sessionFactory, @NonNull List<RepositoryQuery> queries) {
+        final long start = System.nanoTime();
+        QueryEngine queryEngine = sessionFactory.unwrap(SessionFactoryImplementor.class).getQueryEngine();
+        List<Failure> failures = queries.parallelStream().map(query -> {
+            try {
+                queryEngine.interpretHql(query.hql(), query.resultType());
+                return null;
+            } catch (RuntimeException ex) {
+                log.warn("预编译Repository查询失败: {} [{}]", query.method(), query.hql(), ex);
+                return new Failure(query, ex);
+            }
+        }).filter(Objects::nonNull).toList();
+
+        int cachedInterpretations = queryEngine.getInterpretationCache().getNumberOfCachedHqlInterpretations();
+        int planCacheMaxSize = ConfigurationHelper.getInt(QuerySettings.QUERY_PLAN_CACHE_MAX_SIZE,
+                sessionFactory.getProperties(), QueryEngine.DEFAULT_QUERY_PLAN_MAX_COUNT);
+        Report report = new Report(queries.size() - failures.size(), failures, cachedInterpretations,
+                planCacheMaxSize);
+        log.info("已预编译 {} 个Repository查询，失败 {} 个，查询解释缓存 {}/{} 项，耗时 {} ms", report.compiled(),
+                failures.size(), cachedInterpretations, planCacheMaxSize, (System.nanoTime() - start) / 1_000_000);
+        if (cachedInterpretations >= planCacheMaxSize) {
+            log.warn("查询解释缓存已满，部分预编译的Repository查询可能已被淘汰，请增大 {}", QuerySettings.QUERY_PLAN_CACHE_MAX_SIZE);
+        }
+        return report;
+    }
+
+    /**
+     * 获取生成代码中的查询常量，不存在时使用注解中的查询
+     *
+     * <p>
+     * 常量名为方法名的大写下划线形式，有参数时依次追加参数类型的简单名称，如 {@code byName(String)} 对应 {@code BY_NAME_String}。
+     */
+    private static String resolveHql(Class<?> implementationClass, Method method, Query query) {
+        StringBuilder name = new StringBuilder();
+        for (char c : method.getName().toCharArray()) {
+            if (Character.isUpperCase(c)) {
+                name.append('_');
+            }
+            name.append(Character.toUpperCase(c));
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            name.append('_').append(parameterType.getSimpleName());
+        }
+
+        Field field = ReflectionUtils.findField(implementationClass, name.toString(), String.class);
+        if (field != null && Modifier.isStatic(field.getModifiers())) {
+            ReflectionUtils.makeAccessible(field);
+            return (String) ReflectionUtils.getField(field, null);
+        }
+        return query.value();
+    }
+
+    private static boolean isMutation(String hql) {
+        String statement = hql.stripLeading().toLowerCase(Locale.ROOT);
+        return statement.startsWith("update") || statement.startsWith("delete") || statement.startsWith("insert");
+    }
+
+    /** 生成代码创建查询时传入的结果类型：集合、流、分页及Optional取元素类型，数组取组件类型 */
+    @Nullable
+    private static Class<?> resultType(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (returnType.isArray()) {
+            return returnType.getComponentType();
+        }
+        if (Optional.class == returnType || Stream.class == returnType || Iterable.class.isAssignableFrom(returnType)) {
+            return ResolvableType.forMethodReturnType(method).getGeneric(0).resolve();
+        }
+        return returnType == void.class ? null : returnType;
+    }
+
+    /**
+     * Repository查询
+     *
+     * @param method
+     *            Repository接口方法
+     * @param hql
+     *            HQL语句
+     * @param resultType
+     *            查询结果类型，更新语句为null
+     */
+    public record RepositoryQuery(Method method, String hql, @Nullable Class<?> resultType) {
+    }
+
+    /**
+     * 预编译失败的查询
+     *
+     * @param query
+     *            查询
+     * @param cause
+     *            失败原因
+     */
+    public record Failure(RepositoryQuery query, RuntimeException cause) {
+    }
+
+    /**
+     * 预编译报告
+     *
+     * @param compiled
+     *            成功预编译的查询数
+     * @param failures
+     *            失败的查询
+     * @param cachedInterpretations
+     *            预编译完成后查询解释缓存中的条目数
+     * @param planCacheMaxSize
+     *            查询解释缓存及查询计划缓存的容量
+     */
+    public record Report(int compiled, List<Failure> failures, int cachedInterpretations, int planCacheMaxSize) {
+    }
+}
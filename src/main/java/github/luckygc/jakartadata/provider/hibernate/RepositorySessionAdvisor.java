@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import github.luckygc.jakartadata.annotation.RepositorySession;
+
+import org.aopalliance.aop.Advice;
+import org.jspecify.annotations.NonNull;
+import org.springframework.aop.Pointcut;
+import org.springframework.aop.support.AbstractPointcutAdvisor;
+import org.springframework.aop.support.ComposablePointcut;
+import org.springframework.aop.support.annotation.AnnotationMatchingPointcut;
+
+import java.io.Serial;
+
+/**
+ * {@link RepositorySession} 切面
+ *
+ * <p>
+ * 匹配类或方法上标注了 {@link RepositorySession} 的Bean，并应用 {@link RepositorySessionInterceptor}。
+ *
+ * @author luckygc
+ */
+public class RepositorySessionAdvisor extends AbstractPointcutAdvisor {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /** 匹配类级别或方法级别的 {@link RepositorySession} */
+    private final Pointcut pointcut = new ComposablePointcut(
+            new AnnotationMatchingPointcut(RepositorySession.class, true))
+            .union(new AnnotationMatchingPointcut(null, RepositorySession.class, true));
+
+    private final Advice advice = new RepositorySessionInterceptor();
+
+    @NonNull
+    @Override
+    public Pointcut getPointcut() {
+        return this.pointcut;
+    }
+
+    @NonNull
+    @Override
+    public Advice getAdvice() {
+        return this.advice;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import github.luckygc.jakartadata.annotation.RepositorySession;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * {@link RepositorySession} 方法拦截器
+ *
+ * <p>
+ * 将被拦截方法的执行包装在 {@link RepositorySessionScope} 中。
+ *
+ * @author luckygc
+ */
+public class RepositorySessionInterceptor implements MethodInterceptor {
+
+    @Override
+    @Nullable
+    public Object invoke(@NonNull MethodInvocation invocation) throws Throwable {
+        boolean newScope = RepositorySessionScope.begin();
+        try {
+            return invocation.proceed();
+        } finally {
+            if (newScope) {
+                RepositorySessionScope.end();
+            }
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import github.luckygc.jakartadata.metrics.RepositoryInvocationListener;
+import github.luckygc.jakartadata.provider.hibernate.StatelessSessionUtils.ResourceKey;
+import github.luckygc.jakartadata.provider.hibernate.StatelessSessionUtils.StatelessSessionHolder;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * 非事务性Repository Session作用域
+ *
+ * <p>
+ * 在作用域内，当前线程上所有非事务性Repository调用共享同一个StatelessSession（每个SessionFactory/DataSource一个）， 因此也共享同一个JDBC连接，且不会开启Spring事务。
+ * Session在作用域内首次调用时按需打开，在作用域结束时关闭。
+ *
+ * <pre>
+ * List&lt;User&gt; users = RepositorySessionScope.call(() -&gt; {
+ *     var a = userRepository.findById(1L);
+ *     var b = userRepository.findById(2L);
+ *     return List.of(a.orElseThrow(), b.orElseThrow());
+ * });
+ * </pre>
+ *
+ * <p>
+ * 嵌套调用会加入外层作用域。处于Spring事务中的调用仍然使用事务绑定的Session。 作用域状态保存在线程本地变量中并在作用域结束时移除，不会在线程（包括虚拟线程）上残留；
+ * StatelessSession不是线程安全的，作用域不会传播到子线程。
+ *
+ * @author luckygc
+ * @see github.luckygc.jakartadata.annotation.RepositorySession
+ */
+public final class RepositorySessionScope {
+
+    private static final Logger log = LoggerFactory.getLogger(RepositorySessionScope.class);
+
+    /** 当前线程的作用域，资源键到Session持有者的映射 */
+    private static final ThreadLocal<Map<ResourceKey, StatelessSessionHolder>> currentScope = new ThreadLocal<>();
+
+    private RepositorySessionScope() {
+        // Prevent Instantiation
+    }
+
+    /**
+     * 在Session作用域内执行
+     *
+     * @param action
+     *            要执行的操作
+     */
+    public static void run(@NonNull Runnable action) {
+        call(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * 在Session作用域内执行并返回结果
+     *
+     * @param action
+     *            要执行的操作
+     * @param <V>
+     *            结果类型
+     * @return 操作结果
+     */
+    public static <V> V call(@NonNull Supplier<V> action) {
+        boolean newScope = begin();
+        try {
+            return action.get();
+        } finally {
+            if (newScope) {
+                end();
+            }
+        }
+    }
+
+    /**
+     * 开始Session作用域
+     *
+     * @return 是否创建了新的作用域，已处于作用域内时加入外层作用域并返回false
+     */
+    static boolean begin() {
+        if (currentScope.get() != null) {
+            return false;
+        }
+        currentScope.set(new HashMap<>());
+        return true;
+    }
+
+    /** 结束Session作用域，关闭作用域内打开的所有Session */
+    static void end() {
+        Map<ResourceKey, StatelessSessionHolder> scope = currentScope.get();
+        currentScope.remove();
+        if (scope == null) {
+            return;
+        }
+
+        for (StatelessSessionHolder holder : scope.values()) {
+            StatelessSessionUtils.releaseSession(holder);
+        }
+        log.debug("关闭Repository Session作用域，共释放 {} 个StatelessSession", scope.size());
+    }
+
+    /** 当前线程是否处于Session作用域内 */
+    public static boolean isActive() {
+        return currentScope.get() != null;
+    }
+
+    /**
+     * 获取当前作用域内指定资源的Session持有者，首次访问时打开Session
+     *
+     * @param resourceKey
+     *            资源键
+     * @param listener
+     *            调用监听器，可为null
+     * @return Session持有者，不在作用域内时返回null
+     */
+    @Nullable
+    static StatelessSessionHolder getSessionHolder(@NonNull ResourceKey resourceKey,
+            @Nullable RepositoryInvocationListener listener) {
+        Map<ResourceKey, StatelessSessionHolder> scope = currentScope.get();
+        if (scope == null) {
+            return null;
+        }
+
+        StatelessSessionHolder holder = scope.get(resourceKey);
+        if (holder == null || !holder.getStatelessSession().isConnected()) {
+            holder = StatelessSessionUtils.openSession(resourceKey, listener);
+            // 作用域自身持有一次引用，保证单次调用释放时不会关闭Session
+            holder.requested();
+            scope.put(resourceKey, holder);
+            log.debug("在Repository Session作用域内创建StatelessSession");
+        }
+        return holder;
+    }
+}
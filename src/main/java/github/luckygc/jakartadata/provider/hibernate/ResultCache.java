@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import github.luckygc.jakartadata.RepositoryMethodUtil;
+import github.luckygc.jakartadata.annotation.CachedResult;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * Repository方法结果缓存
+ *
+ * <p>
+ * 条目保存在 {@link ConcurrentHashMap} 中并带有过期时间，命中时只记录访问时间，不加锁。 写入、淘汰与清空在 {@link ReentrantLock} 内完成：
+ * 超出容量时按记录的访问时间淘汰最久未访问的条目，并多淘汰容量的1/16以摊薄排序开销，淘汰顺序是近似的LRU。
+ *
+ * <p>
+ * 缓存维护一个代数，每次 {@link #clear()} 加一。加载前通过 {@link #generation()} 记录代数，加载完成后只有代数未变时才写入，
+ * 避免与写操作并发的查询把旧数据放回缓存。
+ *
+ * @author luckygc
+ */
+final class ResultCache {
+
+    /** {@link #get(Object)} 未命中时的返回值 */
+    static final Object MISS = new Object();
+
+    /** 代表null结果的占位对象 */
+    private static final Object NULL_VALUE = new Object();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Map<Object, Entry> entries = new ConcurrentHashMap<>();
+
+    private final long ttlNanos;
+
+    private final int capacity;
+
+    private volatile long generation;
+
+    ResultCache(CachedResult config) {
+        this(config.ttl(), config.timeUnit(), config.maxEntries());
+    }
+
+    ResultCache(long ttl, TimeUnit timeUnit, int maxEntries) {
+        this.ttlNanos = ttl > 0 ? timeUnit.toNanos(ttl) : 0;
+        this.capacity = Math.max(maxEntries, 1);
+    }
+
+    /**
+     * 为标注了 {@link CachedResult} 的方法创建缓存
+     *
+     * @param methods
+     *            Repository接口方法
+     * @return 方法到缓存的不可变映射
+     * @throws IllegalStateException
+     *             如果注解标注在写方法、返回Stream或无返回值的方法上
+     */
+    static Map<Method, ResultCache> createCaches(Iterable<Method> methods) {
+        Map<Method, ResultCache> caches = new HashMap<>();
+        for (Method method : methods) {
+            CachedResult config = method.getAnnotation(CachedResult.class);
+            if (config == null) {
+                continue;
+            }
+            Class<?> returnType = method.getReturnType();
+            if (RepositoryMethodUtil.isWrite(method) || returnType == void.class
+                    || Stream.class.isAssignableFrom(returnType)) {
+                throw new IllegalStateException(
+                        String.format("@CachedResult 只能用于有返回值且不返回Stream的查询方法: '%s'", method));
+            }
+            caches.put(method, new ResultCache(config));
+        }
+        return Map.copyOf(caches);
+    }
+
+    /**
+     * 找出执行后需要清空结果缓存的写方法
+     *
+     * @param methods
+     *            Repository接口方法
+     * @return 写方法集合
+     */
+    static Set<Method> findWriteMethods(Iterable<Method> methods) {
+        Set<Method> writeMethods = new HashSet<>();
+        for (Method method : methods) {
+            if (RepositoryMethodUtil.isWrite(method)) {
+                writeMethods.add(method);
+            }
+        }
+        return Set.copyOf(writeMethods);
+    }
+
+    /**
+     * 创建缓存键
+     *
+     * @param args
+     *            方法参数，可为null
+     * @return 按参数内容比较的缓存键
+     */
+    static Object key(Object[] args) {
+        return args == null || args.length == 0 ? Key.EMPTY : new Key(args.clone());
+    }
+
+    /**
+     * 查找未过期的缓存值
+     *
+     * @param key
+     *            缓存键
+     * @return 缓存值，未命中时返回 {@link #MISS}
+     */
+    Object get(Object key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return MISS;
+        }
+        long now = System.nanoTime();
+        if (ttlNanos > 0 && now - entry.createdAt >= ttlNanos) {
+            entries.remove(key, entry);
+            return MISS;
+        }
+        entry.accessedAt = now;
+        return entry.value == NULL_VALUE ? null : entry.value;
+    }
+
+    /** 当前代数，在加载结果前获取 */
+    long generation() {
+        return generation;
+    }
+
+    /**
+     * 写入加载结果
+     *
+     * @param key
+     *            缓存键
+     * @param value
+     *            方法返回值，可为null
+     * @param loadedGeneration
+     *            加载前获取的代数，与当前代数不同时放弃写入
+     */
+    void put(Object key, Object value, long loadedGeneration) {
+        Entry entry = new Entry(value == null ? NULL_VALUE : value, System.nanoTime());
+        lock.lock();
+        try {
+            if (generation == loadedGeneration) {
+                entries.put(key, entry);
+                if (entries.size() > capacity) {
+                    evict();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 清空缓存并使进行中的加载失效 */
+    void clear() {
+        lock.lock();
+        try {
+            generation++;
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 淘汰最久未访问的条目，在锁内调用 */
+    private void evict() {
+        List<Map.Entry<Object, Long>> candidates = new ArrayList<>(entries.size());
+        // 先取出访问时间再排序，避免排序期间的命中改变比较结果
+        entries.forEach((key, entry) -> candidates.add(Map.entry(key, entry.accessedAt)));
+        candidates.sort(Map.Entry.comparingByValue());
+        int excess = Math.min(candidates.size() - capacity + capacity / 16, candidates.size());
+        for (int i = 0; i < excess; i++) {
+            entries.remove(candidates.get(i).getKey());
+        }
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+
+        private final long createdAt;
+
+        /** 最近一次命中的时间，不同步更新，只用于近似淘汰 */
+        private long accessedAt;
+
+        private Entry(Object value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+            this.accessedAt = createdAt;
+        }
+    }
+
+    /** 按参数数组内容比较的缓存键 */
+    private static final class Key {
+
+        private static final Key EMPTY = new Key(new Object[0]);
+
+        private final Object[] args;
+
+        private final int hash;
+
+        private Key(Object[] args) {
+            this.args = args;
+            this.hash = Arrays.deepHashCode(args);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Key other && hash == other.hash && Arrays.deepEquals(args, other.args));
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
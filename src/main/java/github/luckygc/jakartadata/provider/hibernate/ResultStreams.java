@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Cleaner;
+import java.lang.ref.Reference;
+import java.lang.reflect.Method;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Repository流式结果的生命周期管理
+ *
+ * <p>
+ * 非事务调用返回的 {@link Stream} 在 {@link Stream#close()} 时才释放Session和JDBC连接，调用方应使用try-with-resources消费结果。
+ * 流在未关闭的情况下被垃圾回收时，由 {@link Cleaner} 释放资源并记录警告日志。
+ *
+ * @author luckygc
+ */
+final class ResultStreams {
+
+    private static final Logger log = LoggerFactory.getLogger(ResultStreams.class);
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private ResultStreams() {
+        // Prevent Instantiation
+    }
+
+    /**
+     * 将资源释放绑定到流的关闭
+     *
+     * <p>
+     * 返回的流以包装了原始流 {@link Spliterator} 的跟踪对象为源重新构建，泄漏检测注册在该对象上。 流水线的各个阶段、
+     * {@link Stream#iterator()} 及 {@link Stream#spliterator()} 返回的适配器都持有它，因此只要调用方仍可能读取结果，资源就不会被提前释放。
+     *
+     * @param stream
+     *            Hibernate返回的结果流
+     * @param release
+     *            释放Session与连接的回调，最多执行一次
+     * @param method
+     *            Repository方法，用于泄漏日志
+     * @param <T>
+     *            元素类型
+     * @return 关闭时释放资源的流
+     */
+    static <T> Stream<T> releaseOnClose(Stream<T> stream, Runnable release, Method method) {
+        StreamResource resource = new StreamResource(release, method);
+        TrackedSpliterator<T> source = new TrackedSpliterator<>(stream.spliterator(), null);
+        resource.cleanable = CLEANER.register(source, resource);
+        return StreamSupport.stream(source, stream.isParallel()).onClose(stream::close).onClose(resource::close);
+    }
+
+    /**
+     * 被泄漏检测跟踪的Spliterator
+     *
+     * <p>
+     * 拆分出的Spliterator持有被跟踪的根对象，读取期间以 {@link Reference#reachabilityFence(Object)} 保持其可达。
+     */
+    private static final class TrackedSpliterator<T> implements Spliterator<T> {
+
+        private final Spliterator<T> delegate;
+
+        /** 注册到 {@link Cleaner} 的根对象 */
+        private final Object tracked;
+
+        private TrackedSpliterator(Spliterator<T> delegate, @Nullable Object tracked) {
+            this.delegate = delegate;
+            this.tracked = tracked != null ? tracked : this;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            try {
+                return delegate.tryAdvance(action);
+            } finally {
+                Reference.reachabilityFence(tracked);
+            }
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            try {
+                delegate.forEachRemaining(action);
+            } finally {
+                Reference.reachabilityFence(tracked);
+            }
+        }
+
+        @Override
+        @Nullable
+        public Spliterator<T> trySplit() {
+            Spliterator<T> split = delegate.trySplit();
+            return split != null ? new TrackedSpliterator<>(split, tracked) : null;
+        }
+
+        @Override
+        public long estimateSize() {
+            return delegate.estimateSize();
+        }
+
+        @Override
+        public long getExactSizeIfKnown() {
+            return delegate.getExactSizeIfKnown();
+        }
+
+        @Override
+        public int characteristics() {
+            return delegate.characteristics();
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return delegate.getComparator();
+        }
+    }
+
+    /** 流持有的资源，正常关闭与泄漏回收共用同一个释放标记 */
+    private static final class StreamResource implements Runnable {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private final Runnable release;
+
+        private final Method method;
+
+        private Cleaner.Cleanable cleanable;
+
+        private StreamResource(Runnable release, Method method) {
+            this.release = release;
+            this.method = method;
+        }
+
+        /** 流被关闭 */
+        private void close() {
+            if (released.compareAndSet(false, true)) {
+                release.run();
+            }
+            cleanable.clean();
+        }
+
+        /** 流未关闭即被回收 */
+        @Override
+        public void run() {
+            if (released.compareAndSet(false, true)) {
+                log.warn("Repository方法 '{}' 返回的Stream未关闭即被回收，已自动释放StatelessSession及连接。"
+                        + "请使用try-with-resources关闭Stream", method);
+                release.run();
+            }
+        }
+    }
+}
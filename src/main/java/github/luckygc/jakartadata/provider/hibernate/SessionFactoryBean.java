@@ -18,11 +18,21 @@
 package github.luckygc.jakartadata.provider.hibernate;
 
 import org.hibernate.SessionFactory;
+import org.jspecify.annotations.Nullable;
 import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.jpa.HibernatePersistenceConfiguration;
 import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.FactoryBean;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.sql.DataSource;
 
@@ -32,14 +42,154 @@ public class SessionFactoryBean implements FactoryBean<SessionFactory>, Initiali
 
     private String[] packagesToScan;
 
+    private int jdbcBatchSize;
+
+    private int jdbcFetchSize;
+
+    private Map<String, Object> hibernateProperties;
+
+    private AsyncTaskExecutor bootstrapExecutor;
+
+    private String[] repositoryPackagesToPrecompile;
+
+    /** Repository查询预编译报告，未启用预编译时为null */
+    private volatile RepositoryQueryPrecompiler.Report queryPrecompilationReport;
+
     private SessionFactory sessionFactory;
 
+    /** 异步初始化时构建中的SessionFactory */
+    private Future<SessionFactory> sessionFactoryFuture;
+
+    /** 异步初始化完成后的SessionFactory */
+    private volatile SessionFactory nativeSessionFactory;
+
     @Override
     public void afterPropertiesSet() {
+        if (this.bootstrapExecutor != null) {
+            this.sessionFactoryFuture = this.bootstrapExecutor.submit(this::buildSessionFactory);
+            this.sessionFactory = createSessionFactoryProxy();
+        } else {
+            this.sessionFactory = buildSessionFactory();
+        }
+    }
+
+    private SessionFactory buildSessionFactory() {
         var configuration = new HibernatePersistenceConfiguration("data");
         configuration.property(AvailableSettings.JAKARTA_NON_JTA_DATASOURCE, this.dataSource);
+        if (this.jdbcBatchSize > 0) {
+            configuration.property(AvailableSettings.STATEMENT_BATCH_SIZE, this.jdbcBatchSize);
+            configuration.property(AvailableSettings.ORDER_INSERTS, true);
+            configuration.property(AvailableSettings.ORDER_UPDATES, true);
+        }
+        if (this.jdbcFetchSize > 0) {
+            configuration.property(AvailableSettings.STATEMENT_FETCH_SIZE, this.jdbcFetchSize);
+        }
+        List<RepositoryQueryPrecompiler.RepositoryQuery> repositoryQueries = null;
+        if (this.repositoryPackagesToPrecompile != null && this.repositoryPackagesToPrecompile.length > 0) {
+            repositoryQueries = RepositoryQueryPrecompiler.findQueries(this.repositoryPackagesToPrecompile);
+            configuration.property(AvailableSettings.QUERY_PLAN_CACHE_MAX_SIZE,
+                    RepositoryQueryPrecompiler.planCacheSize(repositoryQueries.size()));
+        }
+        if (this.hibernateProperties != null) {
+            configuration.properties(this.hibernateProperties);
+        }
         HibernateScanner.scan(configuration, packagesToScan);
-        this.sessionFactory = configuration.createEntityManagerFactory();
+        SessionFactory result = configuration.createEntityManagerFactory();
+        WriteBehindBuffer.register(result);
+        if (repositoryQueries != null) {
+            this.queryPrecompilationReport = RepositoryQueryPrecompiler.precompile(result, repositoryQueries);
+        }
+        return result;
+    }
+
+    /**
+     * 创建异步初始化期间对外暴露的SessionFactory代理
+     *
+     * <p>
+     * {@link Object} 的方法由代理自身处理，其余方法在首次调用时等待异步初始化完成后委托给实际的SessionFactory。
+     */
+    private SessionFactory createSessionFactoryProxy() {
+        InvocationHandler handler = (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "SessionFactory proxy for asynchronous bootstrap, completed: " + isBootstrapCompleted();
+                case "getBootstrappedSessionFactory":
+                    return getBootstrappedSessionFactory();
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(getNativeSessionFactory(), args);
+            } catch (InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        };
+        return (SessionFactory) Proxy.newProxyInstance(SessionFactoryBean.class.getClassLoader(),
+                new Class<?>[] {SessionFactory.class, BootstrapProxy.class}, handler);
+    }
+
+    /** 异步初始化成功完成后返回实际的SessionFactory，尚未完成或初始化失败时返回null */
+    @Nullable
+    private SessionFactory getBootstrappedSessionFactory() {
+        SessionFactory result = this.nativeSessionFactory;
+        if (result == null && this.sessionFactoryFuture.isDone()) {
+            try {
+                result = getNativeSessionFactory();
+            } catch (IllegalStateException ex) {
+                // 初始化失败时继续经由代理调用，由代理抛出初始化异常
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 获取可以直接调用的SessionFactory
+     *
+     * <p>
+     * 异步初始化的代理在初始化完成后返回实际的SessionFactory，之后的调用不再经过代理的反射分派；
+     * 初始化尚未完成时返回null。其他SessionFactory原样返回。
+     *
+     * @param sessionFactory
+     *            容器中的SessionFactory
+     * @return 可以直接调用的SessionFactory，异步初始化尚未完成时为null
+     */
+    @Nullable
+    static SessionFactory getBootstrappedSessionFactory(SessionFactory sessionFactory) {
+        return sessionFactory instanceof BootstrapProxy proxy ? proxy.getBootstrappedSessionFactory()
+                : sessionFactory;
+    }
+
+    /** 获取实际的SessionFactory，异步初始化时等待初始化完成 */
+    private SessionFactory getNativeSessionFactory() {
+        SessionFactory result = this.nativeSessionFactory;
+        if (result != null) {
+            return result;
+        }
+
+        try {
+            result = this.sessionFactoryFuture.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待SessionFactory异步初始化时线程被中断", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            throw new IllegalStateException("SessionFactory异步初始化失败: " + cause.getMessage(), cause);
+        }
+        this.nativeSessionFactory = result;
+        return result;
+    }
+
+    /**
+     * SessionFactory是否已完成初始化
+     *
+     * @return 同步初始化时始终为true；异步初始化时在后台构建完成(包括失败)后为true
+     */
+    public boolean isBootstrapCompleted() {
+        return this.sessionFactoryFuture == null || this.sessionFactoryFuture.isDone();
     }
 
     @Override
@@ -61,9 +211,21 @@ public class SessionFactoryBean implements FactoryBean<SessionFactory>, Initiali
         return true;
     }
 
+    /**
+     * 关闭SessionFactory
+     *
+     * <p>
+     * SessionFactory开始关闭时先写入 {@link github.luckygc.jakartadata.annotation.WriteBehind} Repository缓冲中剩余的实体。
+     */
     @Override
     public void destroy() {
-        if (this.sessionFactory != null) {
+        if (this.sessionFactoryFuture != null) {
+            try {
+                getNativeSessionFactory().close();
+            } catch (IllegalStateException ex) {
+                // 异步初始化失败时没有需要关闭的SessionFactory
+            }
+        } else if (this.sessionFactory != null) {
             this.sessionFactory.close();
         }
     }
@@ -84,6 +246,105 @@ public class SessionFactoryBean implements FactoryBean<SessionFactory>, Initiali
         this.packagesToScan = packagesToScan;
     }
 
+    public int getJdbcBatchSize() {
+        return jdbcBatchSize;
+    }
+
+    /**
+     * 设置JDBC批量大小
+     *
+     * <p>
+     * 大于0时配置 {@link AvailableSettings#STATEMENT_BATCH_SIZE} 并开启插入、更新排序。 Repository中参数为集合的写方法按该大小分段批量执行，可通过
+     * {@link github.luckygc.jakartadata.annotation.JdbcBatch} 按接口或方法覆盖。
+     *
+     * @param jdbcBatchSize
+     *            批量大小，小于等于0表示不配置
+     */
+    public void setJdbcBatchSize(int jdbcBatchSize) {
+        this.jdbcBatchSize = jdbcBatchSize;
+    }
+
+    public int getJdbcFetchSize() {
+        return jdbcFetchSize;
+    }
+
+    /**
+     * 设置JDBC fetch size
+     *
+     * <p>
+     * 大于0时配置 {@link AvailableSettings#STATEMENT_FETCH_SIZE}。 返回 {@link java.util.stream.Stream}
+     * 的Repository方法通过只进游标逐批读取结果，配合该设置可以在恒定内存下处理大结果集。
+     *
+     * @param jdbcFetchSize
+     *            fetch size，小于等于0表示使用驱动默认值
+     */
+    public void setJdbcFetchSize(int jdbcFetchSize) {
+        this.jdbcFetchSize = jdbcFetchSize;
+    }
+
+    public Map<String, Object> getHibernateProperties() {
+        return hibernateProperties;
+    }
+
+    /**
+     * 设置额外的Hibernate配置属性，优先级高于本类的其他属性
+     *
+     * @param hibernateProperties
+     *            Hibernate配置属性
+     */
+    public void setHibernateProperties(Map<String, Object> hibernateProperties) {
+        this.hibernateProperties = hibernateProperties;
+    }
+
+    public AsyncTaskExecutor getBootstrapExecutor() {
+        return bootstrapExecutor;
+    }
+
+    /**
+     * 设置SessionFactory的后台初始化执行器
+     *
+     * <p>
+     * 设置后 {@link #afterPropertiesSet()} 将实体扫描、元模型构建等初始化工作提交到该执行器，立即返回SessionFactory代理，
+     * 容器可以继续初始化其他Bean；首次调用代理的方法时才等待初始化完成。Repository创建时不访问SessionFactory，
+     * 首次调用Repository时才等待；初始化完成后Repository直接在实际的SessionFactory上打开Session，不再经过代理。
+     *
+     * @param bootstrapExecutor
+     *            初始化执行器，null表示在当前线程同步初始化
+     */
+    public void setBootstrapExecutor(AsyncTaskExecutor bootstrapExecutor) {
+        this.bootstrapExecutor = bootstrapExecutor;
+    }
+
+    public String[] getRepositoryPackagesToPrecompile() {
+        return repositoryPackagesToPrecompile;
+    }
+
+    /**
+     * 设置需要预编译查询的Repository接口所在的包路径
+     *
+     * <p>
+     * 设置后SessionFactory构建时按Repository查询数扩大查询计划缓存（{@link AvailableSettings#QUERY_PLAN_CACHE_MAX_SIZE}
+     * 未在额外属性中指定时），构建完成后并行解析所有 {@link jakarta.data.repository.Query} 方法的HQL，首次调用时不再解析。
+     * 通常与 {@link github.luckygc.jakartadata.annotation.EnableDataRepositories#basePackages()} 相同。
+     * 配合 {@link #setBootstrapExecutor(AsyncTaskExecutor)} 时预编译同样在后台执行。
+     *
+     * @param repositoryPackagesToPrecompile
+     *            Repository接口所在的包路径，为空表示不预编译
+     * @see RepositoryQueryPrecompiler
+     */
+    public void setRepositoryPackagesToPrecompile(String[] repositoryPackagesToPrecompile) {
+        this.repositoryPackagesToPrecompile = repositoryPackagesToPrecompile;
+    }
+
+    /**
+     * 获取Repository查询预编译报告
+     *
+     * @return 预编译报告，未启用预编译或SessionFactory尚未构建完成时为null
+     */
+    public RepositoryQueryPrecompiler.Report getQueryPrecompilationReport() {
+        return queryPrecompilationReport;
+    }
+
     public SessionFactory getSessionFactory() {
         return sessionFactory;
     }
@@ -91,4 +352,14 @@ public class SessionFactoryBean implements FactoryBean<SessionFactory>, Initiali
     public void setSessionFactory(SessionFactory sessionFactory) {
         this.sessionFactory = sessionFactory;
     }
+
+    /**
+     * 异步初始化期间对外暴露的SessionFactory代理实现的接口
+     */
+    interface BootstrapProxy {
+
+        /** 初始化成功完成后返回实际的SessionFactory，否则返回null */
+        @Nullable
+        SessionFactory getBootstrappedSessionFactory();
+    }
 }
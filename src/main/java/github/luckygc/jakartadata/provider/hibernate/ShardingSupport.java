@@ -0,0 +1,498 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import github.luckygc.jakartadata.RepositoryMethodUtil;
+import github.luckygc.jakartadata.annotation.ShardKey;
+import github.luckygc.jakartadata.routing.ShardRouter;
+
+import jakarta.data.Limit;
+import jakarta.data.Order;
+import jakarta.data.Sort;
+import jakarta.data.exceptions.EmptyResultException;
+import jakarta.data.page.CursoredPage;
+import jakarta.data.page.Page;
+import jakarta.data.page.PageRequest;
+import jakarta.data.repository.Delete;
+import jakarta.data.repository.Find;
+import jakarta.data.repository.Insert;
+import jakarta.data.repository.OrderBy;
+import jakarta.data.repository.Query;
+import jakarta.data.repository.Save;
+import jakarta.data.repository.Update;
+
+import jakarta.persistence.Entity;
+
+import org.jspecify.annotations.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+/**
+ * 分片Repository的调用路由
+ *
+ * <p>
+ * 按 {@link ShardKey} 参数或实体的 {@link ShardKey} 字段选择分片；无法确定分片的方法在所有分片上执行并合并结果。
+ * 多分片调用在事务或 {@link RepositorySessionScope} 作用域内依次在当前线程执行，否则通过 {@link ShardRouter#getExecutor()} 并行执行。
+ * 跨分片的写操作分别在各分片的连接上执行，不具备原子性。
+ *
+ * <p>
+ * 合并只拼接或挑选各分片的结果：排序、限制条数的方法及计数以外的聚合查询缺少分片键时拒绝执行，数值结果只对计数与更新行数求和。
+ * 返回 {@link Stream} 的方法在各分片的Session释放前把结果全部读入内存，不再是常量内存的流式读取。
+ *
+ * @author luckygc
+ */
+final class ShardingSupport {
+
+    /** 实体类型到分片键字段的缓存 */
+    private static final Map<Class<?>, Optional<Field>> shardKeyFields = new ConcurrentReferenceHashMap<>();
+
+    private final ShardRouter router;
+
+    /** 查询语句中的排序或限制条数子句 */
+    private static final Pattern ORDER_OR_LIMIT = Pattern
+            .compile("\\border\\s+by\\b|\\blimit\\b|\\bfetch\\s+(first|next)\\b");
+
+    /** 以聚合函数开头的查询语句 */
+    private static final Pattern AGGREGATE = Pattern.compile("^select\\s+(count|max|min|avg|sum)\\s*\\(");
+
+    /** 以计数开头的查询语句 */
+    private static final Pattern COUNT = Pattern.compile("^select\\s+count\\s*\\(");
+
+    /** 按方法名派生的排序或取前几条的查询 */
+    private static final Pattern ORDERED_METHOD_NAME = Pattern.compile("^[a-z]+First\\d*By.*|.*OrderBy.*");
+
+    /** 方法到 {@link ShardKey} 参数下标的映射 */
+    private final Map<Method, Integer> keyParameters;
+
+    /** 方法到无法跨分片合并的原因的映射，只在缺少分片键时生效 */
+    private final Map<Method, String> unmergeableMethods;
+
+    /** 多分片结果可以求和的计数及写方法 */
+    private final Set<Method> summableMethods;
+
+    /**
+     * 构造函数
+     *
+     * @param router
+     *            分片路由
+     * @param methods
+     *            Repository接口方法
+     */
+    ShardingSupport(ShardRouter router, Iterable<Method> methods) {
+        this.router = router;
+        Map<Method, Integer> parameters = new HashMap<>();
+        Map<Method, String> unmergeable = new HashMap<>();
+        Set<Method> summable = new HashSet<>();
+        for (Method method : methods) {
+            for (int i = 0; i < method.getParameterCount(); i++) {
+                if (method.getParameters()[i].isAnnotationPresent(ShardKey.class)) {
+                    parameters.put(method, i);
+                    break;
+                }
+            }
+            String reason = unmergeableReason(method);
+            if (reason != null) {
+                unmergeable.put(method, reason);
+            }
+            if (isSummable(method)) {
+                summable.add(method);
+            }
+        }
+        this.keyParameters = Map.copyOf(parameters);
+        this.unmergeableMethods = Map.copyOf(unmergeable);
+        this.summableMethods = Set.copyOf(summable);
+    }
+
+    /** 多分片执行时无法正确合并结果的原因，可以合并时返回null */
+    @Nullable
+    private static String unmergeableReason(Method method) {
+        Class<?> returnType = method.getReturnType();
+        if (Page.class.isAssignableFrom(returnType) || CursoredPage.class.isAssignableFrom(returnType)) {
+            return "分页结果无法跨分片合并";
+        }
+        if (isOrderedOrLimited(method)) {
+            return "排序及限制条数的结果无法跨分片合并";
+        }
+        String ql = queryString(method);
+        if (ql != null && AGGREGATE.matcher(ql).find() && !isSummable(method)) {
+            return "计数以外的聚合结果无法跨分片合并";
+        }
+        return null;
+    }
+
+    /** 是否指定了结果的排序或条数 */
+    private static boolean isOrderedOrLimited(Method method) {
+        if (method.isAnnotationPresent(OrderBy.class) || method.isAnnotationPresent(OrderBy.List.class)) {
+            return true;
+        }
+        for (Class<?> parameterType : method.getParameterTypes()) {
+            if (parameterType == Order.class || parameterType == Sort.class || parameterType == Sort[].class
+                    || parameterType == Limit.class || parameterType == PageRequest.class) {
+                return true;
+            }
+        }
+        String ql = queryString(method);
+        if (ql != null) {
+            return ORDER_OR_LIMIT.matcher(ql).find();
+        }
+        return !method.isAnnotationPresent(Find.class) && !RepositoryMethodUtil.isWrite(method)
+                && ORDERED_METHOD_NAME.matcher(method.getName()).matches();
+    }
+
+    /** 各分片的数值结果是否可以求和：写方法返回的更新行数，或返回 {@code int}、{@code long} 的计数查询 */
+    private static boolean isSummable(Method method) {
+        if (RepositoryMethodUtil.isWrite(method)) {
+            return true;
+        }
+        Class<?> returnType = method.getReturnType();
+        if (returnType != long.class && returnType != Long.class && returnType != int.class
+                && returnType != Integer.class) {
+            return false;
+        }
+        String ql = queryString(method);
+        return ql != null ? COUNT.matcher(ql).find() : method.getName().startsWith("count");
+    }
+
+    /** {@code @Query} 的小写查询语句，没有时返回null */
+    @Nullable
+    private static String queryString(Method method) {
+        Query query = method.getAnnotation(Query.class);
+        return query != null ? query.value().strip().toLowerCase(Locale.ROOT) : null;
+    }
+
+    /** 在指定分片上执行Repository方法 */
+    @FunctionalInterface
+    interface ShardCall {
+
+        Object invoke(DataSource shard, Object[] args) throws Throwable;
+    }
+
+    /** 单个分片上的执行任务 */
+    @FunctionalInterface
+    private interface ShardTask {
+
+        Object run() throws Throwable;
+    }
+
+    /**
+     * 路由并执行Repository方法
+     *
+     * @param method
+     *            Repository接口方法
+     * @param args
+     *            方法参数
+     * @param call
+     *            在指定分片上执行方法的回调
+     * @return 方法返回值，多分片执行时为合并后的结果
+     * @throws Throwable
+     *             方法执行抛出的异常
+     */
+    Object invoke(Method method, Object[] args, ShardCall call) throws Throwable {
+        Integer keyParameter = keyParameters.get(method);
+        if (keyParameter != null) {
+            return call.invoke(router.determineShard(args[keyParameter]), args);
+        }
+
+        if (isEntityLifecycleMethod(method)) {
+            Object argument = args[0];
+            if (argument instanceof List<?> list && list.isEmpty()
+                    || argument != null && argument.getClass().isArray() && Array.getLength(argument) == 0) {
+                return call.invoke(router.getShards().get(0), args);
+            }
+            if (argument instanceof List<?> entities && isEntities(entities)) {
+                return invokePartitioned(method, entities, call);
+            }
+            if (argument != null && argument.getClass().isArray() && isEntities(arrayToList(argument))) {
+                return invokePartitioned(method, arrayToList(argument), call);
+            }
+            if (argument != null && isEntity(argument)) {
+                return call.invoke(router.determineShard(shardKey(argument)), args);
+            }
+            if (!method.isAnnotationPresent(Delete.class)) {
+                throw new IllegalArgumentException(String.format("无法确定分片Repository方法 '%s' 的分片", method));
+            }
+        }
+
+        return scatter(method, args, call);
+    }
+
+    /** 是否为以实体或实体集合为参数的生命周期方法 */
+    private static boolean isEntityLifecycleMethod(Method method) {
+        return method.getParameterCount() == 1 && (method.isAnnotationPresent(Insert.class)
+                || method.isAnnotationPresent(Update.class) || method.isAnnotationPresent(Save.class)
+                || method.isAnnotationPresent(Delete.class));
+    }
+
+    private static boolean isEntity(Object argument) {
+        return argument.getClass().isAnnotationPresent(Entity.class);
+    }
+
+    private static boolean isEntities(List<?> entities) {
+        return !entities.isEmpty() && entities.get(0) != null && isEntity(entities.get(0));
+    }
+
+    private static List<Object> arrayToList(Object array) {
+        int length = Array.getLength(array);
+        List<Object> list = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            list.add(Array.get(array, i));
+        }
+        return list;
+    }
+
+    /**
+     * 按实体的分片键拆分集合，在各分片上分别执行
+     *
+     * <p>
+     * 各分片返回与输入等长的集合或数组时，按输入顺序重新组装结果；否则依次拼接。
+     */
+    private Object invokePartitioned(Method method, List<?> entities, ShardCall call) throws Throwable {
+        Map<DataSource, List<Integer>> positions = new LinkedHashMap<>();
+        for (int i = 0; i < entities.size(); i++) {
+            positions.computeIfAbsent(router.determineShard(shardKey(entities.get(i))), shard -> new ArrayList<>())
+                    .add(i);
+        }
+
+        boolean array = method.getParameterTypes()[0].isArray();
+        List<ShardTask> tasks = new ArrayList<>(positions.size());
+        List<List<Integer>> taskPositions = new ArrayList<>(positions.size());
+        for (Map.Entry<DataSource, List<Integer>> entry : positions.entrySet()) {
+            List<Object> part = entry.getValue().stream().<Object>map(entities::get).toList();
+            Object partArgument = array ? toArray(part, method.getParameterTypes()[0].getComponentType())
+                    : new ArrayList<>(part);
+            tasks.add(() -> call.invoke(entry.getKey(), new Object[] {partArgument}));
+            taskPositions.add(entry.getValue());
+        }
+
+        List<Object> results = invokeAll(tasks);
+        Class<?> returnType = method.getReturnType();
+        if (!List.class.isAssignableFrom(returnType) && !returnType.isArray()) {
+            return merge(returnType, results, true);
+        }
+
+        Object[] reordered = new Object[entities.size()];
+        for (int i = 0; i < results.size(); i++) {
+            List<Object> result = results.get(i) == null ? null
+                    : results.get(i).getClass().isArray() ? arrayToList(results.get(i))
+                    : new ArrayList<>((Collection<?>) results.get(i));
+            List<Integer> indexes = taskPositions.get(i);
+            if (result == null || result.size() != indexes.size()) {
+                return merge(returnType, results, true);
+            }
+            for (int j = 0; j < indexes.size(); j++) {
+                reordered[indexes.get(j)] = result.get(j);
+            }
+        }
+        return returnType.isArray() ? toArray(List.of(reordered), returnType.getComponentType())
+                : new ArrayList<>(List.of(reordered));
+    }
+
+    private static Object toArray(List<?> elements, Class<?> componentType) {
+        Object array = Array.newInstance(componentType, elements.size());
+        for (int i = 0; i < elements.size(); i++) {
+            Array.set(array, i, elements.get(i));
+        }
+        return array;
+    }
+
+    /** 在所有分片上执行并合并结果 */
+    private Object scatter(Method method, Object[] args, ShardCall call) throws Throwable {
+        String reason = unmergeableMethods.get(method);
+        if (reason != null) {
+            throw new UnsupportedOperationException(String.format("分片Repository方法 '%s' 缺少分片键，%s", method, reason));
+        }
+
+        Class<?> returnType = method.getReturnType();
+
+        List<ShardTask> tasks = new ArrayList<>(router.getShards().size());
+        for (DataSource shard : router.getShards()) {
+            if (Stream.class.isAssignableFrom(returnType)) {
+                // 在各自的Session释放前读取完结果，合并后的流不再逐行读取
+                tasks.add(() -> {
+                    try (Stream<?> stream = (Stream<?>) call.invoke(shard, args)) {
+                        return stream == null ? null : stream.toList();
+                    }
+                });
+            } else {
+                tasks.add(() -> {
+                    try {
+                        return call.invoke(shard, args);
+                    } catch (EmptyResultException e) {
+                        return new EmptyResult(e);
+                    }
+                });
+            }
+        }
+        return merge(returnType, invokeAll(tasks), summableMethods.contains(method));
+    }
+
+    /**
+     * 执行各分片上的任务
+     *
+     * <p>
+     * 事务及作用域绑定在当前线程，此时依次执行；否则并行执行并等待全部完成，第一个失败的分片的异常原样抛出。
+     */
+    private List<Object> invokeAll(List<ShardTask> tasks) throws Throwable {
+        if (tasks.size() == 1 || TransactionSynchronizationManager.isSynchronizationActive()
+                || RepositorySessionScope.isActive()) {
+            List<Object> results = new ArrayList<>(tasks.size());
+            for (ShardTask task : tasks) {
+                results.add(task.run());
+            }
+            return results;
+        }
+
+        List<CompletableFuture<Object>> futures = new ArrayList<>(tasks.size());
+        for (ShardTask task : tasks) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return task.run();
+                } catch (Throwable t) {
+                    throw new CompletionException(t);
+                }
+            }, router.getExecutor()));
+        }
+
+        List<Object> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<Object> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            throw e.getCause() != null ? e.getCause() : e;
+        }
+        return results;
+    }
+
+    /**
+     * 按返回类型合并各分片的结果
+     *
+     * <p>
+     * 不能求和的数值结果与单个实体一样取第一个存在的结果。
+     */
+    private static Object merge(Class<?> returnType, List<Object> results, boolean summable) {
+        if (returnType == void.class || returnType == Void.class) {
+            return null;
+        }
+        if (Stream.class.isAssignableFrom(returnType)) {
+            return concat(results).stream();
+        }
+        if (Set.class.isAssignableFrom(returnType)) {
+            return new LinkedHashSet<>(concat(results));
+        }
+        if (Collection.class.isAssignableFrom(returnType)) {
+            return concat(results);
+        }
+        if (returnType.isArray()) {
+            return toArray(concat(results), returnType.getComponentType());
+        }
+        if (returnType == Optional.class) {
+            return results.stream().map(result -> (Optional<?>) result).filter(Optional::isPresent).findFirst()
+                    .orElse(Optional.empty());
+        }
+        if (summable && (returnType == long.class || returnType == Long.class)) {
+            return results.stream().mapToLong(result -> ((Number) result).longValue()).sum();
+        }
+        if (summable && (returnType == int.class || returnType == Integer.class)) {
+            return results.stream().mapToInt(result -> ((Number) result).intValue()).sum();
+        }
+        if (returnType == boolean.class || returnType == Boolean.class) {
+            return results.stream().anyMatch(Boolean.TRUE::equals);
+        }
+        return mergeSingleResult(results);
+    }
+
+    /** 单个结果取第一个存在的结果，所有分片都没有结果时抛出其中的 {@link EmptyResultException} */
+    private static Object mergeSingleResult(List<Object> results) {
+        EmptyResult empty = null;
+        for (Object result : results) {
+            if (result instanceof EmptyResult emptyResult) {
+                empty = emptyResult;
+            } else if (result != null) {
+                return result;
+            }
+        }
+        if (empty != null) {
+            throw empty.exception();
+        }
+        return null;
+    }
+
+    private static List<Object> concat(List<Object> results) {
+        List<Object> merged = new ArrayList<>();
+        for (Object result : results) {
+            if (result instanceof Collection<?> collection) {
+                merged.addAll(collection);
+            } else if (result != null && result.getClass().isArray()) {
+                merged.addAll(arrayToList(result));
+            }
+        }
+        return merged;
+    }
+
+    /** 读取实体的分片键 */
+    private static Object shardKey(Object entity) {
+        Field field = shardKeyFields.computeIfAbsent(entity.getClass(), ShardingSupport::findShardKeyField)
+                .orElseThrow(() -> new IllegalStateException(
+                        String.format("实体 '%s' 没有标注 @ShardKey 的字段，无法确定分片", entity.getClass().getName())));
+        Object shardKey = ReflectionUtils.getField(field, entity);
+        if (shardKey == null) {
+            throw new IllegalArgumentException(
+                    String.format("实体 '%s' 的分片键字段 '%s' 为null", entity.getClass().getName(), field.getName()));
+        }
+        return shardKey;
+    }
+
+    private static Optional<Field> findShardKeyField(Class<?> entityType) {
+        for (Class<?> type = entityType; type != null && type != Object.class; type = type.getSuperclass()) {
+            for (Field field : type.getDeclaredFields()) {
+                if (field.isAnnotationPresent(ShardKey.class)) {
+                    ReflectionUtils.makeAccessible(field);
+                    return Optional.of(field);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /** 分片上没有结果时抛出的异常 */
+    private record EmptyResult(EmptyResultException exception) {
+    }
+}
@@ -17,6 +17,8 @@
  
 package github.luckygc.jakartadata.provider.hibernate;
 
+import github.luckygc.jakartadata.metrics.RepositoryInvocationListener;
+
 import org.hibernate.SessionFactory;
 import org.hibernate.StatelessSession;
 import org.slf4j.Logger;
@@ -28,7 +30,15 @@ import org.springframework.transaction.support.ResourceHolderSupport;
 import org.springframework.transaction.support.ResourceHolderSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
 import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
 
 import javax.sql.DataSource;
 
@@ -58,6 +68,106 @@ public abstract class StatelessSessionUtils {
         }
     }
 
+    /**
+     * 打开非事务性的StatelessSession
+     *
+     * <p>
+     * 通过 {@link DataSourceUtils#getConnection} 获取连接并在其上打开Session，返回的持有者拥有该连接， 使用完毕后必须调用
+     * {@link #releaseSession(StatelessSessionHolder)} 关闭Session并归还连接。
+     *
+     * @param resourceKey
+     *            资源键
+     * @param listener
+     *            调用监听器，可为null
+     * @return 拥有连接的Session持有者
+     */
+    @NonNull
+    public static StatelessSessionHolder openSession(@NonNull ResourceKey resourceKey,
+            @Nullable RepositoryInvocationListener listener) {
+        DataSource dataSource = resourceKey.getDataSource();
+        Connection connection = getConnection(dataSource, listener);
+        try {
+            StatelessSession session = openStatelessSession(resourceKey.getTargetSessionFactory(), connection,
+                    listener);
+            return new StatelessSessionHolder(session, connection, dataSource);
+        } catch (RuntimeException e) {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+            throw e;
+        }
+    }
+
+    /**
+     * 关闭 {@link #openSession} 打开的Session并归还其拥有的连接
+     *
+     * @param holder
+     *            Session持有者
+     */
+    public static void releaseSession(@NonNull StatelessSessionHolder holder) {
+        closeSession(holder.getStatelessSession());
+        if (holder.connection != null) {
+            if (holder.cursorTransaction) {
+                endCursorTransaction(holder.connection);
+            }
+            DataSourceUtils.releaseConnection(holder.connection, holder.dataSource);
+        }
+    }
+
+    /**
+     * 为流式查询关闭Session所拥有连接的自动提交
+     *
+     * <p>
+     * 部分驱动（如PostgreSQL）只在非自动提交模式下按fetch size使用服务端游标，否则会一次性读取全部结果。 自动提交在
+     * {@link #releaseSession(StatelessSessionHolder)} 时恢复。不拥有连接的持有者不做处理。
+     *
+     * @param holder
+     *            {@link #openSession} 返回的Session持有者
+     */
+    public static void beginCursorTransaction(@NonNull StatelessSessionHolder holder) {
+        Connection connection = holder.connection;
+        if (connection == null || holder.cursorTransaction) {
+            return;
+        }
+        try {
+            if (connection.getAutoCommit()) {
+                connection.setAutoCommit(false);
+                holder.cursorTransaction = true;
+            }
+        } catch (SQLException e) {
+            log.warn("无法为流式查询关闭自动提交，驱动可能不会使用服务端游标", e);
+        }
+    }
+
+    private static void endCursorTransaction(Connection connection) {
+        try {
+            // 只读游标，提交只用于结束事务
+            connection.commit();
+            connection.setAutoCommit(true);
+        } catch (SQLException e) {
+            log.warn("恢复连接自动提交时发生异常", e);
+        }
+    }
+
+    private static Connection getConnection(DataSource dataSource, @Nullable RepositoryInvocationListener listener) {
+        if (listener == null) {
+            return DataSourceUtils.getConnection(dataSource);
+        }
+        long start = System.nanoTime();
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        listener.connectionAcquired(System.nanoTime() - start);
+        return connection;
+    }
+
+    private static StatelessSession openStatelessSession(SessionFactory sessionFactory, Connection connection,
+            @Nullable RepositoryInvocationListener listener) {
+        if (listener == null) {
+            return sessionFactory.openStatelessSession(connection);
+        }
+        long start = System.nanoTime();
+        StatelessSession session = sessionFactory.openStatelessSession(connection);
+        listener.sessionOpened(System.nanoTime() - start);
+        return session;
+    }
+
     /**
      * 获取事务性的StatelessSession
      *
@@ -75,7 +185,85 @@ public abstract class StatelessSessionUtils {
     @NonNull
     public static StatelessSession getTransactionalSession(@NonNull SessionFactory sessionFactory,
             @NonNull DataSource dataSource) {
-        String resourceKey = generateResourceKey(sessionFactory, dataSource);
+        return getTransactionalSessionHolder(sessionFactory, dataSource).getStatelessSession();
+    }
+
+    /**
+     * 获取事务性的StatelessSession持有者
+     *
+     * <p>
+     * 与 {@link #getTransactionalSession} 相同，但返回持有者以便复用绑定在该Session上的Repository实现类实例。
+     *
+     * @param sessionFactory
+     *            Hibernate SessionFactory
+     * @param dataSource
+     *            数据源
+     * @return 事务性StatelessSession持有者
+     * @throws RuntimeException
+     *             如果创建Session失败
+     */
+    @NonNull
+    public static StatelessSessionHolder getTransactionalSessionHolder(@NonNull SessionFactory sessionFactory,
+            @NonNull DataSource dataSource) {
+        return getTransactionalSessionHolder(new ResourceKey(sessionFactory, dataSource));
+    }
+
+    /**
+     * 获取事务性的StatelessSession持有者
+     *
+     * <p>
+     * 使用预先创建的资源键查找事务绑定的Session，复用已绑定Session时不产生任何对象分配。
+     *
+     * @param resourceKey
+     *            资源键，通常由调用方创建一次并长期持有
+     * @return 事务性StatelessSession持有者
+     * @throws RuntimeException
+     *             如果创建Session失败
+     */
+    @NonNull
+    public static StatelessSessionHolder getTransactionalSessionHolder(@NonNull ResourceKey resourceKey) {
+        return getTransactionalSessionHolder(resourceKey, null);
+    }
+
+    /**
+     * 获取事务性的StatelessSession持有者，并向监听器报告新建Session时获取连接和打开Session的耗时
+     *
+     * @param resourceKey
+     *            资源键，通常由调用方创建一次并长期持有
+     * @param listener
+     *            调用监听器，可为null
+     * @return 事务性StatelessSession持有者
+     * @throws RuntimeException
+     *             如果创建Session失败
+     */
+    @NonNull
+    public static StatelessSessionHolder getTransactionalSessionHolder(@NonNull ResourceKey resourceKey,
+            @Nullable RepositoryInvocationListener listener) {
+        return getTransactionalSessionHolder(resourceKey, listener, false);
+    }
+
+    /**
+     * 获取事务性的StatelessSession持有者
+     *
+     * <p>
+     * 延迟获取连接时，新建的Session持有一个连接代理，执行第一条语句时才通过 {@link DataSourceUtils#getConnection} 获取物理连接。
+     * 没有执行任何SQL的事务（例如全部由结果缓存应答或在参数校验时失败）不会从连接池中取出连接。
+     * 事务结束时向监听器报告该事务的Session是否使用过连接。
+     *
+     * @param resourceKey
+     *            资源键，通常由调用方创建一次并长期持有
+     * @param listener
+     *            调用监听器，可为null
+     * @param lazyConnection
+     *            是否延迟到执行第一条语句时才获取连接，仅对新建的Session生效
+     * @return 事务性StatelessSession持有者
+     * @throws RuntimeException
+     *             如果创建Session失败
+     */
+    @NonNull
+    public static StatelessSessionHolder getTransactionalSessionHolder(@NonNull ResourceKey resourceKey,
+            @Nullable RepositoryInvocationListener listener, boolean lazyConnection) {
+        DataSource dataSource = resourceKey.getDataSource();
 
         // 检查是否已经存在绑定的Session
         StatelessSessionHolder holder = (StatelessSessionHolder) TransactionSynchronizationManager
@@ -83,32 +271,35 @@ public abstract class StatelessSessionUtils {
 
         if (holder != null && holder.getStatelessSession().isConnected()) {
             log.debug("复用现有的事务性StatelessSession");
-            return holder.getStatelessSession();
+            return holder;
         }
 
         // 创建新的事务性Session
         Connection connection = null;
+        LazyConnection lazy = lazyConnection ? new LazyConnection(dataSource, listener) : null;
         try {
-            connection = DataSourceUtils.getConnection(dataSource);
-            StatelessSession session = sessionFactory.openStatelessSession(connection);
+            connection = lazy != null ? lazy.createProxy() : getConnection(dataSource, listener);
+            StatelessSession session = openStatelessSession(resourceKey.getTargetSessionFactory(), connection,
+                    listener);
 
             // 创建ResourceHolder
             holder = new StatelessSessionHolder(session);
+            holder.lazyConnection = lazy;
             holder.setSynchronizedWithTransaction(true);
 
             // 绑定到事务
             TransactionSynchronizationManager.bindResource(resourceKey, holder);
 
             // 注册事务同步回调
-            TransactionSynchronizationManager
-                    .registerSynchronization(new StatelessSessionResourceSynchronization(holder, resourceKey));
+            TransactionSynchronizationManager.registerSynchronization(
+                    new StatelessSessionResourceSynchronization(holder, resourceKey, listener));
 
             log.debug("创建并绑定新的事务性StatelessSession");
-            return session;
+            return holder;
 
         } catch (Exception e) {
-            // 清理资源
-            if (connection != null) {
+            // 清理资源，未获取物理连接的连接代理无需归还
+            if (connection != null && lazy == null) {
                 DataSourceUtils.releaseConnection(connection, dataSource);
             }
             log.error("创建事务性StatelessSession失败", e);
@@ -117,42 +308,253 @@ public abstract class StatelessSessionUtils {
     }
 
     /**
-     * 生成资源键
+     * 事务资源键
+     *
+     * <p>
+     * 以 (SessionFactory, DataSource) 的对象标识作为相等性依据，哈希值在创建时预先计算。 不依赖 {@code toString()}，结果稳定且唯一，查找时无字符串拼接与哈希计算。
      */
-    @NonNull
-    private static String generateResourceKey(@NonNull SessionFactory sessionFactory, @NonNull DataSource dataSource) {
-        return sessionFactory + "_" + dataSource;
+    public static final class ResourceKey {
+
+        private final SessionFactory sessionFactory;
+
+        private final DataSource dataSource;
+
+        private final int hashCode;
+
+        /** 打开Session使用的SessionFactory，异步初始化的代理在初始化完成后解析为实际的SessionFactory */
+        @Nullable
+        private volatile SessionFactory targetSessionFactory;
+
+        public ResourceKey(@NonNull SessionFactory sessionFactory, @NonNull DataSource dataSource) {
+            this.sessionFactory = sessionFactory;
+            this.dataSource = dataSource;
+            this.hashCode = 31 * System.identityHashCode(sessionFactory) + System.identityHashCode(dataSource);
+        }
+
+        @NonNull
+        public SessionFactory getSessionFactory() {
+            return this.sessionFactory;
+        }
+
+        /**
+         * 获取打开Session使用的SessionFactory
+         *
+         * <p>
+         * {@link SessionFactoryBean} 异步初始化完成后返回实际的SessionFactory，打开Session不再经过代理的反射调用；
+         * 初始化尚未完成时返回 {@link #getSessionFactory()}，调用时等待初始化完成。 资源键的相等性始终以 {@link #getSessionFactory()} 为准。
+         *
+         * @return SessionFactory
+         */
+        @NonNull
+        public SessionFactory getTargetSessionFactory() {
+            SessionFactory target = this.targetSessionFactory;
+            if (target == null) {
+                target = SessionFactoryBean.getBootstrappedSessionFactory(this.sessionFactory);
+                if (target == null) {
+                    return this.sessionFactory;
+                }
+                this.targetSessionFactory = target;
+            }
+            return target;
+        }
+
+        @NonNull
+        public DataSource getDataSource() {
+            return this.dataSource;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            return other instanceof ResourceKey that && this.sessionFactory == that.sessionFactory
+                    && this.dataSource == that.dataSource;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return "StatelessSession resource [" + this.sessionFactory + ", " + this.dataSource + "]";
+        }
     }
 
     /**
      * StatelessSession 资源同步器 用于在事务结束时清理 Session 资源
      */
     public static class StatelessSessionResourceSynchronization
-            extends ResourceHolderSynchronization<StatelessSessionHolder, String> {
+            extends ResourceHolderSynchronization<StatelessSessionHolder, ResourceKey> {
+
+        @Nullable
+        private final RepositoryInvocationListener listener;
 
-        public StatelessSessionResourceSynchronization(StatelessSessionHolder resourceHolder, String resourceKey) {
+        public StatelessSessionResourceSynchronization(StatelessSessionHolder resourceHolder,
+                ResourceKey resourceKey) {
+            this(resourceHolder, resourceKey, null);
+        }
+
+        public StatelessSessionResourceSynchronization(StatelessSessionHolder resourceHolder,
+                ResourceKey resourceKey, @Nullable RepositoryInvocationListener listener) {
             super(resourceHolder, resourceKey);
+            this.listener = listener;
         }
 
         @Override
-        protected void releaseResource(StatelessSessionHolder resourceHolder, String resourceKey) {
+        protected void releaseResource(StatelessSessionHolder resourceHolder, ResourceKey resourceKey) {
             StatelessSession session = resourceHolder.getStatelessSession();
             closeSession(session);
+            if (listener != null) {
+                LazyConnection lazy = resourceHolder.lazyConnection;
+                listener.transactionalSessionClosed(lazy == null || lazy.isAcquired());
+            }
             log.debug("Released transactional StatelessSession after transaction completion");
         }
     }
 
+    /**
+     * 延迟获取物理连接的连接代理
+     *
+     * <p>
+     * 打开Session及检查连接状态时不获取连接，其余调用首次发生时通过 {@link DataSourceUtils#getConnection} 获取事务的连接并转发。
+     * 物理连接由Spring事务同步负责归还，关闭代理不会关闭物理连接。获取前的自动提交状态按当前是否存在实际事务推断。 连接代理只在事务线程内使用，无需同步。
+     */
+    private static final class LazyConnection implements InvocationHandler {
+
+        private final DataSource dataSource;
+
+        @Nullable
+        private final RepositoryInvocationListener listener;
+
+        @Nullable
+        private Connection target;
+
+        private boolean closed;
+
+        private LazyConnection(DataSource dataSource, @Nullable RepositoryInvocationListener listener) {
+            this.dataSource = dataSource;
+            this.listener = listener;
+        }
+
+        private Connection createProxy() {
+            return (Connection) Proxy.newProxyInstance(StatelessSessionUtils.class.getClassLoader(),
+                    new Class<?>[] {Connection.class}, this);
+        }
+
+        /** 是否已获取物理连接 */
+        private boolean isAcquired() {
+            return target != null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals" -> {
+                    return proxy == args[0];
+                }
+                case "hashCode" -> {
+                    return System.identityHashCode(proxy);
+                }
+                case "toString" -> {
+                    return "Lazy JDBC connection [" + (target != null ? target : "not acquired") + "]";
+                }
+                case "close" -> {
+                    closed = true;
+                    return null;
+                }
+                case "isClosed" -> {
+                    return closed;
+                }
+                default -> {
+                }
+            }
+
+            if (target == null) {
+                if (closed) {
+                    throw new SQLException("Connection is closed");
+                }
+                if ("getAutoCommit".equals(method.getName())) {
+                    return !TransactionSynchronizationManager.isActualTransactionActive();
+                }
+                if (("unwrap".equals(method.getName()) || "isWrapperFor".equals(method.getName()))
+                        && ((Class<?>) args[0]).isInstance(proxy)) {
+                    return "unwrap".equals(method.getName()) ? proxy : true;
+                }
+                target = getConnection(dataSource, listener);
+                log.debug("事务性StatelessSession执行首条语句，获取JDBC连接");
+            }
+
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+    }
+
     public static class StatelessSessionHolder extends ResourceHolderSupport {
 
         private final StatelessSession statelessSession;
 
+        /** Session拥有的连接，由 {@link #releaseSession} 归还；事务性Session的连接由事务管理，为null */
+        @Nullable
+        private final Connection connection;
+
+        @Nullable
+        private final DataSource dataSource;
+
+        /** 是否为流式查询关闭了所拥有连接的自动提交 */
+        private boolean cursorTransaction;
+
+        /** 延迟获取连接的事务性Session的连接代理，其余情况为null */
+        @Nullable
+        private LazyConnection lazyConnection;
+
+        /** 绑定在该Session上的Repository实现类实例，按实现类缓存 */
+        private final Map<Class<?>, Object> repositories = new HashMap<>();
+
         public StatelessSessionHolder(@NonNull StatelessSession statelessSession) {
+            this(statelessSession, null, null);
+        }
+
+        public StatelessSessionHolder(@NonNull StatelessSession statelessSession, @Nullable Connection connection,
+                @Nullable DataSource dataSource) {
             this.statelessSession = statelessSession;
+            this.connection = connection;
+            this.dataSource = dataSource;
         }
 
         @NonNull
         public StatelessSession getStatelessSession() {
             return this.statelessSession;
         }
+
+        /**
+         * 获取绑定在该Session上的Repository实现类实例，不存在时创建
+         *
+         * <p>
+         * Hibernate生成的实现类仅持有Session，因此同一Session范围内的所有调用可以复用同一个实例。 持有者只在单个线程内使用，无需同步。
+         *
+         * @param implementationClass
+         *            Hibernate生成的实现类
+         * @param factory
+         *            实现类实例创建函数
+         * @param <R>
+         *            实现类类型
+         * @return Repository实现类实例
+         */
+        @NonNull
+        public <R> R getRepository(@NonNull Class<R> implementationClass,
+                @NonNull Function<StatelessSession, R> factory) {
+            Object repository = this.repositories.get(implementationClass);
+            if (repository == null) {
+                repository = factory.apply(this.statelessSession);
+                this.repositories.put(implementationClass, repository);
+            }
+            return implementationClass.cast(repository);
+        }
     }
 }
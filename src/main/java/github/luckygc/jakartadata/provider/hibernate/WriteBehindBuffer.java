@@ -0,0 +1,442 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.provider.hibernate;
+
+import github.luckygc.jakartadata.annotation.WriteBehind;
+import github.luckygc.jakartadata.async.WriteBehindFailureHandler;
+
+import jakarta.data.repository.Insert;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.SessionFactoryObserver;
+import org.hibernate.StatelessSession;
+import org.hibernate.Transaction;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+
+import java.io.Serial;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.sql.DataSource;
+
+/**
+ * {@link WriteBehind} Repository的插入缓冲
+ *
+ * <p>
+ * 调用方将实体放入 {@link ConcurrentLinkedQueue}，以 {@link Semaphore} 限制已提交但尚未写入完成的实体数，入队不加锁。
+ * 写线程在首次入队时启动，没有待写实体时休眠，入队使待写实体达到一批时被唤醒；每批在专用的StatelessSession中开启Hibernate事务，
+ * 以 {@link StatelessSession#insertMultiple(List)} 作为一个JDBC批次写入。
+ *
+ * <p>
+ * 已启动的缓冲按实际的SessionFactory登记，登记时在SessionFactory上注册 {@link SessionFactoryObserver}：
+ * SessionFactory开始关闭时停止接收新实体并等待写线程写完剩余实体，此后不再启动新的写线程。
+ *
+ * @author luckygc
+ */
+final class WriteBehindBuffer {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteBehindBuffer.class);
+
+    /** 实际的SessionFactory到其上已启动的缓冲的登记表，SessionFactory关闭后移除 */
+    private static final Map<SessionFactory, Registration> registrations = new ConcurrentHashMap<>();
+
+    private final Class<?> repositoryInterface;
+
+    private final SessionFactory sessionFactory;
+
+    private final DataSource dataSource;
+
+    /** 经由缓冲执行的插入方法 */
+    private final Set<Method> methods;
+
+    private final int capacity;
+
+    private final int batchSize;
+
+    private final long flushIntervalNanos;
+
+    @Nullable
+    private final WriteBehindFailureHandler failureHandler;
+
+    /** 每批写入成功后执行的回调 */
+    private final Runnable afterWrite;
+
+    private final ConcurrentLinkedQueue<Object> queue = new ConcurrentLinkedQueue<>();
+
+    /** 已提交但尚未取出的实体数 */
+    private final AtomicInteger queued = new AtomicInteger();
+
+    /** 队列剩余容量，实体写入完成后归还 */
+    private final Semaphore permits;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile Thread writer;
+
+    private volatile boolean closed;
+
+    private WriteBehindBuffer(Class<?> repositoryInterface, WriteBehind config, Set<Method> methods,
+            SessionFactory sessionFactory, DataSource dataSource, @Nullable WriteBehindFailureHandler failureHandler,
+            Runnable afterWrite) {
+        this.repositoryInterface = repositoryInterface;
+        this.sessionFactory = sessionFactory;
+        this.dataSource = dataSource;
+        this.methods = methods;
+        this.capacity = Math.max(config.capacity(), 1);
+        this.batchSize = Math.max(Math.min(config.batchSize(), capacity), 1);
+        this.flushIntervalNanos = Math.max(config.timeUnit().toNanos(config.flushInterval()), 1);
+        this.failureHandler = failureHandler;
+        this.afterWrite = afterWrite;
+        this.permits = new Semaphore(capacity);
+    }
+
+    /**
+     * 为标注了 {@link WriteBehind} 的Repository创建插入缓冲
+     *
+     * @param repositoryInterface
+     *            Repository接口类型
+     * @param methods
+     *            Repository接口方法
+     * @param sessionFactory
+     *            SessionFactory
+     * @param dataSource
+     *            写入使用的数据源
+     * @param failureHandler
+     *            写入失败回调，可为null
+     * @param afterWrite
+     *            每批写入成功后执行的回调
+     * @return 插入缓冲，Repository未标注 {@link WriteBehind} 或没有可缓冲的插入方法时为null
+     */
+    @Nullable
+    static WriteBehindBuffer create(Class<?> repositoryInterface, Iterable<Method> methods,
+            SessionFactory sessionFactory, DataSource dataSource, @Nullable WriteBehindFailureHandler failureHandler,
+            Runnable afterWrite) {
+        WriteBehind config = AnnotationUtils.findAnnotation(repositoryInterface, WriteBehind.class);
+        if (config == null) {
+            return null;
+        }
+
+        Set<Method> insertMethods = new HashSet<>();
+        for (Method method : methods) {
+            if (method.isAnnotationPresent(Insert.class) && method.getReturnType() == void.class
+                    && method.getParameterCount() == 1) {
+                insertMethods.add(method);
+            }
+        }
+        if (insertMethods.isEmpty()) {
+            return null;
+        }
+        return new WriteBehindBuffer(repositoryInterface, config, Set.copyOf(insertMethods), sessionFactory,
+                dataSource, failureHandler, afterWrite);
+    }
+
+    /**
+     * 在SessionFactory上注册关闭时写入剩余实体的观察者
+     *
+     * <p>
+     * 首次启动写线程时也会注册，构建SessionFactory时提前注册可避免与关闭并发。
+     *
+     * @param sessionFactory
+     *            SessionFactory
+     */
+    static void register(SessionFactory sessionFactory) {
+        registration(sessionFactory);
+    }
+
+    /** 获取SessionFactory的登记，SessionFactory已关闭时返回null */
+    @Nullable
+    private static Registration registration(SessionFactory sessionFactory) {
+        SessionFactoryImplementor factory = sessionFactory.unwrap(SessionFactoryImplementor.class);
+        if (factory.isClosed()) {
+            return null;
+        }
+        Registration registration = registrations.computeIfAbsent(factory, key -> {
+            factory.addObserver(new ClosingObserver());
+            return new Registration();
+        });
+        if (factory.isClosed()) {
+            registrations.remove(factory, registration);
+            return null;
+        }
+        return registration;
+    }
+
+    /**
+     * 停止SessionFactory上的全部缓冲，等待剩余实体写入完成
+     *
+     * @param sessionFactory
+     *            开始关闭的SessionFactory
+     */
+    private static void closeAll(SessionFactory sessionFactory) {
+        Registration registration = registrations.get(sessionFactory);
+        if (registration != null) {
+            registration.close().forEach(WriteBehindBuffer::close);
+        }
+    }
+
+    /** 该方法是否经由缓冲执行 */
+    boolean handles(Method method) {
+        return methods.contains(method);
+    }
+
+    /**
+     * 提交插入方法的参数
+     *
+     * <p>
+     * 队列已满时等待写线程腾出空间。缓冲已停止或集合超过队列容量时不入队，由调用方同步执行。
+     *
+     * @param argument
+     *            实体、实体集合或数组
+     * @return 已入队返回true，需要同步执行返回false
+     * @throws NullPointerException
+     *             参数或其中的实体为null时抛出
+     */
+    boolean offer(Object argument) {
+        List<?> entities = entities(argument);
+        int count = entities.size();
+        if (count == 0) {
+            return true;
+        }
+        if (closed || count > capacity) {
+            return false;
+        }
+
+        final Thread current = startWriter();
+        if (current == null) {
+            return false;
+        }
+        permits.acquireUninterruptibly(count);
+        queued.addAndGet(count);
+        if (closed) {
+            // 写线程可能已经退出，撤回后同步执行
+            queued.addAndGet(-count);
+            permits.release(count);
+            return false;
+        }
+        queue.addAll(entities);
+        if (queued.get() >= batchSize) {
+            LockSupport.unpark(current);
+        }
+        return true;
+    }
+
+    private static List<?> entities(Object argument) {
+        Objects.requireNonNull(argument, "Null entity");
+        List<?> entities = argument instanceof List<?> list ? list
+                : argument.getClass().isArray() ? Arrays.asList((Object[]) argument) : List.of(argument);
+        entities.forEach(entity -> Objects.requireNonNull(entity, "Null entity"));
+        return entities;
+    }
+
+    /** 首次入队时启动写线程并登记缓冲，SessionFactory已开始关闭时停止缓冲并返回null */
+    @Nullable
+    private Thread startWriter() {
+        Thread current = writer;
+        if (current != null) {
+            return current;
+        }
+
+        lock.lock();
+        try {
+            current = writer;
+            if (current == null) {
+                Registration registration = registration(sessionFactory);
+                if (registration == null || !registration.add(this)) {
+                    closed = true;
+                    return null;
+                }
+                current = new Thread(this::runWriter, "write-behind-" + repositoryInterface.getSimpleName());
+                current.setDaemon(true);
+                current.start();
+                writer = current;
+            }
+            return current;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /** 写线程：满一批、超过刷新间隔或停止时写入，否则休眠 */
+    private void runWriter() {
+        long lastWrite = System.nanoTime();
+        while (true) {
+            boolean stopping = closed;
+            int pending = queued.get();
+            long now = System.nanoTime();
+            if (pending == 0) {
+                if (stopping) {
+                    return;
+                }
+                lastWrite = now;
+                LockSupport.parkNanos(this, flushIntervalNanos);
+            } else if (stopping || pending >= batchSize || now - lastWrite >= flushIntervalNanos) {
+                write(drain());
+                lastWrite = now;
+            } else {
+                LockSupport.parkNanos(this, flushIntervalNanos - (now - lastWrite));
+            }
+        }
+    }
+
+    private List<Object> drain() {
+        List<Object> batch = new ArrayList<>(batchSize);
+        Object entity;
+        while (batch.size() < batchSize && (entity = queue.poll()) != null) {
+            batch.add(entity);
+        }
+        queued.addAndGet(-batch.size());
+        return batch;
+    }
+
+    /** 在本地事务中以一个JDBC批次写入一批实体，无论成败都归还队列容量 */
+    private void write(List<Object> batch) {
+        if (batch.isEmpty()) {
+            // 实体已计数但尚未放入队列
+            Thread.onSpinWait();
+            return;
+        }
+
+        try {
+            Connection connection = DataSourceUtils.getConnection(dataSource);
+            try (StatelessSession session = sessionFactory.openStatelessSession(connection)) {
+                Transaction transaction = session.beginTransaction();
+                try {
+                    session.insertMultiple(batch);
+                    transaction.commit();
+                } catch (Throwable t) {
+                    if (transaction.getStatus().canRollback()) {
+                        transaction.rollback();
+                    }
+                    throw t;
+                }
+            } finally {
+                DataSourceUtils.releaseConnection(connection, dataSource);
+            }
+            afterWrite.run();
+        } catch (Throwable t) {
+            writeFailed(batch, t);
+        } finally {
+            permits.release(batch.size());
+        }
+    }
+
+    private void writeFailed(List<Object> batch, Throwable cause) {
+        if (failureHandler == null) {
+            log.error("Repository '{}' 写后缓冲写入 {} 个实体失败", repositoryInterface.getName(), batch.size(), cause);
+            return;
+        }
+        try {
+            failureHandler.writeFailed(repositoryInterface, List.copyOf(batch), cause);
+        } catch (RuntimeException ex) {
+            log.error("Repository '{}' 写后缓冲的写入失败回调抛出异常", repositoryInterface.getName(), ex);
+        }
+    }
+
+    /** 停止接收新实体，等待写线程写完剩余实体后退出 */
+    void close() {
+        closed = true;
+        Thread current = writer;
+        if (current == null || current == Thread.currentThread()) {
+            return;
+        }
+        LockSupport.unpark(current);
+        try {
+            current.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            log.warn("等待Repository '{}' 写后缓冲写入剩余实体时线程被中断", repositoryInterface.getName());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "WriteBehindBuffer[" + repositoryInterface.getName() + ", queued=" + queued.get() + "]";
+    }
+
+    /**
+     * 单个SessionFactory上已启动的缓冲
+     */
+    private static final class Registration {
+
+        private final ReentrantLock lock = new ReentrantLock();
+
+        private final Set<WriteBehindBuffer> buffers = new HashSet<>();
+
+        private boolean closing;
+
+        /** 登记缓冲，SessionFactory已开始关闭时返回false */
+        private boolean add(WriteBehindBuffer buffer) {
+            lock.lock();
+            try {
+                return !closing && buffers.add(buffer);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /** 拒绝之后的登记，返回已登记的缓冲 */
+        private List<WriteBehindBuffer> close() {
+            lock.lock();
+            try {
+                closing = true;
+                List<WriteBehindBuffer> result = List.copyOf(buffers);
+                buffers.clear();
+                return result;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * SessionFactory开始关闭时写入剩余实体，关闭后移除登记
+     */
+    private static final class ClosingObserver implements SessionFactoryObserver {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void sessionFactoryClosing(SessionFactory factory) {
+            closeAll(factory);
+        }
+
+        @Override
+        public void sessionFactoryClosed(SessionFactory factory) {
+            registrations.remove(factory);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.routing;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+/**
+ * 只读副本路由
+ *
+ * <p>
+ * 容器中注册该Bean后，Repository的读方法在以下情况下改用副本执行：
+ * <ul>
+ * <li>不在事务及 {@link github.luckygc.jakartadata.annotation.RepositorySession} 作用域内，每次调用重新选择副本</li>
+ * <li>在只读事务内，事务中首次读操作选择的副本绑定到事务，事务内的后续读操作使用同一副本</li>
+ * </ul>
+ * 写方法、读写事务内的所有方法以及作用域内的方法始终在主库执行，保证读己之写。 副本不需要注册为Bean，Repository始终以容器中唯一的 {@link DataSource} 作为主库。
+ *
+ * @author luckygc
+ */
+public class ReadReplicaRouter {
+
+    private final List<DataSource> replicas;
+
+    private final ReplicaSelector selector;
+
+    /**
+     * 构造函数，轮询选择副本
+     *
+     * @param replicas
+     *            副本数据源
+     */
+    public ReadReplicaRouter(@NonNull List<DataSource> replicas) {
+        this(replicas, ReplicaSelector.roundRobin());
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param replicas
+     *            副本数据源
+     * @param selector
+     *            副本选择策略
+     */
+    public ReadReplicaRouter(@NonNull List<DataSource> replicas, @NonNull ReplicaSelector selector) {
+        Assert.notEmpty(replicas, "replicas must not be empty");
+        Assert.notNull(selector, "selector must not be null");
+        this.replicas = List.copyOf(replicas);
+        this.selector = selector;
+    }
+
+    /** 全部副本 */
+    public List<DataSource> getReplicas() {
+        return replicas;
+    }
+
+    /**
+     * 为当前读操作确定副本
+     *
+     * <p>
+     * 事务同步激活时，首次选择的副本绑定到当前事务直至事务结束。
+     *
+     * @return 副本数据源
+     */
+    public DataSource determineReplica() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return select();
+        }
+
+        DataSource bound = (DataSource) TransactionSynchronizationManager.getResource(this);
+        if (bound != null) {
+            return bound;
+        }
+
+        DataSource selected = select();
+        TransactionSynchronizationManager.bindResource(this, selected);
+        TransactionSynchronizationManager.registerSynchronization(new ReplicaSynchronization(selected));
+        return selected;
+    }
+
+    private DataSource select() {
+        DataSource selected = selector.select(replicas);
+        Assert.state(selected != null, "ReplicaSelector returned null");
+        return selected;
+    }
+
+    @Override
+    public String toString() {
+        return "ReadReplicaRouter[replicas=" + replicas.size() + "]";
+    }
+
+    /** 维护事务绑定的副本，随事务挂起、恢复及结束解绑 */
+    private final class ReplicaSynchronization implements TransactionSynchronization {
+
+        private final DataSource replica;
+
+        ReplicaSynchronization(DataSource replica) {
+            this.replica = replica;
+        }
+
+        @Override
+        public void suspend() {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ReadReplicaRouter.this);
+        }
+
+        @Override
+        public void resume() {
+            TransactionSynchronizationManager.bindResource(ReadReplicaRouter.this, replica);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(ReadReplicaRouter.this);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.routing;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * 只读副本的负载均衡策略
+ *
+ * @author luckygc
+ */
+@FunctionalInterface
+public interface ReplicaSelector {
+
+    /**
+     * 为一次读操作选择副本
+     *
+     * @param replicas
+     *            全部副本，不可变且非空
+     * @return 选中的副本，必须是 {@code replicas} 中的元素
+     */
+    DataSource select(List<DataSource> replicas);
+
+    /** 轮询选择副本 */
+    static ReplicaSelector roundRobin() {
+        AtomicInteger counter = new AtomicInteger();
+        return replicas -> replicas.get(Math.floorMod(counter.getAndIncrement(), replicas.size()));
+    }
+
+    /** 随机选择副本 */
+    static ReplicaSelector random() {
+        return replicas -> replicas.get(ThreadLocalRandom.current().nextInt(replicas.size()));
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.routing;
+
+import github.luckygc.jakartadata.async.RepositoryExecutor;
+
+import org.jspecify.annotations.NonNull;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.util.Assert;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+import javax.sql.DataSource;
+
+/**
+ * 分片路由
+ *
+ * <p>
+ * 保存结构相同的一组分片数据源，供 {@link github.luckygc.jakartadata.annotation.Sharded} Repository按分片键选择数据源。
+ * 所有分片共用Repository的SessionFactory，每个分片只需要注册数据源，分片数据源不需要注册为Bean。 实体主键在各分片间应保持唯一，例如由应用分配或使用全局序列。
+ *
+ * @author luckygc
+ */
+public class ShardRouter {
+
+    private final List<DataSource> shards;
+
+    private final ShardingStrategy strategy;
+
+    private final Executor executor;
+
+    /**
+     * 构造函数，按分片键哈希取模选择分片，多分片查询使用 {@linkplain #createDefaultExecutor(List) 默认执行器}
+     *
+     * @param shards
+     *            分片数据源，下标即分片编号
+     */
+    public ShardRouter(@NonNull List<DataSource> shards) {
+        this(shards, ShardingStrategy.hash());
+    }
+
+    /**
+     * 构造函数，多分片查询使用 {@linkplain #createDefaultExecutor(List) 默认执行器}
+     *
+     * @param shards
+     *            分片数据源，下标即分片编号
+     * @param strategy
+     *            分片策略
+     */
+    public ShardRouter(@NonNull List<DataSource> shards, @NonNull ShardingStrategy strategy) {
+        this(shards, strategy, createDefaultExecutor(shards));
+    }
+
+    /**
+     * 构造函数
+     *
+     * @param shards
+     *            分片数据源，下标即分片编号
+     * @param strategy
+     *            分片策略
+     * @param executor
+     *            并行执行多分片查询的执行器
+     */
+    public ShardRouter(@NonNull List<DataSource> shards, @NonNull ShardingStrategy strategy,
+            @NonNull Executor executor) {
+        Assert.notEmpty(shards, "shards must not be empty");
+        Assert.notNull(strategy, "strategy must not be null");
+        Assert.notNull(executor, "executor must not be null");
+        this.shards = List.copyOf(shards);
+        this.strategy = strategy;
+        this.executor = executor;
+    }
+
+    /**
+     * 创建多分片查询的默认执行器
+     *
+     * <p>
+     * 固定大小的守护线程池，线程数为各分片连接池最大连接数之和，多分片查询不会占用超过连接总数的线程。
+     *
+     * @param shards
+     *            分片数据源
+     * @return 执行器
+     */
+    private static Executor createDefaultExecutor(List<DataSource> shards) {
+        Assert.notEmpty(shards, "shards must not be empty");
+        int threads = 0;
+        for (DataSource shard : shards) {
+            threads += RepositoryExecutor.determineMaxConcurrency(shard);
+        }
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("shard-");
+        threadFactory.setDaemon(true);
+        return Executors.newFixedThreadPool(threads, threadFactory);
+    }
+
+    /** 全部分片 */
+    public List<DataSource> getShards() {
+        return shards;
+    }
+
+    /** 并行执行多分片查询的执行器 */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * 确定分片键所在的分片
+     *
+     * @param shardKey
+     *            分片键
+     * @return 分片数据源
+     * @throws IllegalArgumentException
+     *             分片键为null时抛出
+     */
+    public DataSource determineShard(Object shardKey) {
+        Assert.notNull(shardKey, "shard key must not be null");
+        int index = strategy.shardIndex(shardKey, shards.size());
+        Assert.state(index >= 0 && index < shards.size(),
+                () -> "ShardingStrategy returned invalid shard index " + index);
+        return shards.get(index);
+    }
+
+    @Override
+    public String toString() {
+        return "ShardRouter[shards=" + shards.size() + "]";
+    }
+}
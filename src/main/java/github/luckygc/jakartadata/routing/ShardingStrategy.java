@@ -0,0 +1,43 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.routing;
+
+/**
+ * 分片键到分片的映射策略
+ *
+ * @author luckygc
+ */
+@FunctionalInterface
+public interface ShardingStrategy {
+
+    /**
+     * 计算分片键所在的分片
+     *
+     * @param shardKey
+     *            分片键，非null
+     * @param shardCount
+     *            分片数量
+     * @return 分片下标，取值范围为 [0, shardCount)
+     */
+    int shardIndex(Object shardKey, int shardCount);
+
+    /** 按分片键的 {@link Object#hashCode()} 取模 */
+    static ShardingStrategy hash() {
+        return (shardKey, shardCount) -> Math.floorMod(shardKey.hashCode(), shardCount);
+    }
+}
@@ -0,0 +1,44 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.warmup;
+
+/**
+ * Repository预热回调
+ *
+ * <p>
+ * 注册为Spring Bean后，{@link RepositoryWarmUpRunner} 对类型参数对应的Repository反复调用 {@link #warmUp(Object)}，
+ * 用于需要构造实体、分页请求等复杂参数的预热场景。Bean的泛型类型必须可解析，例如声明为 {@code @Bean} 方法的返回类型
+ * {@code RepositoryWarmUpCallback<UserRepository>} 或实现该接口的具体类。
+ *
+ * @param <T>
+ *            Repository接口类型
+ * @author luckygc
+ */
+@FunctionalInterface
+public interface RepositoryWarmUpCallback<T> {
+
+    /**
+     * 执行一次预热调用，应只调用读方法
+     *
+     * @param repository
+     *            Repository实例
+     * @throws Exception
+     *             预热失败时抛出，该回调不再继续执行
+     */
+    void warmUp(T repository) throws Exception;
+}
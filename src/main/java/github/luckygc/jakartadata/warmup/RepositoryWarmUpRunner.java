@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.warmup;
+
+import github.luckygc.jakartadata.DataRepositoryFactoryBean;
+import github.luckygc.jakartadata.ExceptionUtil;
+import github.luckygc.jakartadata.RepositoryMethodUtil;
+import github.luckygc.jakartadata.annotation.WarmUp;
+import github.luckygc.jakartadata.async.RepositoryExecutor;
+
+import org.jspecify.annotations.NonNull;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.BeanFactoryUtils;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.TypeDescriptor;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.util.Assert;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionStage;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+/**
+ * Repository预热执行器
+ *
+ * <p>
+ * 注册为Spring Bean后，在所有单例Bean创建完成、容器完成刷新之前执行预热：
+ * <ol>
+ * <li>对容器中的每个数据源同时打开若干连接后归还，使连接池提前建立物理连接</li>
+ * <li>按 {@link WarmUp} 注解反复调用Repository读方法</li>
+ * <li>对每个Repository反复执行对应的 {@link RepositoryWarmUpCallback}</li>
+ * </ol>
+ * 预热在真实数据源上执行，使代理的调用路径、Hibernate生成的实现类及JDBC驱动在接收流量前完成JIT编译。 单个方法或回调失败时记录警告并跳过其剩余调用，不影响容器启动。
+ *
+ * <pre>
+ * &#64;Bean
+ * public RepositoryWarmUpRunner repositoryWarmUpRunner() {
+ *     return new RepositoryWarmUpRunner();
+ * }
+ * </pre>
+ *
+ * @author luckygc
+ */
+public class RepositoryWarmUpRunner implements SmartInitializingSingleton, BeanFactoryAware {
+
+    /** 默认调用次数 */
+    public static final int DEFAULT_ITERATIONS = 1000;
+
+    private static final Logger log = LoggerFactory.getLogger(RepositoryWarmUpRunner.class);
+
+    private final ConversionService conversionService = DefaultConversionService.getSharedInstance();
+
+    private ConfigurableListableBeanFactory beanFactory;
+
+    private int iterations = DEFAULT_ITERATIONS;
+
+    private int connections = -1;
+
+    @Nullable
+    private volatile WarmUpReport report;
+
+    @Override
+    public void setBeanFactory(@NonNull BeanFactory beanFactory) {
+        Assert.isInstanceOf(ConfigurableListableBeanFactory.class, beanFactory,
+                "RepositoryWarmUpRunner requires a ConfigurableListableBeanFactory");
+        this.beanFactory = (ConfigurableListableBeanFactory) beanFactory;
+    }
+
+    /**
+     * 设置每个预热方法及回调的默认调用次数
+     *
+     * @param iterations
+     *            调用次数，默认为 {@link #DEFAULT_ITERATIONS}
+     */
+    public void setIterations(int iterations) {
+        Assert.isTrue(iterations >= 0, "iterations must not be negative");
+        this.iterations = iterations;
+    }
+
+    /**
+     * 设置每个数据源预先打开的连接数
+     *
+     * @param connections
+     *            连接数，小于0时使用 {@link RepositoryExecutor#determineMaxConcurrency(DataSource)} 识别的连接池大小，0表示不预先打开
+     */
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    /**
+     * 最近一次预热的报告
+     *
+     * @return 预热报告，尚未预热时为null
+     */
+    @Nullable
+    public WarmUpReport getReport() {
+        return report;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        WarmUpReport result = warmUp();
+        this.report = result;
+        log.info("Repository预热完成，预先打开 {} 个连接，调用 {} 次，失败 {} 项，耗时 {} ms", result.connections(),
+                result.invocations(), result.failures(), result.elapsed().toMillis());
+    }
+
+    /**
+     * 执行预热
+     *
+     * @return 预热报告
+     */
+    public WarmUpReport warmUp() {
+        final long start = System.nanoTime();
+        int openedConnections = 0;
+        for (Map.Entry<String, DataSource> entry : beanFactory.getBeansOfType(DataSource.class).entrySet()) {
+            openedConnections += openConnections(entry.getKey(), entry.getValue());
+        }
+
+        WarmUpCounter counter = new WarmUpCounter();
+        for (String factoryBeanName : beanFactory.getBeanNamesForType(DataRepositoryFactoryBean.class, true, false)) {
+            String beanName = BeanFactoryUtils.transformedBeanName(factoryBeanName);
+            Class<?> repositoryInterface = beanFactory.getType(beanName);
+            if (repositoryInterface == null || !repositoryInterface.isInterface()) {
+                continue;
+            }
+            warmUpRepository(repositoryInterface, beanFactory.getBean(beanName), counter);
+        }
+
+        return new WarmUpReport(openedConnections, counter.invocations, counter.failures,
+                Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /** 同时打开若干连接后全部归还，返回成功打开的连接数 */
+    private int openConnections(String beanName, DataSource dataSource) {
+        int count = connections >= 0 ? connections : RepositoryExecutor.determineMaxConcurrency(dataSource);
+        List<Connection> opened = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                opened.add(dataSource.getConnection());
+            }
+        } catch (SQLException | RuntimeException ex) {
+            log.warn("预先打开数据源 '{}' 的连接失败，已打开 {} 个", beanName, opened.size(), ex);
+        } finally {
+            for (Connection connection : opened) {
+                try {
+                    connection.close();
+                } catch (SQLException ex) {
+                    log.debug("归还预热连接时发生异常", ex);
+                }
+            }
+        }
+        return opened.size();
+    }
+
+    private void warmUpRepository(Class<?> repositoryInterface, Object repository, WarmUpCounter counter) {
+        for (Method method : repositoryInterface.getMethods()) {
+            WarmUp warmUp = method.getAnnotation(WarmUp.class);
+            if (warmUp != null) {
+                warmUpMethod(repository, method, warmUp, counter);
+            }
+        }
+
+        ResolvableType callbackType = ResolvableType.forClassWithGenerics(RepositoryWarmUpCallback.class,
+                repositoryInterface);
+        beanFactory.<RepositoryWarmUpCallback<Object>>getBeanProvider(callbackType).orderedStream()
+                .forEach(callback -> {
+                    for (int i = 0; i < iterations; i++) {
+                        try {
+                            callback.warmUp(repository);
+                            counter.invocations++;
+                        } catch (Exception ex) {
+                            log.warn("Repository '{}' 的预热回调 '{}' 执行失败，跳过剩余调用", repositoryInterface.getName(),
+                                    callback, ex);
+                            counter.failures++;
+                            return;
+                        }
+                    }
+                });
+    }
+
+    private void warmUpMethod(Object repository, Method method, WarmUp warmUp, WarmUpCounter counter) {
+        if (RepositoryMethodUtil.isWrite(method)) {
+            throw new IllegalStateException(String.format("@WarmUp 只能用于读方法: '%s'", method));
+        }
+        Object[] args = convertArgs(method, warmUp.args());
+        int count = warmUp.iterations() >= 0 ? warmUp.iterations() : iterations;
+        for (int i = 0; i < count; i++) {
+            try {
+                consume(method.invoke(repository, args));
+                counter.invocations++;
+            } catch (Throwable t) {
+                log.warn("预热Repository方法 '{}' 失败，跳过剩余调用", method, ExceptionUtil.unwrapThrowable(t));
+                counter.failures++;
+                return;
+            }
+        }
+    }
+
+    private Object[] convertArgs(Method method, String[] values) {
+        if (values.length != method.getParameterCount()) {
+            throw new IllegalStateException(String.format("@WarmUp 的参数个数 %d 与方法参数个数 %d 不一致: '%s'", values.length,
+                    method.getParameterCount(), method));
+        }
+        Object[] args = new Object[values.length];
+        for (int i = 0; i < values.length; i++) {
+            args[i] = conversionService.convert(values[i], TypeDescriptor.valueOf(String.class),
+                    new TypeDescriptor(MethodParameter.forExecutable(method, i)));
+        }
+        return args;
+    }
+
+    /** 读取流式结果并等待异步结果，使整个查询路径都被执行 */
+    private static void consume(@Nullable Object result) {
+        if (result instanceof Stream<?> stream) {
+            try (stream) {
+                stream.forEach(element -> {
+                });
+            }
+        } else if (result instanceof CompletionStage<?> stage) {
+            stage.toCompletableFuture().join();
+        }
+    }
+
+    /** 预热过程中的计数 */
+    private static final class WarmUpCounter {
+
+        private int invocations;
+
+        private int failures;
+    }
+
+    /**
+     * 预热报告
+     *
+     * @param connections
+     *            预先打开的连接总数
+     * @param invocations
+     *            成功的预热调用次数
+     * @param failures
+     *            失败的预热方法及回调数
+     * @param elapsed
+     *            预热耗时
+     */
+    public record WarmUpReport(int connections, int invocations, int failures, Duration elapsed) {
+    }
+}
@@ -38,6 +38,7 @@ import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
 
@@ -57,6 +58,11 @@ public class LambdaMetaFactoryTest {
     private Constructor<TestClass> reflectConstructor;
     private Function<String, TestClass> lambdaConstructor;
 
+    private TestClass target;
+    private Object[] methodArgs;
+    private Method reflectMethod;
+    private MethodHandle spreadMethodHandle;
+
     @Setup
     public void setup() throws Throwable {
         // 设置反射构造函数
@@ -72,6 +78,13 @@ public class LambdaMetaFactoryTest {
                 constructorHandle, MethodType.methodType(TestClass.class, String.class));
 
         lambdaConstructor = (Function<String, TestClass>) constructorCallSite.getTarget().invokeExact();
+
+        // 设置方法调用，与 HibernateRepositoryProxy 的分派方式保持一致: (实例, 参数数组) -> 返回值
+        target = new TestClass("TestParam");
+        methodArgs = new Object[] {"OtherParam"};
+        reflectMethod = TestClass.class.getMethod("orElse", String.class);
+        spreadMethodHandle = lookup.unreflect(reflectMethod).asSpreader(Object[].class, 1)
+                .asType(MethodType.methodType(Object.class, Object.class, Object[].class));
     }
 
     @Benchmark
@@ -84,6 +97,16 @@ public class LambdaMetaFactoryTest {
         return reflectConstructor.newInstance("TestParam");
     }
 
+    @Benchmark
+    public Object benchmarkReflectionMethodCall() throws Exception {
+        return reflectMethod.invoke(target, methodArgs);
+    }
+
+    @Benchmark
+    public Object benchmarkMethodHandleMethodCall() throws Throwable {
+        return (Object) spreadMethodHandle.invokeExact((Object) target, methodArgs);
+    }
+
     /** 运行基准测试的主方法 */
     public static void main(String[] args) throws RunnerException {
         Options opt = new OptionsBuilder().include(LambdaMetaFactoryTest.class.getSimpleName()).forks(1).build();
@@ -103,5 +126,9 @@ public class LambdaMetaFactoryTest {
         public String getParameter() {
             return parameter;
         }
+
+        public String orElse(String other) {
+            return parameter != null ? parameter : other;
+        }
     }
 }
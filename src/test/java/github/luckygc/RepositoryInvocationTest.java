@@ -0,0 +1,248 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc;
+
+import github.luckygc.jakartadata.BasicRepository;
+import github.luckygc.jakartadata.User;
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.annotation.ProxyMode;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import jakarta.data.Order;
+import jakarta.data.Sort;
+import jakarta.data.page.Page;
+import jakarta.data.page.PageRequest;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.hibernate.SessionFactory;
+import org.hibernate.StatelessSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+/**
+ * Repository 调用路径端到端 JMH 基准测试 通过 DataRepositoryFactoryBean 创建的代理在 H2 内存数据库上执行 findById、insert、update 和分页查询，
+ * 分别覆盖事务内与事务外，并以直接使用 StatelessSession 作为基准。数据源使用 H2 自带连接池。
+ *
+ * <p>
+ * 运行: mvn -Pbenchmark test-compile exec:exec -Djmh.args="RepositoryInvocationTest -prof gc"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 2, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class RepositoryInvocationTest {
+
+    private static final int ROWS = 1000;
+
+    @Param({"JDK", "HIDDEN_CLASS"})
+    private ProxyMode proxyMode;
+
+    private AnnotationConfigApplicationContext context;
+    private BasicRepository repository;
+    private SessionFactory sessionFactory;
+    private DataSource dataSource;
+    private TransactionTemplate transactionTemplate;
+    private PageRequest pageRequest;
+    private Order<User> order;
+    private User updateTarget;
+    private long nextId;
+    private long sequence;
+
+    @Setup
+    public void setup() {
+        Class<?> configClass = (proxyMode == ProxyMode.HIDDEN_CLASS ? HiddenClassConfig.class : JdkConfig.class);
+        context = new AnnotationConfigApplicationContext(configClass);
+        repository = context.getBean(BasicRepository.class);
+        sessionFactory = context.getBean(SessionFactory.class);
+        dataSource = context.getBean(DataSource.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        pageRequest = PageRequest.ofPage(2, 20, true);
+        order = Order.by(Sort.asc("id"));
+
+        for (int i = 0; i < ROWS; i++) {
+            repository.insert(newUser());
+        }
+        updateTarget = repository.insert(newUser());
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Optional<User> findById() {
+        return repository.findById(nextId());
+    }
+
+    @Benchmark
+    public Optional<User> findByIdInTransaction() {
+        return transactionTemplate.execute(status -> repository.findById(nextId()));
+    }
+
+    @Benchmark
+    public User rawStatelessSessionFindById() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.get(User.class, nextId());
+        }
+    }
+
+    @Benchmark
+    public User rawStatelessSessionFindByIdInTransaction() {
+        return transactionTemplate.execute(status -> {
+            StatelessSession session = sessionFactory.openStatelessSession(DataSourceUtils.getConnection(dataSource));
+            try {
+                return session.get(User.class, nextId());
+            } finally {
+                session.close();
+            }
+        });
+    }
+
+    @Benchmark
+    public User insert() {
+        return repository.insert(newUser());
+    }
+
+    @Benchmark
+    public User insertInTransaction() {
+        return transactionTemplate.execute(status -> repository.insert(newUser()));
+    }
+
+    @Benchmark
+    public User update() {
+        updateTarget.setName("user-" + sequence++);
+        return repository.update(updateTarget);
+    }
+
+    @Benchmark
+    public User updateInTransaction() {
+        return transactionTemplate.execute(status -> {
+            updateTarget.setName("user-" + sequence++);
+            return repository.update(updateTarget);
+        });
+    }
+
+    @Benchmark
+    public Page<User> findPage() {
+        return repository.findAll(pageRequest, order);
+    }
+
+    @Benchmark
+    public Page<User> findPageInTransaction() {
+        return transactionTemplate.execute(status -> repository.findAll(pageRequest, order));
+    }
+
+    private long nextId() {
+        nextId = (nextId % ROWS) + 1;
+        return nextId;
+    }
+
+    private User newUser() {
+        long n = sequence++;
+        User user = new User();
+        user.setName("user-" + n);
+        user.setEmail("user-" + n + "-" + System.nanoTime() + "@example.com");
+        return user;
+    }
+
+    /** 运行基准测试的主方法 */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(RepositoryInvocationTest.class.getSimpleName())
+                .addProfiler(GCProfiler.class).forks(1).build();
+
+        new Runner(opt).run();
+    }
+
+    /**
+     * 基准测试公共配置
+     */
+    abstract static class BaseConfig {
+
+        @Bean(destroyMethod = "dispose")
+        public JdbcConnectionPool dataSource() {
+            // 使用连接池，避免每次获取连接都新建物理连接而掩盖代理开销
+            JdbcConnectionPool pool = JdbcConnectionPool
+                    .create("jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+            DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")), pool);
+            return pool;
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+
+    /**
+     * JDK动态代理配置
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class JdkConfig extends BaseConfig {
+    }
+
+    /**
+     * 隐藏类代理配置
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata", proxyMode = ProxyMode.HIDDEN_CLASS)
+    static class HiddenClassConfig extends BaseConfig {
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc;
+
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+import github.luckygc.jakartadata.provider.hibernate.StatelessSessionUtils;
+import github.luckygc.jakartadata.provider.hibernate.StatelessSessionUtils.ResourceKey;
+import github.luckygc.jakartadata.provider.hibernate.StatelessSessionUtils.StatelessSessionHolder;
+
+import org.hibernate.SessionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.DefaultTransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 事务性Session查找 JMH 基准测试 对比预先创建的标识资源键与按调用拼接字符串资源键的查找开销，需配合 GC profiler 查看每次操作的分配字节数 (gc.alloc.rate.norm)
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Thread)
+@Fork(value = 2, jvmArgs = {"-Xms2G", "-Xmx2G"})
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class StatelessSessionLookupTest {
+
+    private EmbeddedDatabase dataSource;
+    private SessionFactory sessionFactory;
+    private DataSourceTransactionManager transactionManager;
+    private TransactionStatus transactionStatus;
+    private ResourceKey resourceKey;
+
+    @Setup
+    public void setup() {
+        dataSource = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                .addScript("classpath:schema.sql").build();
+
+        SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+        sessionFactoryBean.setDataSource(dataSource);
+        sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+        sessionFactory = sessionFactoryBean.getObject();
+
+        // 在基准线程上开启事务并绑定Session
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionStatus = transactionManager.getTransaction(new DefaultTransactionDefinition());
+        resourceKey = new ResourceKey(sessionFactory, dataSource);
+        StatelessSessionUtils.getTransactionalSessionHolder(resourceKey);
+    }
+
+    @TearDown
+    public void tearDown() {
+        transactionManager.rollback(transactionStatus);
+        sessionFactory.close();
+        dataSource.shutdown();
+    }
+
+    @Benchmark
+    public StatelessSessionHolder benchmarkIdentityKeyLookup() {
+        return StatelessSessionUtils.getTransactionalSessionHolder(resourceKey);
+    }
+
+    @Benchmark
+    public Object benchmarkStringKeyLookup() {
+        // 原实现: 每次调用拼接 toString() 生成资源键
+        return TransactionSynchronizationManager.getResource(sessionFactory + "_" + dataSource);
+    }
+
+    /** 运行基准测试的主方法 */
+    public static void main(String[] args) throws RunnerException {
+        Options opt = new OptionsBuilder().include(StatelessSessionLookupTest.class.getSimpleName())
+                .addProfiler(GCProfiler.class).forks(1).build();
+
+        new Runner(opt).run();
+    }
+}
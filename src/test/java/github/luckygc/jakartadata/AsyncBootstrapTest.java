@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+import github.luckygc.jakartadata.provider.hibernate.StatelessSessionUtils.ResourceKey;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+/**
+ * SessionFactory异步初始化测试 初始化任务被挂起时容器仍能完成启动并创建Repository，首次调用Repository时等待初始化完成
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = AsyncBootstrapTest.TestConfig.class)
+class AsyncBootstrapTest {
+
+    /** 放行后台初始化任务 */
+    private static final CountDownLatch bootstrapReleased = new CountDownLatch(1);
+
+    @Autowired
+    private SessionFactoryBean sessionFactoryBean;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Test
+    void testRepositoryWaitsForBootstrap() {
+        // 容器启动完成时后台初始化仍被挂起
+        assertFalse(sessionFactoryBean.isBootstrapCompleted());
+        assertTrue(Proxy.isProxyClass(sessionFactory.getClass()));
+        ResourceKey resourceKey = new ResourceKey(sessionFactory, dataSource);
+        assertSame(sessionFactory, resourceKey.getTargetSessionFactory());
+
+        bootstrapReleased.countDown();
+
+        User user = new User();
+        user.setName("异步用户");
+        user.setEmail("async@example.com");
+        User saved = basicRepository.insert(user);
+
+        assertTrue(sessionFactoryBean.isBootstrapCompleted());
+        assertEquals("异步用户", basicRepository.findById(saved.getId()).orElseThrow().getName());
+        basicRepository.delete(saved);
+
+        // 初始化完成后直接在实际的SessionFactory上打开Session
+        assertSame(sessionFactory.unwrap(SessionFactoryImplementor.class), resourceKey.getTargetSessionFactory());
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                    .addScript("classpath:schema.sql").build();
+        }
+
+        @Bean
+        public SessionFactoryBean sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            sessionFactoryBean.setBootstrapExecutor(bootstrapExecutor());
+            return sessionFactoryBean;
+        }
+
+        private AsyncTaskExecutor bootstrapExecutor() {
+            return task -> new Thread(() -> {
+                try {
+                    bootstrapReleased.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                task.run();
+            }, "session-factory-bootstrap").start();
+        }
+    }
+}
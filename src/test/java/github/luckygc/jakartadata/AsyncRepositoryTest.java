@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.async.RepositoryExecutor;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * 异步Repository方法测试 验证异步调用的结果、异常传播及并发连接数上限
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = AsyncRepositoryTest.TestConfig.class)
+class AsyncRepositoryTest {
+
+    private static final int MAX_CONCURRENCY = 2;
+
+    @Autowired
+    private AsyncUserRepository asyncUserRepository;
+
+    @Autowired
+    private ConnectionCountingDataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM t_user");
+    }
+
+    @Test
+    void testParallelCallsCappedByExecutor() {
+        int count = 16;
+        for (int i = 0; i < count; i++) {
+            User user = new User();
+            user.setName("异步用户" + i);
+            user.setEmail("async" + i + "@example.com");
+            asyncUserRepository.insertAsync(user).toCompletableFuture().join();
+        }
+
+        List<CompletableFuture<Optional<User>>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            futures.add(asyncUserRepository.findByEmailAsync("async" + i + "@example.com"));
+        }
+
+        for (int i = 0; i < count; i++) {
+            assertEquals("异步用户" + i, futures.get(i).join().orElseThrow().getName());
+        }
+        assertTrue(dataSource.getPeakConnections() <= MAX_CONCURRENCY,
+                () -> "peak connections: " + dataSource.getPeakConnections());
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    void testFailureCompletesExceptionally() {
+        User user = new User();
+        user.setName("重复用户");
+        user.setEmail("duplicate@example.com");
+        asyncUserRepository.insertAsync(user).toCompletableFuture().join();
+
+        User duplicate = new User();
+        duplicate.setName("重复用户");
+        duplicate.setEmail("duplicate@example.com");
+        CompletableFuture<User> future = asyncUserRepository.insertAsync(duplicate).toCompletableFuture();
+
+        ExecutionException ex = assertThrows(ExecutionException.class, future::get);
+        assertInstanceOf(RuntimeException.class, ex.getCause());
+        assertEquals(0, dataSource.getOpenConnections());
+    }
+
+    @Test
+    void testMaxConcurrencyFromConnectionPool() {
+        JdbcConnectionPool pool = JdbcConnectionPool.create("jdbc:h2:mem:pool-size", "sa", "");
+        try {
+            pool.setMaxConnections(3);
+            assertEquals(3, RepositoryExecutor.determineMaxConcurrency(new DelegatingDataSource(pool)));
+            assertEquals(3, RepositoryExecutor.forDataSource(pool).getMaxConcurrency());
+        } finally {
+            pool.dispose();
+        }
+    }
+
+    /**
+     * 统计打开中及峰值连接数的数据源
+     */
+    static class ConnectionCountingDataSource extends DelegatingDataSource {
+
+        private final AtomicInteger openConnections = new AtomicInteger();
+
+        private final AtomicInteger peakConnections = new AtomicInteger();
+
+        ConnectionCountingDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            peakConnections.accumulateAndGet(openConnections.incrementAndGet(), Math::max);
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        if ("close".equals(method.getName()) && !connection.isClosed()) {
+                            openConnections.decrementAndGet();
+                        }
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+
+        int getOpenConnections() {
+            return openConnections.get();
+        }
+
+        int getPeakConnections() {
+            return peakConnections.get();
+        }
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean
+        public ConnectionCountingDataSource dataSource() {
+            return new ConnectionCountingDataSource(new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true).addScript("classpath:schema.sql").build());
+        }
+
+        @Bean
+        public RepositoryExecutor repositoryExecutor() {
+            return new RepositoryExecutor(MAX_CONCURRENCY);
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
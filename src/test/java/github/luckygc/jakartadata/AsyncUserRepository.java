@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import jakarta.data.repository.Find;
+import jakarta.data.repository.Insert;
+import jakarta.data.repository.Repository;
+
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * 异步Repository接口 返回CompletionStage的默认方法在Repository执行器上执行
+ */
+@Repository
+public interface AsyncUserRepository {
+
+    @Find
+    Optional<User> findByEmail(String email);
+
+    @Insert
+    User insert(User user);
+
+    default CompletableFuture<Optional<User>> findByEmailAsync(String email) {
+        return CompletableFuture.completedFuture(findByEmail(email));
+    }
+
+    default CompletionStage<User> insertAsync(User user) {
+        return CompletableFuture.completedFuture(insert(user));
+    }
+}
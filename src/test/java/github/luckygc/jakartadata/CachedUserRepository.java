@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import github.luckygc.jakartadata.annotation.CachedResult;
+
+import jakarta.data.repository.Find;
+import jakarta.data.repository.Repository;
+import jakarta.data.repository.Update;
+
+import java.util.Optional;
+
+/**
+ * 结果缓存Repository接口 按邮箱查询的结果被缓存
+ */
+@Repository
+public interface CachedUserRepository {
+
+    @Find
+    @CachedResult(maxEntries = 16)
+    Optional<User> findByEmail(String email);
+
+    @Update
+    void update(User user);
+}
@@ -0,0 +1,138 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.annotation.ProxyMode;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import jakarta.data.exceptions.OptimisticLockingFailureException;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.Proxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 隐藏类代理测试 测试 {@link ProxyMode#HIDDEN_CLASS} 生成的Repository实现
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = HiddenClassProxyTest.TestConfig.class)
+class HiddenClassProxyTest {
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testHiddenClassProxyCreation() {
+        // 验证使用的是隐藏类而不是JDK动态代理
+        assertNotNull(basicRepository);
+        assertTrue(basicRepository.getClass().isHidden());
+        assertFalse(Proxy.isProxyClass(basicRepository.getClass()));
+    }
+
+    @Test
+    void testNonTransactionalOperation() {
+        User user = new User();
+        user.setName("隐藏类用户");
+        user.setEmail("hidden@example.com");
+
+        User saved = basicRepository.save(user);
+        assertNotNull(saved.getId());
+
+        var found = basicRepository.findById(saved.getId());
+        assertTrue(found.isPresent());
+        assertEquals("隐藏类用户", found.get().getName());
+
+        basicRepository.delete(saved);
+        assertFalse(basicRepository.findById(saved.getId()).isPresent());
+    }
+
+    @Test
+    void testTransactionalOperation() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            User user = new User();
+            user.setName("隐藏类事务用户");
+            user.setEmail("hidden-tx@example.com");
+
+            User saved = basicRepository.save(user);
+            assertTrue(basicRepository.findById(saved.getId()).isPresent());
+            status.setRollbackOnly();
+        });
+    }
+
+    @Test
+    void testExceptionPropagation() {
+        // 异常应原样抛出，不被包装
+        User nonExistentUser = new User();
+        nonExistentUser.setId(999L);
+        nonExistentUser.setName("不存在的用户");
+        nonExistentUser.setEmail("hidden-nonexistent@example.com");
+
+        assertThrows(OptimisticLockingFailureException.class, () -> basicRepository.delete(nonExistentUser));
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata", proxyMode = ProxyMode.HIDDEN_CLASS)
+    static class TestConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).addScript("classpath:schema.sql")
+                    .build();
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * JDBC批量写测试 测试集合写方法按配置的批量大小分段执行
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = JdbcBatchTest.TestConfig.class)
+class JdbcBatchTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private BatchCountingDataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        users = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            User user = new User();
+            user.setName("批量用户" + i);
+            user.setEmail("batch" + i + "-" + System.nanoTime() + "@example.com");
+            users.add(user);
+        }
+        basicRepository.insertAll(users);
+        users.forEach(user -> assertNotNull(user.getId()));
+        dataSource.resetBatchCount();
+    }
+
+    @Test
+    void testNonTransactionalBatchUpdate() {
+        users.forEach(user -> user.setName(user.getName() + "-更新"));
+
+        List<User> updated = basicRepository.updateAll(users);
+
+        // 实现方法原样返回参数时，分段执行后仍返回参数本身
+        assertSame(users, updated);
+        assertEquals(users.size() / BATCH_SIZE, dataSource.getBatchCount());
+        for (User user : users) {
+            assertEquals(user.getName(), basicRepository.findById(user.getId()).orElseThrow().getName());
+        }
+
+        basicRepository.deleteAll(users);
+    }
+
+    @Test
+    void testBatchUpsertUsesMerge() {
+        users.forEach(user -> user.setName(user.getName() + "-合并"));
+
+        // H2方言原生支持MERGE，upsert语句与其他写操作一样分段批量发送
+        basicRepository.saveAll(users);
+
+        assertEquals(users.size() / BATCH_SIZE, dataSource.getBatchCount());
+        for (User user : users) {
+            assertEquals(user.getName(), basicRepository.findById(user.getId()).orElseThrow().getName());
+        }
+
+        basicRepository.deleteAll(users);
+    }
+
+    @Test
+    void testTransactionalBatchDelete() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> basicRepository.deleteAll(users));
+
+        assertEquals(users.size() / BATCH_SIZE, dataSource.getBatchCount());
+        for (User user : users) {
+            assertFalse(basicRepository.findById(user.getId()).isPresent());
+        }
+    }
+
+    @Test
+    void testTransactionalBatchRollback() {
+        // 批量写入不会提前提交Spring事务
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            basicRepository.deleteAll(users);
+            status.setRollbackOnly();
+        });
+
+        assertEquals(users.size() / BATCH_SIZE, dataSource.getBatchCount());
+        for (User user : users) {
+            assertTrue(basicRepository.findById(user.getId()).isPresent());
+        }
+
+        basicRepository.deleteAll(users);
+    }
+
+    /**
+     * 统计 {@link PreparedStatement#executeBatch()} 调用次数的数据源
+     */
+    static class BatchCountingDataSource extends DelegatingDataSource {
+
+        private final AtomicInteger batchCount = new AtomicInteger();
+
+        BatchCountingDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {Connection.class},
+                    (proxy, method, args) -> {
+                        Object result = invoke(connection, method, args);
+                        if (result instanceof PreparedStatement statement) {
+                            return countingStatement(statement);
+                        }
+                        return result;
+                    });
+        }
+
+        private PreparedStatement countingStatement(PreparedStatement statement) {
+            return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+                        if ("executeBatch".equals(method.getName())) {
+                            batchCount.incrementAndGet();
+                        }
+                        return invoke(statement, method, args);
+                    });
+        }
+
+        private static Object invoke(Object target, Method method, Object[] args)
+                throws Throwable {
+            try {
+                return method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getTargetException();
+            }
+        }
+
+        int getBatchCount() {
+            return batchCount.get();
+        }
+
+        void resetBatchCount() {
+            batchCount.set(0);
+        }
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean
+        public BatchCountingDataSource dataSource() {
+            return new BatchCountingDataSource(new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true).addScript("classpath:schema.sql").build());
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            sessionFactoryBean.setJdbcBatchSize(BATCH_SIZE);
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.metrics.RepositoryMetrics;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * 延迟获取连接测试 没有执行SQL的事务不从连接池中取出连接，并计入未使用连接的事务数
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = LazyConnectionTest.TestConfig.class)
+class LazyConnectionTest {
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private RepositoryMetrics repositoryMetrics;
+
+    @Autowired
+    private LazyConnectionDataSourceProxy dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private CountingDataSource pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = (CountingDataSource) dataSource.getTargetDataSource();
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM t_user");
+    }
+
+    @Test
+    void testTransactionWithoutSqlSkipsPool() {
+        RepositoryMetrics.Snapshot before = repositoryMetrics.snapshot();
+        int checkouts = pool.getCheckouts();
+
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> assertTrue(basicRepository.insertAll(List.of()).isEmpty()));
+
+        assertEquals(checkouts, pool.getCheckouts());
+        RepositoryMetrics.Snapshot after = repositoryMetrics.snapshot();
+        assertEquals(before.transactionalSessions() + 1, after.transactionalSessions());
+        assertEquals(before.transactionalSessionsWithoutConnection() + 1,
+                after.transactionalSessionsWithoutConnection());
+    }
+
+    @Test
+    void testConnectionAcquiredOnFirstStatement() {
+        RepositoryMetrics.Snapshot before = repositoryMetrics.snapshot();
+        int checkouts = pool.getCheckouts();
+
+        User saved = new TransactionTemplate(transactionManager).execute(status -> {
+            User user = new User();
+            user.setName("延迟连接用户");
+            user.setEmail("lazy-connection@example.com");
+            User inserted = basicRepository.insert(user);
+            assertTrue(basicRepository.findById(inserted.getId()).isPresent());
+            return inserted;
+        });
+
+        assertEquals(checkouts + 1, pool.getCheckouts());
+        assertTrue(basicRepository.findById(saved.getId()).isPresent());
+        RepositoryMetrics.Snapshot after = repositoryMetrics.snapshot();
+        assertEquals(before.transactionalSessions() + 1, after.transactionalSessions());
+        assertEquals(before.transactionalSessionsWithoutConnection(), after.transactionalSessionsWithoutConnection());
+    }
+
+    /**
+     * 统计物理连接获取次数的数据源
+     */
+    static class CountingDataSource extends DelegatingDataSource {
+
+        private final AtomicInteger checkouts = new AtomicInteger();
+
+        CountingDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            checkouts.incrementAndGet();
+            return super.getConnection();
+        }
+
+        int getCheckouts() {
+            return checkouts.get();
+        }
+    }
+
+    /**
+     * 测试配置类 事务管理器使用 {@link LazyConnectionDataSourceProxy}，事务开始时不获取连接
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata", lazyConnection = true)
+    static class TestConfig {
+
+        @Bean
+        public RepositoryMetrics repositoryMetrics() {
+            return new RepositoryMetrics();
+        }
+
+        @Bean
+        public LazyConnectionDataSourceProxy dataSource() {
+            DataSource embedded = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true).addScript("classpath:schema.sql").build();
+            return new LazyConnectionDataSourceProxy(new CountingDataSource(embedded));
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(LazyConnectionDataSourceProxy dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(LazyConnectionDataSourceProxy dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.provider.hibernate.LazyRepositoryProxy;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.lang.reflect.Proxy;
+
+import javax.sql.DataSource;
+
+/**
+ * 延迟初始化测试 测试 {@link EnableDataRepositories#lazy()} 模式下首次调用时才初始化Repository
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = LazyRepositoryTest.TestConfig.class)
+class LazyRepositoryTest {
+
+    @Autowired
+    private ConfigurableListableBeanFactory beanFactory;
+
+    @Test
+    void testInitializedOnFirstCall() {
+        assertTrue(beanFactory.getBeanDefinition("basicRepository").isLazyInit());
+
+        BasicRepository basicRepository = beanFactory.getBean(BasicRepository.class);
+        LazyRepositoryProxy<?> handler = assertInstanceOf(LazyRepositoryProxy.class,
+                Proxy.getInvocationHandler(basicRepository));
+
+        // Object方法不会触发初始化，SessionFactory尚未创建
+        assertNotNull(basicRepository.toString());
+        assertFalse(handler.isInitialized());
+        assertFalse(beanFactory.containsSingleton("sessionFactory"));
+
+        User user = new User();
+        user.setName("延迟用户");
+        user.setEmail("lazy@example.com");
+        User saved = basicRepository.insert(user);
+
+        assertTrue(handler.isInitialized());
+        assertTrue(beanFactory.containsSingleton("sessionFactory"));
+        assertEquals("延迟用户", basicRepository.findById(saved.getId()).orElseThrow().getName());
+        basicRepository.delete(saved);
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata", lazy = true)
+    static class TestConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                    .addScript("classpath:schema.sql").build();
+        }
+
+        @Bean
+        @Lazy
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
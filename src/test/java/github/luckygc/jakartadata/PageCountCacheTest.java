@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import jakarta.data.Order;
+import jakarta.data.page.Page;
+import jakarta.data.page.PageRequest;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * 总数缓存测试 测试 {@link github.luckygc.jakartadata.annotation.CachedCount} 跳过count查询及写操作清空
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = PageCountCacheTest.TestConfig.class)
+class PageCountCacheTest {
+
+    private static final Order<User> BY_ID = Order.by(_User.id.asc());
+
+    @Autowired
+    private PagedUserRepository pagedUserRepository;
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private CountingStatementInspector statementInspector;
+
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        List<User> newUsers = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            User user = new User();
+            user.setName("分页用户");
+            user.setEmail("paged" + i + "@example.com");
+            newUsers.add(user);
+        }
+        users = new ArrayList<>(pagedUserRepository.insertAll(newUsers));
+    }
+
+    @AfterEach
+    void tearDown() {
+        pagedUserRepository.deleteAll(users);
+    }
+
+    @Test
+    void testCachedTotalSkipsCountQuery() {
+        Page<User> first = pagedUserRepository.findByName("分页用户", PageRequest.ofPage(1, 10, true), BY_ID);
+        assertEquals(25, first.totalElements());
+        final int counts = statementInspector.getCountQueries();
+
+        // 翻页及切换排序复用同一个总数
+        Page<User> second = pagedUserRepository.findByName("分页用户", PageRequest.ofPage(2, 10, true), BY_ID);
+        assertEquals(25, second.totalElements());
+        assertEquals(3, second.totalPages());
+        assertTrue(second.hasNext());
+        Page<User> last = pagedUserRepository.findByName("分页用户", PageRequest.ofPage(3, 10, true),
+                Order.by(_User.id.desc()));
+        assertEquals(5, last.numberOfElements());
+        assertEquals(25, last.totalElements());
+        assertFalse(last.hasNext());
+        assertEquals(counts, statementInspector.getCountQueries());
+
+        // 不同的过滤条件单独计数
+        assertEquals(0, pagedUserRepository.findByName("其他用户", PageRequest.ofPage(1, 10, true), BY_ID)
+                .totalElements());
+        assertEquals(counts + 1, statementInspector.getCountQueries());
+    }
+
+    @Test
+    void testWriteEvictsCachedTotal() {
+        pagedUserRepository.findByName("分页用户", PageRequest.ofPage(1, 10, true), BY_ID);
+
+        User removed = users.remove(users.size() - 1);
+        pagedUserRepository.deleteAll(List.of(removed));
+
+        int counts = statementInspector.getCountQueries();
+        assertEquals(24, pagedUserRepository.findByName("分页用户", PageRequest.ofPage(1, 10, true), BY_ID)
+                .totalElements());
+        assertEquals(counts + 1, statementInspector.getCountQueries());
+    }
+
+    @Test
+    void testPartialPageCorrectsCachedTotal() {
+        pagedUserRepository.findByName("分页用户", PageRequest.ofPage(1, 10, true), BY_ID);
+
+        // 其他Repository的写操作不会清空总数缓存
+        basicRepository.delete(users.remove(users.size() - 1));
+
+        // 最后一页不满一页时按页内容算出实际总数，并刷新缓存
+        final int counts = statementInspector.getCountQueries();
+        Page<User> last = pagedUserRepository.findByName("分页用户", PageRequest.ofPage(2, 20, true), BY_ID);
+        assertEquals(4, last.numberOfElements());
+        assertEquals(24, last.totalElements());
+        assertEquals(24, pagedUserRepository.findByName("分页用户", PageRequest.ofPage(1, 10, true), BY_ID)
+                .totalElements());
+        assertEquals(counts, statementInspector.getCountQueries());
+    }
+
+    @Test
+    void testTotalNotRequested() {
+        int counts = statementInspector.getCountQueries();
+        Page<User> page = pagedUserRepository.findByName("分页用户", PageRequest.ofPage(1, 10, false), BY_ID);
+        assertFalse(page.hasTotals());
+        assertEquals(10, page.numberOfElements());
+        assertEquals(counts, statementInspector.getCountQueries());
+    }
+
+    /**
+     * 统计count查询次数的语句检查器
+     */
+    static class CountingStatementInspector implements StatementInspector {
+
+        private final AtomicInteger countQueries = new AtomicInteger();
+
+        @Override
+        public String inspect(String sql) {
+            if (sql.toLowerCase(Locale.ROOT).contains("count(")) {
+                countQueries.incrementAndGet();
+            }
+            return sql;
+        }
+
+        int getCountQueries() {
+            return countQueries.get();
+        }
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                    .addScript("classpath:schema.sql").build();
+        }
+
+        @Bean
+        public CountingStatementInspector statementInspector() {
+            return new CountingStatementInspector();
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource, CountingStatementInspector statementInspector) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            sessionFactoryBean
+                    .setHibernateProperties(Map.of(AvailableSettings.STATEMENT_INSPECTOR, statementInspector));
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
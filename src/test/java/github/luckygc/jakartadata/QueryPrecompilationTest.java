@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.provider.hibernate.RepositoryQueryPrecompiler;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.query.spi.QueryEngine;
+import org.hibernate.query.spi.QueryInterpretationCache;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.sql.DataSource;
+
+/**
+ * 查询预编译测试 SessionFactory构建后Repository的HQL已在查询解释缓存中，首次调用不再解析
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = QueryPrecompilationTest.TestConfig.class)
+class QueryPrecompilationTest {
+
+    @Autowired
+    private QueryUserRepository queryUserRepository;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Autowired
+    private SessionFactoryBean sessionFactoryBean;
+
+    @Test
+    void testQueriesPrecompiledAtStartup() {
+        RepositoryQueryPrecompiler.Report report = sessionFactoryBean.getQueryPrecompilationReport();
+        assertNotNull(report);
+
+        // 分片测试的AccountRepository所用实体不属于该SessionFactory，预编译失败但不影响启动
+        assertEquals(Set.of("countAll", "findTenantId", "maxId"), report.failures().stream()
+                .map(failure -> failure.query().method().getName()).collect(Collectors.toSet()));
+        assertTrue(report.compiled() >= 5, () -> "compiled: " + report.compiled());
+        assertTrue(report.cachedInterpretations() >= report.compiled());
+        assertEquals(QueryEngine.DEFAULT_QUERY_PLAN_MAX_COUNT + report.compiled() + report.failures().size(),
+                report.planCacheMaxSize());
+
+        QueryInterpretationCache interpretationCache = sessionFactory.unwrap(SessionFactoryImplementor.class)
+                .getQueryEngine().getInterpretationCache();
+        final int interpretations = interpretationCache.getNumberOfCachedHqlInterpretations();
+
+        User user = new User();
+        user.setName("预编译用户");
+        user.setEmail("precompiled@example.com");
+        queryUserRepository.insert(user);
+        assertEquals(1, queryUserRepository.countUsers());
+        assertEquals("预编译用户", queryUserRepository.byEmail("precompiled@example.com").orElseThrow().getName());
+        assertEquals(1, queryUserRepository.byName("预编译用户").size());
+        assertEquals(1, queryUserRepository.byName("预编译用户", "precompiled@example.com").size());
+        assertEquals(1, queryUserRepository.rename(user.getId(), "已改名"));
+        assertEquals(1, queryUserRepository.deleteAll());
+
+        // 所有查询都命中预编译的HQL解释，没有新增条目
+        assertEquals(interpretations, interpretationCache.getNumberOfCachedHqlInterpretations());
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                    .addScript("classpath:schema.sql").build();
+        }
+
+        @Bean
+        public SessionFactoryBean sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            sessionFactoryBean.setRepositoryPackagesToPrecompile(new String[] {"github.luckygc"});
+            return sessionFactoryBean;
+        }
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import github.luckygc.jakartadata.annotation.WarmUp;
+
+import jakarta.data.repository.Insert;
+import jakarta.data.repository.Param;
+import jakarta.data.repository.Query;
+import jakarta.data.repository.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * 查询Repository接口 使用 {@link Query} 声明的JDQL及HQL查询
+ */
+@Repository
+public interface QueryUserRepository {
+
+    @Insert
+    User insert(User user);
+
+    @WarmUp(args = "warmup@example.com")
+    @Query("where email = :email")
+    Optional<User> byEmail(@Param("email") String email);
+
+    @WarmUp
+    @Query("select count(u) from User u")
+    long countUsers();
+
+    @Query("from User where name = :name")
+    List<User> byName(@Param("name") String name);
+
+    @Query("from User where name = :name and email = :email")
+    List<User> byName(@Param("name") String name, @Param("email") String email);
+
+    @Query("update User set name = :name where id = :id")
+    int rename(@Param("id") Long id, @Param("name") String name);
+
+    @Query("delete from User")
+    int deleteAll();
+}
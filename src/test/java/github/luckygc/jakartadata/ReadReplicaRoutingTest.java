@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+import github.luckygc.jakartadata.routing.ReadReplicaRouter;
+import github.luckygc.jakartadata.routing.ReplicaSelector;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * 读写分离测试 主库与两个副本中同一主键的用户名称不同，根据读到的名称判断路由结果
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = ReadReplicaRoutingTest.TestConfig.class)
+class ReadReplicaRoutingTest {
+
+    private static final long USER_ID = 1000L;
+
+    /** 副本选择次数 */
+    private static final AtomicInteger SELECTIONS = new AtomicInteger();
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private QueryUserRepository queryUserRepository;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ReadReplicaRouter replicaRouter;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void setUp() {
+        insertUser(dataSource, "primary");
+        for (int i = 0; i < replicaRouter.getReplicas().size(); i++) {
+            insertUser(replicaRouter.getReplicas().get(i), "replica-" + i);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM t_user");
+        replicaRouter.getReplicas().forEach(replica -> new JdbcTemplate(replica).update("DELETE FROM t_user"));
+    }
+
+    @Test
+    void testReadsOutsideTransactionUseReplicasRoundRobin() {
+        String first = findName();
+        String second = findName();
+
+        assertTrue(first.startsWith("replica-"));
+        assertTrue(second.startsWith("replica-"));
+        assertNotEquals(first, second, "轮询应依次使用两个副本");
+    }
+
+    @Test
+    void testReadOnlyTransactionPinsOneReplica() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        List<String> names = readOnly.execute(status -> List.of(findName(), findName(), findName()));
+
+        assertTrue(names.get(0).startsWith("replica-"));
+        assertEquals(1, names.stream().distinct().count(), "只读事务内应使用同一副本");
+    }
+
+    @Test
+    void testReadOnlyTransactionSelectsReplicaOnce() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        int before = SELECTIONS.get();
+        List<String> names = readOnly.execute(status -> List.of(findName(),
+                queryUserRepository.byEmail(findName() + "@example.com").orElseThrow().getName(), findName()));
+
+        // 不同Repository的读操作共用事务中首次选择的副本
+        assertEquals(before + 1, SELECTIONS.get(), "只读事务内应只选择一次副本");
+        assertEquals(1, names.stream().distinct().count());
+        assertTrue(names.get(0).startsWith("replica-"));
+    }
+
+    @Test
+    void testReadWriteTransactionStaysOnPrimary() {
+        TransactionTemplate readWrite = new TransactionTemplate(transactionManager);
+
+        String name = readWrite.execute(status -> {
+            User user = new User();
+            user.setName("written");
+            user.setEmail("written@example.com");
+            User saved = basicRepository.insert(user);
+            return basicRepository.findById(saved.getId()).orElseThrow().getName() + "/" + findName();
+        });
+
+        assertEquals("written/primary", name);
+    }
+
+    @Test
+    void testWritesUsePrimary() {
+        User user = new User();
+        user.setName("new-user");
+        user.setEmail("new@example.com");
+        basicRepository.insert(user);
+
+        assertEquals(1, new JdbcTemplate(dataSource).queryForObject(
+                "SELECT COUNT(*) FROM t_user WHERE name = 'new-user'", Integer.class));
+        for (DataSource replica : replicaRouter.getReplicas()) {
+            assertEquals(0, new JdbcTemplate(replica).queryForObject(
+                    "SELECT COUNT(*) FROM t_user WHERE name = 'new-user'", Integer.class));
+        }
+    }
+
+    private String findName() {
+        return basicRepository.findById(USER_ID).orElseThrow().getName();
+    }
+
+    private static void insertUser(DataSource target, String name) {
+        new JdbcTemplate(target).update("INSERT INTO t_user (id, name, email) VALUES (?, ?, ?)", USER_ID, name,
+                name + "@example.com");
+    }
+
+    private static DataSource newDatabase() {
+        return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                .addScript("classpath:schema.sql").build();
+    }
+
+    /**
+     * 测试配置类，副本只注册在路由中，不作为Bean
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            return newDatabase();
+        }
+
+        @Bean
+        public ReadReplicaRouter readReplicaRouter() {
+            ReplicaSelector roundRobin = ReplicaSelector.roundRobin();
+            return new ReadReplicaRouter(List.of(newDatabase(), newDatabase()), replicas -> {
+                SELECTIONS.incrementAndGet();
+                return roundRobin.select(replicas);
+            });
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
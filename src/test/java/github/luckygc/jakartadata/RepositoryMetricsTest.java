@@ -0,0 +1,159 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.annotation.ProxyMode;
+import github.luckygc.jakartadata.metrics.RepositoryMetrics;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import jakarta.data.exceptions.OptimisticLockingFailureException;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+/**
+ * Repository调用指标测试 注册 {@link RepositoryMetrics} 后，隐藏类代理经由调用处理器分派并记录指标
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = RepositoryMetricsTest.TestConfig.class)
+class RepositoryMetricsTest {
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private SecondaryUserRepository secondaryUserRepository;
+
+    @Autowired
+    private RepositoryMetrics repositoryMetrics;
+
+    @Test
+    void testInvocationMetrics() {
+        User user = new User();
+        user.setName("指标用户");
+        user.setEmail("metrics@example.com");
+
+        User saved = basicRepository.save(user);
+        assertTrue(basicRepository.findById(saved.getId()).isPresent());
+        assertTrue(basicRepository.findById(saved.getId()).isPresent());
+
+        User nonExistentUser = new User();
+        nonExistentUser.setId(999L);
+        nonExistentUser.setName("不存在的用户");
+        nonExistentUser.setEmail("metrics-nonexistent@example.com");
+        assertThrows(OptimisticLockingFailureException.class, () -> basicRepository.delete(nonExistentUser));
+
+        RepositoryMetrics.Snapshot snapshot = repositoryMetrics.snapshot();
+
+        RepositoryMetrics.MethodSnapshot findById = snapshot.methods()
+                .get(BasicRepository.class.getName() + ".findById(java.lang.Object)");
+        assertNotNull(findById, snapshot.methods().keySet().toString());
+        assertEquals(2, findById.calls());
+        assertEquals(0, findById.errors());
+        assertEquals(2, findById.latency().getCount());
+        assertTrue(findById.latency().getMaxNanos() > 0);
+
+        RepositoryMetrics.MethodSnapshot delete = snapshot.methods()
+                .get(BasicRepository.class.getName() + ".delete(java.lang.Object)");
+        assertNotNull(delete, snapshot.methods().keySet().toString());
+        assertEquals(1, delete.errors());
+
+        // 每次非事务调用都获取一次连接并打开一个Session
+        assertTrue(snapshot.connectionAcquisition().getCount() >= 4);
+        assertEquals(snapshot.connectionAcquisition().getCount(), snapshot.sessionOpening().getCount());
+    }
+
+    @Test
+    void testInheritedMethodsCountedPerRepository() {
+        // 两个Repository共享BasicRepository声明的同一个Method
+        basicRepository.deleteById(1000L);
+        secondaryUserRepository.deleteById(1000L);
+        secondaryUserRepository.deleteById(1001L);
+
+        RepositoryMetrics.Snapshot snapshot = repositoryMetrics.snapshot();
+        assertEquals(1, snapshot.methods().get(BasicRepository.class.getName() + ".deleteById(java.lang.Object)")
+                .calls());
+        assertEquals(2, snapshot.methods()
+                .get(SecondaryUserRepository.class.getName() + ".deleteById(java.lang.Object)").calls());
+    }
+
+    @Test
+    void testSameSimpleNamesDoNotCollide() throws NoSuchMethodException {
+        RepositoryMetrics metrics = new RepositoryMetrics();
+        Method method = Object.class.getMethod("toString");
+        metrics.invocationCompleted(java.util.Date.class, method, 1, null);
+        metrics.forMethod(java.sql.Date.class, method).invocationCompleted(2, null);
+        metrics.forMethod(java.sql.Date.class, method).invocationCompleted(3, null);
+
+        Map<String, RepositoryMetrics.MethodSnapshot> methods = metrics.snapshot().methods();
+        assertEquals(1, methods.get("java.util.Date.toString()").calls());
+        assertEquals(2, methods.get("java.sql.Date.toString()").calls());
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata", proxyMode = ProxyMode.HIDDEN_CLASS)
+    static class TestConfig {
+
+        @Bean
+        public RepositoryMetrics repositoryMetrics() {
+            return new RepositoryMetrics();
+        }
+
+        @Bean
+        public DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).addScript("classpath:schema.sql")
+                    .build();
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.annotation.RepositorySession;
+import github.luckygc.jakartadata.provider.hibernate.RepositorySessionScope;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * Repository Session作用域测试 测试作用域内的非事务性调用共享Session和连接
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = RepositorySessionScopeTest.TestConfig.class)
+class RepositorySessionScopeTest {
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private CountingDataSource dataSource;
+
+    @Autowired
+    private ScopedService scopedService;
+
+    @Test
+    void testCallsWithoutScopeUseOneConnectionEach() {
+        final int before = dataSource.getConnectionCount();
+
+        basicRepository.findById(1L);
+        basicRepository.findById(2L);
+        basicRepository.findById(3L);
+
+        assertEquals(3, dataSource.getConnectionCount() - before);
+    }
+
+    @Test
+    void testCallsInScopeShareOneConnection() {
+        int before = dataSource.getConnectionCount();
+
+        RepositorySessionScope.run(() -> {
+            assertTrue(RepositorySessionScope.isActive());
+            basicRepository.findById(1L);
+            basicRepository.findById(2L);
+            basicRepository.findById(3L);
+        });
+
+        assertFalse(RepositorySessionScope.isActive());
+        assertEquals(1, dataSource.getConnectionCount() - before);
+    }
+
+    @Test
+    void testNestedScopeJoinsOuterScope() {
+        int before = dataSource.getConnectionCount();
+
+        User saved = RepositorySessionScope.call(() -> {
+            User user = new User();
+            user.setName("作用域用户");
+            user.setEmail("scope@example.com");
+            basicRepository.insert(user);
+
+            return RepositorySessionScope.call(() -> basicRepository.findById(user.getId()).orElseThrow());
+        });
+
+        assertEquals("作用域用户", saved.getName());
+        assertEquals(1, dataSource.getConnectionCount() - before);
+        basicRepository.delete(saved);
+    }
+
+    @Test
+    void testAnnotatedMethodSharesOneConnection() {
+        int before = dataSource.getConnectionCount();
+
+        scopedService.findSeveral();
+
+        assertEquals(1, dataSource.getConnectionCount() - before);
+    }
+
+    /**
+     * 使用 {@link RepositorySession} 的服务
+     */
+    static class ScopedService {
+
+        private final BasicRepository basicRepository;
+
+        ScopedService(BasicRepository basicRepository) {
+            this.basicRepository = basicRepository;
+        }
+
+        @RepositorySession
+        public void findSeveral() {
+            basicRepository.findById(1L);
+            basicRepository.findById(2L);
+            basicRepository.findById(3L);
+        }
+    }
+
+    /**
+     * 统计连接获取次数的数据源
+     */
+    static class CountingDataSource extends DelegatingDataSource {
+
+        private final AtomicInteger connectionCount = new AtomicInteger();
+
+        CountingDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            connectionCount.incrementAndGet();
+            return super.getConnection();
+        }
+
+        int getConnectionCount() {
+            return connectionCount.get();
+        }
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean
+        public CountingDataSource dataSource() {
+            return new CountingDataSource(new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true).addScript("classpath:schema.sql").build());
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+
+        @Bean
+        public ScopedService scopedService(BasicRepository basicRepository) {
+            return new ScopedService(basicRepository);
+        }
+    }
+}
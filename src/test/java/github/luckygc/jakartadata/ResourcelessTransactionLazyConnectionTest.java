@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.LazyConnectionTest.CountingDataSource;
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.metrics.RepositoryMetrics;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * 延迟获取连接测试 事务管理器不在事务开始时绑定连接，是否从连接池取出连接只取决于延迟获取连接的开关
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = ResourcelessTransactionLazyConnectionTest.TestConfig.class)
+class ResourcelessTransactionLazyConnectionTest {
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private RepositoryMetrics repositoryMetrics;
+
+    @Autowired
+    private CountingDataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void testTransactionWithoutSqlReportedWithoutConnection() {
+        RepositoryMetrics.Snapshot before = repositoryMetrics.snapshot();
+        int checkouts = dataSource.getCheckouts();
+
+        new TransactionTemplate(transactionManager)
+                .executeWithoutResult(status -> assertTrue(basicRepository.insertAll(List.of()).isEmpty()));
+
+        assertEquals(checkouts, dataSource.getCheckouts());
+        RepositoryMetrics.Snapshot after = repositoryMetrics.snapshot();
+        assertEquals(before.transactionalSessions() + 1, after.transactionalSessions());
+        assertEquals(before.transactionalSessionsWithoutConnection() + 1,
+                after.transactionalSessionsWithoutConnection());
+    }
+
+    /**
+     * 不持有任何资源的事务管理器，只开启事务同步
+     */
+    static class ResourcelessTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    /**
+     * 测试配置类 数据源不使用延迟连接代理，事务管理器不获取连接
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata", lazyConnection = true)
+    static class TestConfig {
+
+        @Bean
+        public RepositoryMetrics repositoryMetrics() {
+            return new RepositoryMetrics();
+        }
+
+        @Bean
+        public CountingDataSource dataSource() {
+            return new CountingDataSource(new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true).addScript("classpath:schema.sql").build());
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager() {
+            return new ResourcelessTransactionManager();
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(CountingDataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
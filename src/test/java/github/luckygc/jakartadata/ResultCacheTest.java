@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * 结果缓存测试 测试 {@link github.luckygc.jakartadata.annotation.CachedResult} 的命中与写操作清空
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = ResultCacheTest.TestConfig.class)
+class ResultCacheTest {
+
+    @Autowired
+    private CachedUserRepository cachedUserRepository;
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private CountingDataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        user = new User();
+        user.setName("缓存用户");
+        user.setEmail("cached@example.com");
+        basicRepository.insert(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        // 其他Repository的写操作不会清空缓存，先用本Repository的写方法清空
+        cachedUserRepository.update(user);
+        basicRepository.delete(user);
+    }
+
+    @Test
+    void testCacheHitDoesNotAcquireConnection() {
+        User first = cachedUserRepository.findByEmail("cached@example.com").orElseThrow();
+        int connections = dataSource.getConnectionCount();
+
+        User second = cachedUserRepository.findByEmail("cached@example.com").orElseThrow();
+        assertSame(first, second);
+        assertEquals(connections, dataSource.getConnectionCount());
+    }
+
+    @Test
+    void testWriteEvictsCache() {
+        final User cached = cachedUserRepository.findByEmail("cached@example.com").orElseThrow();
+
+        User changed = new User();
+        changed.setId(user.getId());
+        changed.setName("已修改的缓存用户");
+        changed.setEmail(user.getEmail());
+        cachedUserRepository.update(changed);
+
+        User reloaded = cachedUserRepository.findByEmail("cached@example.com").orElseThrow();
+        assertNotSame(cached, reloaded);
+        assertEquals("已修改的缓存用户", reloaded.getName());
+    }
+
+    @Test
+    void testTransactionBypassesCache() {
+        User cached = cachedUserRepository.findByEmail("cached@example.com").orElseThrow();
+
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        User inTransaction = transactionTemplate
+                .execute(status -> cachedUserRepository.findByEmail("cached@example.com").orElseThrow());
+        assertNotSame(cached, inTransaction);
+
+        // 只读事务可以使用缓存
+        transactionTemplate.setReadOnly(true);
+        User readOnly = transactionTemplate
+                .execute(status -> cachedUserRepository.findByEmail("cached@example.com").orElseThrow());
+        assertSame(cached, readOnly);
+    }
+
+    /**
+     * 统计获取连接次数的数据源
+     */
+    static class CountingDataSource extends DelegatingDataSource {
+
+        private final AtomicInteger connectionCount = new AtomicInteger();
+
+        CountingDataSource(DataSource targetDataSource) {
+            super(targetDataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            connectionCount.incrementAndGet();
+            return super.getConnection();
+        }
+
+        int getConnectionCount() {
+            return connectionCount.get();
+        }
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean
+        public CountingDataSource dataSource() {
+            return new CountingDataSource(new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true).addScript("classpath:schema.sql").build());
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.async.RepositoryExecutor;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+import github.luckygc.jakartadata.routing.ShardRouter;
+import github.luckygc.sharded.Account;
+import github.luckygc.sharded.AccountRepository;
+
+import jakarta.data.Order;
+import jakarta.data.page.PageRequest;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+/**
+ * 分片Repository测试 两个H2数据库作为分片，租户编号取模确定分片
+ *
+ * <p>
+ * 容器中有两个DataSource和两个SessionFactory，Repository分别通过 {@code dataSourceRef} 和 {@code @Repository(dataStore)} 绑定。
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = ShardedRepositoryTest.TestConfig.class)
+class ShardedRepositoryTest {
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    @Qualifier("shard0")
+    private DataSource shard0;
+
+    @Autowired
+    @Qualifier("shard1")
+    private DataSource shard1;
+
+    @Autowired
+    private ShardRouter shardRouter;
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(shard0).update("DELETE FROM t_account");
+        new JdbcTemplate(shard1).update("DELETE FROM t_account");
+    }
+
+    @Test
+    void testInsertRoutesByEntityShardKey() {
+        accountRepository.insert(new Account(1L, 1L, "tenant-1"));
+
+        assertEquals(0, count(shard0));
+        assertEquals(1, count(shard1));
+    }
+
+    @Test
+    void testInsertAllPartitionsAndKeepsOrder() {
+        List<Account> inserted = accountRepository.insertAll(List.of(new Account(1L, 0L, "a"),
+                new Account(2L, 1L, "b"), new Account(3L, 2L, "c"), new Account(4L, 3L, "d")));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), inserted.stream().map(Account::getId).toList());
+        assertEquals(2, count(shard0));
+        assertEquals(2, count(shard1));
+    }
+
+    @Test
+    void testShardKeyParameterQueriesOneShard() {
+        accountRepository.insertAll(List.of(new Account(1L, 0L, "a"), new Account(2L, 1L, "b")));
+        // 直接写入错误的分片，按分片键查询时不应被读到
+        new JdbcTemplate(shard0).update("INSERT INTO t_account (id, tenantId, name) VALUES (3, 1, 'misplaced')");
+
+        assertEquals(List.of("b"), accountRepository.findByTenantId(1L).stream().map(Account::getName).toList());
+    }
+
+    @Test
+    void testScatterGatherWithoutShardKey() {
+        accountRepository.insertAll(List.of(new Account(1L, 0L, "a"), new Account(2L, 1L, "b"),
+                new Account(3L, 3L, "c")));
+
+        assertEquals("b", accountRepository.findById(2L).orElseThrow().getName());
+        assertTrue(accountRepository.findById(99L).isEmpty());
+        assertEquals(3, accountRepository.countAll());
+        try (Stream<Account> accounts = accountRepository.findAll()) {
+            assertEquals(List.of(1L, 2L, 3L), accounts.map(Account::getId).sorted().toList());
+        }
+
+        accountRepository.deleteById(2L);
+        assertEquals(1, count(shard1));
+        assertTrue(accountRepository.findById(2L).isEmpty());
+    }
+
+    @Test
+    void testPageWithoutShardKeyIsRejected() {
+        assertThrows(UnsupportedOperationException.class,
+                () -> accountRepository.findAll(PageRequest.ofSize(10), Order.by()));
+    }
+
+    @Test
+    void testUnmergeableScatterIsRejected() {
+        assertThrows(UnsupportedOperationException.class, () -> accountRepository.findAllOrderedByName());
+        assertThrows(UnsupportedOperationException.class, () -> accountRepository.maxId());
+    }
+
+    @Test
+    void testScalarProjectionIsNotSummed() {
+        accountRepository.insertAll(List.of(new Account(1L, 2L, "a"), new Account(2L, 3L, "b")));
+
+        // 只有一个分片有结果，不能与其他分片的结果相加
+        assertEquals(3L, accountRepository.findTenantId(2L));
+    }
+
+    @Test
+    void testDefaultExecutorIsBounded() {
+        ThreadPoolExecutor executor = assertInstanceOf(ThreadPoolExecutor.class, shardRouter.getExecutor());
+        assertEquals(RepositoryExecutor.determineMaxConcurrency(shard0)
+                + RepositoryExecutor.determineMaxConcurrency(shard1), executor.getMaximumPoolSize());
+    }
+
+    private static int count(DataSource shard) {
+        return new JdbcTemplate(shard).queryForObject("SELECT COUNT(*) FROM t_account", Integer.class);
+    }
+
+    private static DataSource newDatabase() {
+        return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                .addScript("classpath:schema.sql").build();
+    }
+
+    private static SessionFactory newSessionFactory(DataSource dataSource) {
+        SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+        sessionFactoryBean.setDataSource(dataSource);
+        sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.sharded"});
+        return sessionFactoryBean.getObject();
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.sharded", dataSourceRef = "shard0")
+    static class TestConfig {
+
+        @Bean
+        public DataSource shard0() {
+            return newDatabase();
+        }
+
+        @Bean
+        public DataSource shard1() {
+            return newDatabase();
+        }
+
+        @Bean
+        public SessionFactory accountSessionFactory(@Qualifier("shard0") DataSource dataSource) {
+            return newSessionFactory(dataSource);
+        }
+
+        @Bean
+        public SessionFactory otherSessionFactory(@Qualifier("shard1") DataSource dataSource) {
+            return newSessionFactory(dataSource);
+        }
+
+        @Bean
+        public ShardRouter shardRouter(@Qualifier("shard0") DataSource shard0,
+                @Qualifier("shard1") DataSource shard1) {
+            return new ShardRouter(List.of(shard0, shard1),
+                    (shardKey, shardCount) -> (int) ((Long) shardKey % shardCount));
+        }
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.jdbc.StatementCachingDataSource;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.h2.jdbc.JdbcPreparedStatement;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 语句缓存测试 单物理连接数据源上，Repository的重复查询复用同一条PreparedStatement
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = StatementCacheTest.TestConfig.class)
+class StatementCacheTest {
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private StatementCachingDataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("DELETE FROM t_user");
+    }
+
+    @Test
+    void testRepositoryQueriesReusePreparedStatements() {
+        User user = new User();
+        user.setName("语句缓存用户");
+        user.setEmail("statement-cache@example.com");
+        User saved = basicRepository.insert(user);
+
+        // 首次查询可能新准备语句，此后非事务调用重新获取连接时复用缓存的语句
+        assertTrue(basicRepository.findById(saved.getId()).isPresent());
+        long hits = dataSource.getHitCount();
+        long misses = dataSource.getMissCount();
+        for (int i = 0; i < 3; i++) {
+            assertEquals("语句缓存用户", basicRepository.findById(saved.getId()).orElseThrow().getName());
+        }
+        assertEquals(hits + 3, dataSource.getHitCount());
+        assertEquals(misses, dataSource.getMissCount());
+
+        // 事务中同样复用
+        new TransactionTemplate(transactionManager).executeWithoutResult(
+                status -> assertTrue(basicRepository.findById(saved.getId()).isPresent()));
+        assertEquals(hits + 4, dataSource.getHitCount());
+    }
+
+    @Test
+    void testLeastRecentlyUsedStatementEvicted() throws SQLException {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true).build();
+        SingleConnectionDataSource single = new SingleConnectionDataSource(database.getConnection(), true);
+        StatementCachingDataSource caching = new StatementCachingDataSource(single, 2);
+        try (Connection connection = caching.getConnection()) {
+            PreparedStatement first = connection.prepareStatement("SELECT 1");
+            final JdbcPreparedStatement physicalFirst = first.unwrap(JdbcPreparedStatement.class);
+            first.close();
+            assertTrue(first.isClosed());
+            assertThrows(SQLException.class, first::executeQuery);
+
+            PreparedStatement reused = connection.prepareStatement("SELECT 1");
+            assertSame(physicalFirst, reused.unwrap(JdbcPreparedStatement.class));
+            assertSame(connection, reused.getConnection());
+            reused.close();
+
+            connection.prepareStatement("SELECT 2").close();
+            connection.prepareStatement("SELECT 3").close();
+            assertEquals(1, caching.getEvictionCount());
+            assertTrue(physicalFirst.isClosed());
+
+            PreparedStatement prepared = connection.prepareStatement("SELECT 1");
+            assertNotSame(physicalFirst, prepared.unwrap(JdbcPreparedStatement.class));
+            assertFalse(prepared.isClosed());
+            prepared.close();
+        } finally {
+            single.destroy();
+            database.shutdown();
+        }
+        assertEquals(1, caching.getHitCount());
+        assertEquals(4, caching.getMissCount());
+    }
+
+    @Test
+    void testStatementSettingsRestoredBeforeReuse() throws SQLException {
+        EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                .generateUniqueName(true).build();
+        SingleConnectionDataSource single = new SingleConnectionDataSource(database.getConnection(), true);
+        StatementCachingDataSource caching = new StatementCachingDataSource(single, 2);
+        try (Connection connection = caching.getConnection()) {
+            PreparedStatement first = connection.prepareStatement("SELECT 1");
+            final JdbcPreparedStatement physicalFirst = first.unwrap(JdbcPreparedStatement.class);
+            final int fetchSize = first.getFetchSize();
+            final int maxRows = first.getMaxRows();
+            first.setFetchSize(fetchSize + 10);
+            first.setMaxRows(5);
+            first.setMaxRows(7);
+            ResultSet resultSet = first.executeQuery();
+            first.close();
+            assertTrue(resultSet.isClosed());
+
+            PreparedStatement reused = connection.prepareStatement("SELECT 1");
+            assertSame(physicalFirst, reused.unwrap(JdbcPreparedStatement.class));
+            assertEquals(fetchSize, reused.getFetchSize());
+            assertEquals(maxRows, reused.getMaxRows());
+            reused.setCursorName("c1");
+            reused.close();
+
+            PreparedStatement prepared = connection.prepareStatement("SELECT 1");
+            assertNotSame(physicalFirst, prepared.unwrap(JdbcPreparedStatement.class));
+            prepared.close();
+        } finally {
+            single.destroy();
+            database.shutdown();
+        }
+        assertEquals(1, caching.getHitCount());
+        assertEquals(2, caching.getMissCount());
+    }
+
+    /**
+     * 测试配置类 所有连接共用一个物理连接
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean
+        public StatementCachingDataSource dataSource() throws SQLException {
+            EmbeddedDatabase database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true).addScript("classpath:schema.sql").build();
+            return new StatementCachingDataSource(new SingleConnectionDataSource(database.getConnection(), true), 16);
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(StatementCachingDataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(StatementCachingDataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            // Hibernate对每条语句调用setFetchSize，语句仍应放回缓存
+            sessionFactoryBean.setJdbcFetchSize(50);
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+/**
+ * 流式结果测试 测试返回Stream的Repository方法在流关闭时才释放Session和连接
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = StreamResultTest.TestConfig.class)
+class StreamResultTest {
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private JdbcConnectionPool dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private List<User> users;
+
+    @BeforeEach
+    void setUp() {
+        users = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            User user = new User();
+            user.setName("流式用户" + i);
+            user.setEmail("stream" + i + "@example.com");
+            users.add(user);
+        }
+        basicRepository.insertAll(users);
+    }
+
+    @AfterEach
+    void tearDown() {
+        basicRepository.deleteAll(users);
+    }
+
+    @Test
+    void testNonTransactionalStream() {
+        try (Stream<User> stream = basicRepository.findAll()) {
+            // 流未关闭前保持连接
+            assertEquals(1, dataSource.getActiveConnections());
+            assertEquals(users.size(), stream.map(User::getName).filter(name -> name.startsWith("流式用户")).count());
+        }
+        assertEquals(0, dataSource.getActiveConnections());
+    }
+
+    @Test
+    void testTransactionalStream() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        long count = transactionTemplate.execute(status -> {
+            try (Stream<User> stream = basicRepository.findAll()) {
+                return stream.count();
+            }
+        });
+        assertEquals(users.size(), count);
+        assertEquals(0, dataSource.getActiveConnections());
+    }
+
+    @Test
+    void testUnclosedStreamIsReleased() throws InterruptedException {
+        assertEquals(users.size(), consumeWithoutClosing());
+        assertEquals(1, dataSource.getActiveConnections());
+
+        // 未关闭的流被回收后由Cleaner释放连接
+        for (int i = 0; i < 50 && dataSource.getActiveConnections() > 0; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        assertTrue(dataSource.getActiveConnections() == 0, "未关闭的Stream没有释放连接");
+    }
+
+    @Test
+    void testIteratorKeepsResourcesDuringGc() throws InterruptedException {
+        Iterator<User> iterator = basicRepository.findAll().iterator();
+        int count = 0;
+        while (iterator.hasNext()) {
+            // 只持有迭代器时，迭代期间的回收不能释放连接
+            System.gc();
+            Thread.sleep(20);
+            assertEquals(1, dataSource.getActiveConnections());
+            iterator.next();
+            count++;
+        }
+        assertEquals(users.size(), count);
+
+        iterator = null;
+        for (int i = 0; i < 50 && dataSource.getActiveConnections() > 0; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        assertEquals(0, dataSource.getActiveConnections());
+    }
+
+    private long consumeWithoutClosing() {
+        return basicRepository.findAll().count();
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean(destroyMethod = "dispose")
+        public JdbcConnectionPool dataSource() {
+            JdbcConnectionPool pool = JdbcConnectionPool.create("jdbc:h2:mem:stream-result;DB_CLOSE_DELAY=-1", "sa",
+                    "");
+            DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")), pool);
+            return pool;
+        }
+
+        @Bean
+        public PlatformTransactionManager transactionManager(DataSource dataSource) {
+            return new DataSourceTransactionManager(dataSource);
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            sessionFactoryBean.setJdbcFetchSize(2);
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import github.luckygc.jakartadata.annotation.WriteBehind;
+
+import jakarta.data.repository.Insert;
+import jakarta.data.repository.Repository;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 写后缓冲Repository接口 插入按每批100个写入，不满一批的实体在关闭时写入
+ */
+@Repository
+@WriteBehind(capacity = 1000, batchSize = 100, flushInterval = 1, timeUnit = TimeUnit.HOURS)
+public interface TelemetryRepository {
+
+    @Insert
+    void record(User user);
+
+    @Insert
+    void recordAll(List<User> users);
+}
@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import github.luckygc.jakartadata.JdbcBatchTest.BatchCountingDataSource;
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.dialect.H2Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.mutation.EntityMutationTarget;
+import org.hibernate.sql.model.MutationOperation;
+import org.hibernate.sql.model.internal.OptionalTableUpdate;
+import org.hibernate.sql.model.jdbc.OptionalTableUpdateOperation;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * upsert回退测试 测试方言没有原生upsert时，集合 {@code @Save} 方法拆分为批量更新与批量插入
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = UpsertFallbackTest.TestConfig.class)
+class UpsertFallbackTest {
+
+    private static final int BATCH_SIZE = 4;
+
+    @Autowired
+    private BasicRepository basicRepository;
+
+    @Autowired
+    private BatchCountingDataSource dataSource;
+
+    @Autowired
+    private SessionFactory sessionFactory;
+
+    @Test
+    void testUpsertWithoutMerge() {
+        List<User> existing = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            existing.add(newUser("回退用户" + i, "fallback" + i + "@example.com"));
+        }
+        basicRepository.insertAll(existing);
+
+        // 每段包含两个已存在的实体和两个新实体
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < existing.size(); i++) {
+            User user = existing.get(i);
+            user.setName(user.getName() + "-更新");
+            users.add(user);
+            users.add(newUser("新回退用户" + i, "fallback-new" + i + "@example.com"));
+        }
+        dataSource.resetBatchCount();
+
+        List<User> saved = basicRepository.saveAll(users);
+
+        // 已存在的实体每段作为一个更新批次发送，不再逐行先更新后插入；自增主键的实体插入时需要取回主键，由Hibernate逐行执行
+        assertSame(users, saved);
+        assertEquals(users.size() / BATCH_SIZE, dataSource.getBatchCount());
+        for (User user : users) {
+            assertNotNull(user.getId());
+            assertEquals(user.getName(), basicRepository.findById(user.getId()).orElseThrow().getName());
+        }
+
+        basicRepository.deleteAll(users);
+    }
+
+    @Test
+    void testUpsertWithoutMergeSelectsOnlyIdsAndKeepsLastDuplicate() {
+        User user = basicRepository.insert(newUser("重复用户", "duplicate@example.com"));
+        User first = newUser("重复用户-第一次", "duplicate@example.com");
+        first.setId(user.getId());
+        User last = newUser("重复用户-最后一次", "duplicate@example.com");
+        last.setId(user.getId());
+        Statistics statistics = sessionFactory.getStatistics();
+        statistics.clear();
+
+        basicRepository.saveAll(List.of(first, last));
+
+        // 判断实体是否存在时只查询主键，不加载实体；同一段中主键相同的实体只更新一次，以最后一个为准
+        assertEquals(0, statistics.getEntityLoadCount());
+        assertEquals(1, statistics.getEntityUpdateCount());
+        assertEquals("重复用户-最后一次", basicRepository.findById(user.getId()).orElseThrow().getName());
+
+        basicRepository.delete(last);
+    }
+
+    private static User newUser(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return user;
+    }
+
+    /**
+     * 不使用MERGE的H2方言，upsert回退为Hibernate默认的先更新后插入
+     */
+    public static class NoMergeH2Dialect extends H2Dialect {
+
+        @Override
+        public MutationOperation createOptionalTableUpdateOperation(EntityMutationTarget mutationTarget,
+                OptionalTableUpdate optionalTableUpdate, SessionFactoryImplementor factory) {
+            return new OptionalTableUpdateOperation(mutationTarget, optionalTableUpdate, factory);
+        }
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean
+        public BatchCountingDataSource dataSource() {
+            return new BatchCountingDataSource(new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2)
+                    .generateUniqueName(true).addScript("classpath:schema.sql").build());
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(BatchCountingDataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            sessionFactoryBean.setJdbcBatchSize(BATCH_SIZE);
+            sessionFactoryBean.setHibernateProperties(Map.of(AvailableSettings.DIALECT, NoMergeH2Dialect.class,
+                    AvailableSettings.GENERATE_STATISTICS, true));
+            return sessionFactoryBean.getObject();
+        }
+    }
+}
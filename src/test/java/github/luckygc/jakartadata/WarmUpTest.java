@@ -0,0 +1,122 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+import github.luckygc.jakartadata.warmup.RepositoryWarmUpCallback;
+import github.luckygc.jakartadata.warmup.RepositoryWarmUpRunner;
+
+import org.h2.jdbcx.JdbcConnectionPool;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * 预热测试 测试容器刷新前按 {@link github.luckygc.jakartadata.annotation.WarmUp} 注解及回调预热Repository并预先打开连接
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = WarmUpTest.TestConfig.class)
+class WarmUpTest {
+
+    private static final int ITERATIONS = 20;
+
+    @Autowired
+    private RepositoryWarmUpRunner warmUpRunner;
+
+    @Autowired
+    private JdbcConnectionPool dataSource;
+
+    @Autowired
+    private AtomicInteger callbackCount;
+
+    @Test
+    void testWarmUpBeforeRefresh() {
+        RepositoryWarmUpRunner.WarmUpReport report = warmUpRunner.getReport();
+        assertNotNull(report);
+
+        // 按连接池大小预先打开连接，预热结束后全部归还
+        assertEquals(3, report.connections());
+        assertEquals(0, dataSource.getActiveConnections());
+
+        // QueryUserRepository的两个@WarmUp方法及BasicRepository的回调
+        assertEquals(ITERATIONS * 3, report.invocations());
+        assertEquals(0, report.failures());
+        assertEquals(ITERATIONS, callbackCount.get());
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class TestConfig {
+
+        @Bean(destroyMethod = "dispose")
+        public JdbcConnectionPool dataSource() {
+            JdbcConnectionPool pool = JdbcConnectionPool.create("jdbc:h2:mem:" + UUID.randomUUID()
+                    + ";DB_CLOSE_DELAY=-1", "sa", "");
+            pool.setMaxConnections(3);
+            DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")), pool);
+            return pool;
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+
+        @Bean
+        public AtomicInteger callbackCount() {
+            return new AtomicInteger();
+        }
+
+        @Bean
+        public RepositoryWarmUpCallback<BasicRepository> basicRepositoryWarmUp(AtomicInteger callbackCount) {
+            return repository -> {
+                repository.findById(1L);
+                callbackCount.incrementAndGet();
+            };
+        }
+
+        @Bean
+        public RepositoryWarmUpRunner repositoryWarmUpRunner() {
+            RepositoryWarmUpRunner runner = new RepositoryWarmUpRunner();
+            runner.setIterations(ITERATIONS);
+            return runner;
+        }
+    }
+}
@@ -0,0 +1,232 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.async.WriteBehindFailureHandler;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SimpleDriverDataSource;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import org.springframework.jdbc.datasource.init.DatabasePopulatorUtils;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.junit.jupiter.SpringJUnitConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import javax.sql.DataSource;
+
+/**
+ * 写后缓冲测试 测试 {@link github.luckygc.jakartadata.annotation.WriteBehind} 按批写入、写入失败回调及关闭时写入剩余实体
+ *
+ * @author luckygc
+ */
+@SpringJUnitConfig(classes = WriteBehindTest.TestConfig.class)
+class WriteBehindTest {
+
+    @Autowired
+    private TelemetryRepository telemetryRepository;
+
+    @Autowired
+    private FailureRecorder failureRecorder;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @AfterEach
+    void tearDown() {
+        new JdbcTemplate(dataSource).update("delete from t_user");
+    }
+
+    @Test
+    void testConcurrentInsertsWrittenInBatches() throws Exception {
+        // 8个线程并发插入，每满一批由写线程写入
+        CompletableFuture.allOf(IntStream.range(0, 8).mapToObj(thread -> CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 50; i++) {
+                telemetryRepository.record(newUser("遥测" + thread + "-" + i));
+            }
+        })).toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        awaitCount(dataSource, 400);
+    }
+
+    @Test
+    void testFailedBatchReported() throws Exception {
+        new JdbcTemplate(dataSource).update("insert into t_user (name, email) values (?, ?)", "已存在",
+                "telemetry-dup@example.com");
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 99; i++) {
+            users.add(newUser("失败" + i));
+        }
+        User duplicate = newUser("重复");
+        duplicate.setEmail("telemetry-dup@example.com");
+        users.add(duplicate);
+        telemetryRepository.recordAll(users);
+
+        // 整批回滚，全部实体交给失败回调
+        assertTrue(failureRecorder.latch.await(10, TimeUnit.SECONDS));
+        assertSame(TelemetryRepository.class, failureRecorder.repositoryInterface);
+        assertEquals(100, failureRecorder.entities.size());
+        assertEquals(1, count(dataSource));
+    }
+
+    @Test
+    void testRemainingEntitiesWrittenOnShutdown() {
+        assertRemainingEntitiesWrittenOnShutdown(RepositoryConfig.class);
+    }
+
+    @Test
+    void testRemainingEntitiesWrittenWhenSessionFactoryClosed() {
+        // 容器中注册的是SessionFactoryBean.getObject()，容器关闭时只关闭SessionFactory
+        assertRemainingEntitiesWrittenOnShutdown(SessionFactoryObjectConfig.class);
+    }
+
+    private static void assertRemainingEntitiesWrittenOnShutdown(Class<?> configClass) {
+        DataSource database = new SimpleDriverDataSource(new org.h2.Driver(),
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1", "sa", "");
+        DatabasePopulatorUtils.execute(new ResourceDatabasePopulator(new ClassPathResource("schema.sql")), database);
+
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.registerBean(DataSource.class, () -> database);
+            context.register(configClass);
+            context.refresh();
+
+            TelemetryRepository repository = context.getBean(TelemetryRepository.class);
+            for (int i = 0; i < 10; i++) {
+                repository.record(newUser("关闭" + i));
+            }
+            // 不满一批，刷新间隔未到
+            assertEquals(0, count(database));
+        }
+
+        // SessionFactory开始关闭时写入剩余实体
+        assertEquals(10, count(database));
+        new JdbcTemplate(database).execute("SHUTDOWN");
+    }
+
+    private static User newUser(String name) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(UUID.randomUUID() + "@example.com");
+        return user;
+    }
+
+    private static int count(DataSource dataSource) {
+        return new JdbcTemplate(dataSource).queryForObject("select count(*) from t_user", Integer.class);
+    }
+
+    private static void awaitCount(DataSource dataSource, int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (count(dataSource) < expected && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(expected, count(dataSource));
+    }
+
+    /**
+     * 记录写入失败的回调
+     */
+    static class FailureRecorder implements WriteBehindFailureHandler {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+
+        private volatile Class<?> repositoryInterface;
+
+        private volatile List<?> entities;
+
+        @Override
+        public void writeFailed(Class<?> repositoryInterface, List<?> entities, Throwable cause) {
+            this.repositoryInterface = repositoryInterface;
+            this.entities = entities;
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Repository配置类 数据源由使用方提供
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class RepositoryConfig {
+
+        @Bean
+        public SessionFactoryBean sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean;
+        }
+
+        @Bean
+        public FailureRecorder failureRecorder() {
+            return new FailureRecorder();
+        }
+    }
+
+    /**
+     * Repository配置类 注册SessionFactoryBean创建的SessionFactory
+     */
+    @Configuration
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    static class SessionFactoryObjectConfig {
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+
+    /**
+     * 测试配置类
+     */
+    @Configuration
+    @Import(RepositoryConfig.class)
+    static class TestConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                    .addScript("classpath:schema.sql").build();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.aot;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import github.luckygc.jakartadata.BasicRepository;
+import github.luckygc.jakartadata.BasicRepository_;
+import github.luckygc.jakartadata.User;
+import github.luckygc.jakartadata.annotation.EnableDataRepositories;
+import github.luckygc.jakartadata.index.DataComponentsIndex;
+import github.luckygc.jakartadata.provider.hibernate.SessionFactoryBean;
+import github.luckygc.sharded.Account;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.aot.generate.ClassNameGenerator;
+import org.springframework.aot.generate.DefaultGenerationContext;
+import org.springframework.aot.generate.GeneratedFiles.Kind;
+import org.springframework.aot.generate.InMemoryGeneratedFiles;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+import org.springframework.beans.factory.support.BeanDefinitionBuilder;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.aot.ApplicationContextAotGenerator;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.io.InputStreamSource;
+import org.springframework.javapoet.ClassName;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * AOT处理测试 生成Bean定义代码与运行期提示，并编译生成的代码在AOT模式下启动容器
+ *
+ * @author luckygc
+ */
+class DataRepositoryAotTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testRuntimeHints() {
+        DefaultGenerationContext generationContext = newGenerationContext(new InMemoryGeneratedFiles());
+        processAheadOfTime(generationContext);
+        RuntimeHints hints = generationContext.getRuntimeHints();
+
+        assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(BasicRepository.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(BasicRepository.class)
+                .withMemberCategory(MemberCategory.INVOKE_PUBLIC_METHODS).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(BasicRepository_.class)
+                .withMemberCategory(MemberCategory.INVOKE_PUBLIC_CONSTRUCTORS).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(User.class)
+                .withMemberCategory(MemberCategory.DECLARED_FIELDS).test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource(DataComponentsIndex.INDEX_LOCATION).test(hints));
+    }
+
+    @Test
+    void testEntityHintsFromEntityPackages() {
+        DefaultGenerationContext generationContext = newGenerationContext(new InMemoryGeneratedFiles());
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.register(EntityPackagesConfig.class);
+            new ApplicationContextAotGenerator().processAheadOfTime(context, generationContext);
+        }
+        RuntimeHints hints = generationContext.getRuntimeHints();
+
+        // 实体与Repository位于不同包，按指定的实体包路径注册提示
+        assertTrue(RuntimeHintsPredicates.reflection().onType(Account.class)
+                .withMemberCategory(MemberCategory.DECLARED_FIELDS).test(hints));
+        assertFalse(RuntimeHintsPredicates.reflection().onType(User.class).test(hints));
+    }
+
+    @Test
+    void testEntityHintsFromSessionFactoryBeanDefinition() {
+        DefaultGenerationContext generationContext = newGenerationContext(new InMemoryGeneratedFiles());
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.register(RepositoryOnlyConfig.class);
+            context.registerBeanDefinition("sessionFactory", BeanDefinitionBuilder
+                    .rootBeanDefinition(SessionFactoryBean.class)
+                    .addPropertyValue("packagesToScan", new String[] {"github.luckygc.sharded"}).getBeanDefinition());
+            new ApplicationContextAotGenerator().processAheadOfTime(context, generationContext);
+        }
+        RuntimeHints hints = generationContext.getRuntimeHints();
+
+        // 实体包路径取自SessionFactoryBean的packagesToScan
+        assertTrue(RuntimeHintsPredicates.reflection().onType(Account.class)
+                .withMemberCategory(MemberCategory.DECLARED_FIELDS).test(hints));
+        assertFalse(RuntimeHintsPredicates.reflection().onType(User.class).test(hints));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testGeneratedContextUsesConstructorReference() throws Exception {
+        InMemoryGeneratedFiles generatedFiles = new InMemoryGeneratedFiles();
+        ClassName initializerClassName = processAheadOfTime(newGenerationContext(generatedFiles));
+
+        String sources = readSources(generatedFiles);
+        assertTrue(sources.contains("BasicRepository_::new"), "生成的Bean定义未使用构造函数引用");
+        assertTrue(sources.contains("forClassWithGenerics(DataRepositoryFactoryBean.class, BasicRepository.class)"),
+                "生成的Bean定义未设置泛型目标类型");
+
+        Path classes = compile(generatedFiles);
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {classes.toUri().toURL()},
+                getClass().getClassLoader());
+                GenericApplicationContext context = new GenericApplicationContext()) {
+            Class<?> initializerClass = classLoader.loadClass(initializerClassName.reflectionName());
+            ApplicationContextInitializer<GenericApplicationContext> initializer =
+                    (ApplicationContextInitializer<GenericApplicationContext>) initializerClass
+                            .getDeclaredConstructor().newInstance();
+            initializer.initialize(context);
+            context.refresh();
+
+            assertTrue(context.getBeanDefinition("basicRepository").getPropertyValues()
+                    .contains("implementationFactory"));
+
+            BasicRepository basicRepository = context.getBean(BasicRepository.class);
+            User user = new User();
+            user.setName("AOT用户");
+            user.setEmail("aot@example.com");
+            User saved = basicRepository.insert(user);
+            assertEquals("AOT用户", basicRepository.findById(saved.getId()).orElseThrow().getName());
+        }
+    }
+
+    private DefaultGenerationContext newGenerationContext(InMemoryGeneratedFiles generatedFiles) {
+        return new DefaultGenerationContext(new ClassNameGenerator(ClassName.get(TestConfig.class)), generatedFiles);
+    }
+
+    private ClassName processAheadOfTime(DefaultGenerationContext generationContext) {
+        ClassName initializerClassName;
+        try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+            context.register(TestConfig.class);
+            initializerClassName = new ApplicationContextAotGenerator().processAheadOfTime(context,
+                    generationContext);
+        }
+        generationContext.writeGeneratedContent();
+        return initializerClassName;
+    }
+
+    private String readSources(InMemoryGeneratedFiles generatedFiles) throws IOException {
+        StringBuilder sources = new StringBuilder();
+        for (InputStreamSource source : generatedFiles.getGeneratedFiles(Kind.SOURCE).values()) {
+            try (InputStream in = source.getInputStream()) {
+                sources.append(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return sources.toString();
+    }
+
+    private Path compile(InMemoryGeneratedFiles generatedFiles) throws IOException {
+        Path sources = Files.createDirectories(tempDir.resolve("src"));
+        Path classes = Files.createDirectories(tempDir.resolve("classes"));
+
+        List<String> arguments = new ArrayList<>(List.of("-proc:none", "-classpath",
+                System.getProperty("java.class.path"), "-d", classes.toString()));
+        for (Map.Entry<String, InputStreamSource> entry : generatedFiles.getGeneratedFiles(Kind.SOURCE).entrySet()) {
+            Path file = sources.resolve(entry.getKey());
+            Files.createDirectories(file.getParent());
+            try (InputStream in = entry.getValue().getInputStream()) {
+                Files.copy(in, file);
+            }
+            arguments.add(file.toString());
+        }
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int status = compiler.run(null, null, null, arguments.toArray(new String[0]));
+        assertEquals(0, status, "AOT生成的代码编译失败");
+        return classes;
+    }
+
+    /**
+     * 测试配置类，生成的代码由独立的类加载器加载，配置类及其Bean方法需要公开
+     */
+    @Configuration(proxyBeanMethods = false)
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    public static class TestConfig {
+
+        @Bean
+        public DataSource dataSource() {
+            return new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true)
+                    .addScript("classpath:schema.sql").build();
+        }
+
+        @Bean
+        public SessionFactory sessionFactory(DataSource dataSource) {
+            SessionFactoryBean sessionFactoryBean = new SessionFactoryBean();
+            sessionFactoryBean.setDataSource(dataSource);
+            sessionFactoryBean.setPackagesToScan(new String[] {"github.luckygc.jakartadata"});
+            return sessionFactoryBean.getObject();
+        }
+    }
+
+    /**
+     * 实体与Repository位于不同包，通过entityPackages指定实体包路径
+     */
+    @Configuration(proxyBeanMethods = false)
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata", entityPackages = "github.luckygc.sharded")
+    public static class EntityPackagesConfig {
+    }
+
+    /**
+     * 只启用Repository，实体包路径由测试注册的SessionFactoryBean Bean定义提供
+     */
+    @Configuration(proxyBeanMethods = false)
+    @EnableDataRepositories(basePackages = "github.luckygc.jakartadata")
+    public static class RepositoryOnlyConfig {
+    }
+}
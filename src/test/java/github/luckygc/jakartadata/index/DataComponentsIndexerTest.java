@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.jakartadata.index;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+/**
+ * 组件索引测试 使用 {@link DataComponentsIndexer} 编译示例源码并读取生成的索引
+ *
+ * @author luckygc
+ */
+class DataComponentsIndexerTest {
+
+    private static final String ENTITY_SOURCE = """
+            package sample.model;
+
+            import jakarta.persistence.Entity;
+            import jakarta.persistence.Id;
+
+            @Entity
+            public class Book {
+                @Id
+                private Long id;
+                private String title;
+                public Long getId() { return id; }
+                public void setId(Long id) { this.id = id; }
+                public String getTitle() { return title; }
+                public void setTitle(String title) { this.title = title; }
+            }
+            """;
+
+    private static final String REPOSITORY_SOURCE = """
+            package sample.repository;
+
+            import jakarta.data.repository.CrudRepository;
+            import jakarta.data.repository.Repository;
+            import sample.model.Book;
+
+            @Repository
+            public interface BookRepository extends CrudRepository<Book, Long> {
+            }
+            """;
+
+    private static final String PLAIN_BOOK_SOURCE = """
+            package sample.model;
+
+            public class Book {
+            }
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testIndexGeneratedAndLoaded() throws IOException {
+        Path classes = compile();
+
+        Path indexFile = classes.resolve(DataComponentsIndex.INDEX_LOCATION);
+        assertTrue(Files.exists(indexFile), "未生成组件索引");
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {classes.toUri().toURL()}, null)) {
+            DataComponentsIndex index = DataComponentsIndex.load(classLoader);
+            assertNotNull(index);
+            assertEquals(Set.of("sample.repository.BookRepository"),
+                    index.getCandidateTypes("sample", DataComponentsIndex.REPOSITORY));
+            assertEquals(Set.of("sample.repository.BookRepository_"),
+                    index.getCandidateTypes("sample", DataComponentsIndex.REPOSITORY_IMPLEMENTATION));
+            assertEquals(Set.of("sample.model.Book"), index.getCandidateTypes("sample", DataComponentsIndex.ENTITY));
+            assertEquals(Set.of(), index.getCandidateTypes("sample.repository", DataComponentsIndex.ENTITY));
+            // 包名前缀必须按包边界匹配
+            assertEquals(Set.of(), index.getCandidateTypes("sample.mod", DataComponentsIndex.ENTITY));
+            // 索引中没有条目的包回退为类路径扫描
+            assertTrue(index.hasCandidates("sample.model"));
+            assertFalse(index.hasCandidates("com.example"));
+        }
+    }
+
+    @Test
+    void testIncrementalCompilationDropsStaleEntries() throws IOException {
+        Path classes = compile();
+        Path indexFile = classes.resolve(DataComponentsIndex.INDEX_LOCATION);
+        Files.writeString(indexFile, "sample.model.Deleted=" + DataComponentsIndex.ENTITY + "\n",
+                StandardOpenOption.APPEND);
+
+        // 只重新编译去掉了@Entity的Book
+        Path book = Files.writeString(tempDir.resolve("src/sample/model/Book.java"), PLAIN_BOOK_SOURCE);
+        run(List.of("-classpath", System.getProperty("java.class.path") + File.pathSeparator + classes, "-d",
+                classes.toString(), "-processor", DataComponentsIndexer.class.getName(), book.toString()));
+
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {classes.toUri().toURL()}, null)) {
+            DataComponentsIndex index = DataComponentsIndex.load(classLoader);
+            assertNotNull(index);
+            assertEquals(Set.of(), index.getCandidateTypes("sample", DataComponentsIndex.ENTITY));
+            assertEquals(Set.of("sample.repository.BookRepository"),
+                    index.getCandidateTypes("sample", DataComponentsIndex.REPOSITORY));
+        }
+    }
+
+    @Test
+    void testNoIndexOnClasspath() throws IOException {
+        try (URLClassLoader classLoader = new URLClassLoader(new URL[] {tempDir.toUri().toURL()}, null)) {
+            assertNull(DataComponentsIndex.load(classLoader));
+        }
+    }
+
+    private Path compile() throws IOException {
+        Path sources = Files.createDirectories(tempDir.resolve("src"));
+        Path classes = Files.createDirectories(tempDir.resolve("classes"));
+        Path entity = Files.writeString(Files.createDirectories(sources.resolve("sample/model")).resolve("Book.java"),
+                ENTITY_SOURCE);
+        Path repository = Files.writeString(
+                Files.createDirectories(sources.resolve("sample/repository")).resolve("BookRepository.java"),
+                REPOSITORY_SOURCE);
+
+        run(Stream.concat(
+                Stream.of("-classpath", System.getProperty("java.class.path"), "-d", classes.toString(), "-processor",
+                        "org.hibernate.processor.HibernateProcessor," + DataComponentsIndexer.class.getName()),
+                Stream.of(entity, repository).map(Path::toString)).toList());
+        return classes;
+    }
+
+    private static void run(List<String> arguments) {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        int status = compiler.run(null, null, null, arguments.toArray(new String[0]));
+        assertEquals(0, status, "示例源码编译失败");
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+ 
+package github.luckygc.sharded;
+
+import github.luckygc.jakartadata.annotation.ShardKey;
+import github.luckygc.jakartadata.annotation.Sharded;
+
+import jakarta.data.repository.CrudRepository;
+import jakarta.data.repository.Find;
+import jakarta.data.repository.OrderBy;
+import jakarta.data.repository.Query;
+import jakarta.data.repository.Repository;
+
+import java.util.List;
+
+/**
+ * 分片Repository接口 使用名为accountSessionFactory的SessionFactory
+ */
+@Repository(dataStore = "accountSessionFactory")
+@Sharded
+public interface AccountRepository extends CrudRepository<Account, Long> {
+
+    @Find
+    List<Account> findByTenantId(@ShardKey Long tenantId);
+
+    @Query("select count(a) from Account a")
+    long countAll();
+
+    @Query("select a.tenantId from Account a where a.id = :id")
+    long findTenantId(long id);
+
+    @Query("select max(a.id) from Account a")
+    long maxId();
+
+    @Find
+    @OrderBy("name")
+    List<Account> findAllOrderedByName();
+}
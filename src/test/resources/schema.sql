@@ -3,4 +3,10 @@ CREATE TABLE IF NOT EXISTS t_user (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     email VARCHAR(255) NOT NULL UNIQUE
-);
\ No newline at end of file
+);
+-- 创建分片账户表
+CREATE TABLE IF NOT EXISTS t_account (
+    id BIGINT PRIMARY KEY,
+    tenantId BIGINT NOT NULL,
+    name VARCHAR(255) NOT NULL
+);